@@ -3,6 +3,8 @@ package org.jetlang.remote.acceptor;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.Channel;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Acceptor implements Runnable {
@@ -10,6 +12,7 @@ public class Acceptor implements Runnable {
     private final ServerSocket port;
     private final ErrorHandler handler;
     private final ClientHandler clientHandler;
+    private final AdmissionControl admission;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
     public interface ErrorHandler {
@@ -36,27 +39,75 @@ public class Acceptor implements Runnable {
 
         void startClient(Socket socket);
 
+        /**
+         * Starts the client and runs onClose once its socket has closed. Used with {@link AdmissionControl} to
+         * release the connection's slot. This default never runs onClose.
+         */
+        default void startClient(Socket socket, Runnable onClose) {
+            startClient(socket);
+        }
+
         void close();
     }
 
     public Acceptor(ServerSocket port, ErrorHandler handler, ClientHandler clientHandler) {
+        this(port, handler, clientHandler, null);
+    }
+
+    /**
+     * @param admission limits accepted connections. may be null.
+     */
+    public Acceptor(ServerSocket port, ErrorHandler handler, ClientHandler clientHandler, AdmissionControl admission) {
         this.port = port;
         this.handler = handler;
         this.clientHandler = clientHandler;
+        this.admission = admission;
     }
 
     public void run() {
         running.set(true);
         while (running.get()) {
             try {
+                if (admission != null) {
+                    long delay = admission.delayBeforeAccept(System.nanoTime());
+                    if (delay > 0) {
+                        //pending connections wait in the backlog
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                        continue;
+                    }
+                }
                 Socket socket = port.accept();
-                clientHandler.startClient(socket);
+                if (admission == null) {
+                    clientHandler.startClient(socket);
+                    continue;
+                }
+                final Channel connection = asChannel(socket);
+                if (admission.admit(connection, socket.getInetAddress(), System.nanoTime())) {
+                    clientHandler.startClient(socket, () -> admission.release(connection));
+                } else {
+                    socket.close();
+                }
             } catch (IOException e) {
                 handler.acceptError(e, running);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
 
+    private static Channel asChannel(final Socket socket) {
+        return new Channel() {
+            public boolean isOpen() {
+                return !socket.isClosed();
+            }
+
+            public void close() throws IOException {
+                socket.close();
+            }
+        };
+    }
+
     public void stop() {
         if (running.compareAndSet(true, false)) {
             try {
@@ -0,0 +1,162 @@
+package org.jetlang.remote.acceptor;
+
+import java.net.InetAddress;
+import java.nio.channels.Channel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how fast and how many connections an acceptor takes on. When the connection limit is reached or the
+ * accept rate is exhausted, the acceptor stops accepting so pending connections wait in the kernel backlog.
+ * Connections over the per address limit are accepted and closed immediately.
+ * <p>
+ * Connections hold their slot until {@link #release} is called. The acceptors pass the handler a close callback
+ * that releases it, which {@link JetlangClientHandler} and {@link NioJetlangRemotingClientFactory} run when the
+ * session's socket closes. Handlers that only implement the single argument start methods never report closes,
+ * so connection limits should not be used with them.
+ * <p>
+ * A limit of zero or less disables the limit. Configure before the acceptor starts.
+ */
+public class AdmissionControl {
+
+    private int maxConnections = 0;
+    private int maxConnectionsPerAddress = 0;
+    private double acceptsPerSecond = 0;
+    private int acceptBurst = 1;
+
+    private final Map<Channel, InetAddress> open = new HashMap<Channel, InetAddress>();
+    private final Map<InetAddress, Integer> perAddress = new HashMap<InetAddress, Integer>();
+    private double tokens;
+    private long lastRefillNanos;
+    private boolean bucketStarted;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder deferredForConnectionLimit = new LongAdder();
+    private final LongAdder deferredForRateLimit = new LongAdder();
+    private final LongAdder rejectedForAddressLimit = new LongAdder();
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public void setMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+        this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+    }
+
+    /**
+     * Token bucket refilled at the given rate. The burst is the number of connections that can be accepted at once after an idle period.
+     */
+    public void setAcceptRate(double acceptsPerSecond, int acceptBurst) {
+        this.acceptsPerSecond = acceptsPerSecond;
+        this.acceptBurst = Math.max(1, acceptBurst);
+    }
+
+    /**
+     * @return nanos to wait before the next accept, or zero if a connection can be accepted now
+     */
+    public synchronized long delayBeforeAccept(long nowNanos) {
+        if (maxConnections > 0 && open.size() >= maxConnections) {
+            deferredForConnectionLimit.increment();
+            return TimeUnit.MILLISECONDS.toNanos(10);
+        }
+        if (acceptsPerSecond > 0) {
+            refill(nowNanos);
+            if (tokens < 1) {
+                deferredForRateLimit.increment();
+                long wait = (long) ((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / acceptsPerSecond);
+                //capped so the acceptor rechecks and notices when it is stopped
+                return Math.max(1, Math.min(wait, TimeUnit.MILLISECONDS.toNanos(100)));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Call after accepting a connection. An admitted connection holds its slot until it is released.
+     *
+     * @return false if the connection should be closed
+     */
+    public synchronized boolean admit(Channel connection, InetAddress address, long nowNanos) {
+        if (acceptsPerSecond > 0) {
+            refill(nowNanos);
+            tokens -= 1;
+        }
+        if (maxConnectionsPerAddress > 0 && count(address) >= maxConnectionsPerAddress) {
+            rejectedForAddressLimit.increment();
+            return false;
+        }
+        if (maxConnections > 0 || maxConnectionsPerAddress > 0) {
+            open.put(connection, address);
+            perAddress.put(address, count(address) + 1);
+        }
+        admitted.increment();
+        return true;
+    }
+
+    private int count(InetAddress address) {
+        Integer count = perAddress.get(address);
+        return count != null ? count : 0;
+    }
+
+    private void refill(long nowNanos) {
+        if (!bucketStarted) {
+            bucketStarted = true;
+            tokens = acceptBurst;
+        } else {
+            tokens = Math.min(acceptBurst, tokens + (nowNanos - lastRefillNanos) * acceptsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+        lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Frees the slot of an admitted connection once it has closed. Releasing a connection more than once, or one
+     * that was never admitted, has no effect.
+     */
+    public synchronized void release(Channel connection) {
+        final InetAddress address = open.remove(connection);
+        if (address != null) {
+            final int remaining = count(address) - 1;
+            if (remaining > 0) {
+                perAddress.put(address, remaining);
+            } else {
+                perAddress.remove(address);
+            }
+        }
+    }
+
+    /**
+     * Admitted connections that have not been released.
+     */
+    public synchronized int getConnectionCount() {
+        return open.size();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getDeferredForConnectionLimitCount() {
+        return deferredForConnectionLimit.sum();
+    }
+
+    public long getDeferredForRateLimitCount() {
+        return deferredForRateLimit.sum();
+    }
+
+    public long getRejectedForAddressLimitCount() {
+        return rejectedForAddressLimit.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionControl{" +
+                "connections=" + getConnectionCount() +
+                ", admitted=" + getAdmittedCount() +
+                ", deferredForConnectionLimit=" + getDeferredForConnectionLimitCount() +
+                ", deferredForRateLimit=" + getDeferredForRateLimitCount() +
+                ", rejectedForAddressLimit=" + getRejectedForAddressLimitCount() +
+                '}';
+    }
+}
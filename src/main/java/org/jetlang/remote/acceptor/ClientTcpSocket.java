@@ -2,6 +2,8 @@ package org.jetlang.remote.acceptor;
 
 import org.jetlang.remote.core.TcpSocket;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * User: mrettig
  * Date: 4/13/11
@@ -10,10 +12,20 @@ import org.jetlang.remote.core.TcpSocket;
 public class ClientTcpSocket {
 
     private final TcpSocket socket;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
     private volatile JetlangStreamSession session;
 
     public ClientTcpSocket(TcpSocket socket) {
+        this(socket, null);
+    }
+
+    /**
+     * @param onClose run once, after the socket is first closed. may be null.
+     */
+    public ClientTcpSocket(TcpSocket socket, Runnable onClose) {
         this.socket = socket;
+        this.onClose = onClose;
     }
 
     public TcpSocket getSocket() {
@@ -22,6 +34,9 @@ public class ClientTcpSocket {
 
     public void close() {
         socket.close();
+        if (onClose != null && closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
     }
 
     public void setSession(JetlangStreamSession session) {
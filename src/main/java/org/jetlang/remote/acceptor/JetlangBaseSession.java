@@ -1,27 +1,37 @@
 package org.jetlang.remote.acceptor;
 
-import org.jetlang.channels.MemoryChannel;
 import org.jetlang.channels.Subscriber;
 import org.jetlang.remote.core.CloseableChannel;
 import org.jetlang.remote.core.HeartbeatEvent;
+import org.jetlang.remote.core.LazyChannel;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>, JetlangMessagePublisher<W> {
 
     private final CloseableChannel.Group allChannels = new CloseableChannel.Group();
 
-    protected <T> CloseableChannel<T> newChannel() {
-        return allChannels.add(new MemoryChannel<T>());
+    /**
+     * Channels are materialized on first subscribe so idle sessions do not pay for channels nobody listens to.
+     */
+    protected <T> LazyChannel<T> newChannel() {
+        return new LazyChannel<T>(allChannels);
     }
 
-    protected final CloseableChannel<SessionTopic<W>> SubscriptionRequest = newChannel();
-    protected final CloseableChannel<String> UnsubscribeRequest = newChannel();
-    protected final CloseableChannel<LogoutEvent> Logout = newChannel();
-    protected final CloseableChannel<HeartbeatEvent> Heartbeat = newChannel();
-    protected final CloseableChannel<SessionMessage<R>> Messages = newChannel();
-    protected final CloseableChannel<ReadTimeoutEvent> ReadTimeout = newChannel();
-    protected final CloseableChannel<SessionCloseEvent> SessionClose = newChannel();
-    protected final CloseableChannel<SessionRequest<R, W>> SessionRequest = newChannel();
+    protected final LazyChannel<SessionTopic<W>> SubscriptionRequest = newChannel();
+    protected final LazyChannel<String> UnsubscribeRequest = newChannel();
+    protected final LazyChannel<LogoutEvent> Logout = newChannel();
+    protected final LazyChannel<HeartbeatEvent> Heartbeat = newChannel();
+    protected final LazyChannel<SessionMessage<R>> Messages = newChannel();
+    protected final LazyChannel<ReadTimeoutEvent> ReadTimeout = newChannel();
+    protected final LazyChannel<SessionCloseEvent> SessionClose = newChannel();
+    protected final LazyChannel<SessionRequest<R, W>> SessionRequest = newChannel();
+    protected final LazyChannel<List<SessionMessage<R>>> MessageBatch = newChannel();
+
+    private final SessionListener<R> channelListener = new ChannelListener();
+    private volatile SessionListener<R> listener = channelListener;
 
     protected final Object id;
 
@@ -33,14 +43,24 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
         return id;
     }
 
-    public abstract void onLogout();
+    public void setSessionListener(SessionListener<R> sessionListener) {
+        listener = sessionListener == null ? channelListener : SessionListener.chain(sessionListener, channelListener);
+    }
 
-    public abstract void onSubscriptionRequest(String topic);
+    public void onLogout() {
+        listener.onLogout();
+    }
 
-    public abstract void onUnsubscribeRequest(String topic);
+    public void onSubscriptionRequest(String topic) {
+        listener.onSubscriptionRequest(topic);
+    }
+
+    public void onUnsubscribeRequest(String topic) {
+        listener.onUnsubscribeRequest(topic);
+    }
 
     public void onHb() {
-        Heartbeat.publish(new HeartbeatEvent());
+        listener.onHeartbeat();
     }
 
     public abstract void publish(final byte[] data);
@@ -73,8 +93,16 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
         return SessionClose;
     }
 
+    public Subscriber<List<SessionMessage<R>>> getSessionMessageBatchChannel() {
+        return MessageBatch;
+    }
+
     public void onMessage(String topic, R msg) {
-        Messages.publish(new SessionMessage<>(topic, msg));
+        listener.onMessage(topic, msg);
+    }
+
+    public void onReadComplete() {
+        listener.onReadComplete();
     }
 
     public Subscriber<String> getUnsubscribeChannel() {
@@ -86,18 +114,90 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
     }
 
     public void onRequest(int reqId, String reqmsgTopic, R reqmsg) {
-        SessionRequest.publish(new SessionRequest<R,W>(reqId, reqmsgTopic, reqmsg, this));
+        listener.onRequest(reqId, reqmsgTopic, reqmsg);
     }
 
     public void onClose(SessionCloseEvent sessionCloseEvent) {
         try {
-            SessionClose.publish(sessionCloseEvent);
+            listener.onClose();
         } finally {
             allChannels.closeAndClear();
         }
     }
 
     public void onReadTimeout(ReadTimeoutEvent readTimeoutEvent) {
-        ReadTimeout.publish(readTimeoutEvent);
+        listener.onReadTimeout();
+    }
+
+    /**
+     * Publishes listener events to the session channels. Events are only allocated for channels that have been subscribed.
+     */
+    private class ChannelListener implements SessionListener<R> {
+
+        //only accessed from the read thread
+        private List<SessionMessage<R>> pendingBatch;
+
+        public void onMessage(String topic, R msg) {
+            final boolean batched = MessageBatch.isMaterialized();
+            if (!batched && !Messages.isMaterialized()) {
+                return;
+            }
+            final SessionMessage<R> message = new SessionMessage<>(topic, msg);
+            Messages.publish(message);
+            if (batched) {
+                if (pendingBatch == null) {
+                    pendingBatch = new ArrayList<>();
+                }
+                pendingBatch.add(message);
+            }
+        }
+
+        public void onReadComplete() {
+            if (pendingBatch != null && !pendingBatch.isEmpty()) {
+                final List<SessionMessage<R>> batch = pendingBatch;
+                pendingBatch = new ArrayList<>(batch.size());
+                MessageBatch.publish(batch);
+            }
+        }
+
+        public void onRequest(int reqId, String reqTopic, R req) {
+            if (SessionRequest.isMaterialized()) {
+                SessionRequest.publish(new SessionRequest<R, W>(reqId, reqTopic, req, JetlangBaseSession.this));
+            }
+        }
+
+        public void onSubscriptionRequest(String topic) {
+            if (SubscriptionRequest.isMaterialized()) {
+                SubscriptionRequest.publish(new SessionTopic<W>(topic, JetlangBaseSession.this));
+            }
+        }
+
+        public void onUnsubscribeRequest(String topic) {
+            UnsubscribeRequest.publish(topic);
+        }
+
+        public void onHeartbeat() {
+            if (Heartbeat.isMaterialized()) {
+                Heartbeat.publish(new HeartbeatEvent());
+            }
+        }
+
+        public void onLogout() {
+            if (Logout.isMaterialized()) {
+                Logout.publish(new LogoutEvent());
+            }
+        }
+
+        public void onReadTimeout() {
+            if (ReadTimeout.isMaterialized()) {
+                ReadTimeout.publish(new ReadTimeoutEvent());
+            }
+        }
+
+        public void onClose() {
+            if (SessionClose.isMaterialized()) {
+                SessionClose.publish(new SessionCloseEvent());
+            }
+        }
     }
 }
@@ -1,21 +1,32 @@
 package org.jetlang.remote.acceptor;
 
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
 import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.ThreadFiber;
+import org.jetlang.remote.core.ByteArrayBuffer;
 import org.jetlang.remote.core.ErrorHandler;
 import org.jetlang.remote.core.JetlangRemotingInputStream;
 import org.jetlang.remote.core.JetlangRemotingProtocol;
+import org.jetlang.remote.core.MsgTypes;
 import org.jetlang.remote.core.ReadTimeoutEvent;
+import org.jetlang.remote.core.ReplayBuffer;
 import org.jetlang.remote.core.Serializer;
 import org.jetlang.remote.core.SerializerFactory;
 import org.jetlang.remote.core.SocketMessageStreamWriter;
+import org.jetlang.remote.core.SocketWriteStats;
 import org.jetlang.remote.core.TcpSocket;
 
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -31,6 +42,9 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
     private final AtomicBoolean running = new AtomicBoolean(true);
     private final Collection<ClientTcpSocket> clients = new HashSet<ClientTcpSocket>();
     private final BufferedSerializer<W> globalBuffer;
+    private final SocketWriteStats writeStats = new SocketWriteStats();
+    //guarded by clients
+    private final Map<String, ResumableSession> resumableSessions = new HashMap<String, ResumableSession>();
 
     private final Fiber globalSendFiber;
 
@@ -81,7 +95,12 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
 
     @Override
     public void startClient(Socket socket) {
-        ClientTcpSocket client = new ClientTcpSocket(new TcpSocket(socket, errorHandler));
+        startClient(socket, null);
+    }
+
+    @Override
+    public void startClient(Socket socket, Runnable onClose) {
+        ClientTcpSocket client = new ClientTcpSocket(new TcpSocket(socket, errorHandler), onClose);
         synchronized (clients) {
             if (running.get()) {
                 clients.add(client);
@@ -103,14 +122,24 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
     @Override
     public void close() {
         globalSendFiber.dispose();
+        List<ResumableSession> parked = new ArrayList<ResumableSession>();
         synchronized (clients) {
             if (running.compareAndSet(true, false)) {
                 for (ClientTcpSocket client : clients) {
                     client.close();
                 }
                 clients.clear();
+                for (ResumableSession session : resumableSessions.values()) {
+                    if (session.expiry != null) {
+                        parked.add(session);
+                    }
+                }
+                resumableSessions.values().removeAll(parked);
             }
         }
+        for (ResumableSession session : parked) {
+            session.close();
+        }
     }
 
     private void stopAndRemove(ClientTcpSocket client) {
@@ -120,6 +149,13 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
         }
     }
 
+    /**
+     * Socket write counts across all sessions created by this handler.
+     */
+    public SocketWriteStats getWriteStats() {
+        return writeStats;
+    }
+
     public int clientCount() {
         synchronized (clients) {
             return clients.size();
@@ -151,6 +187,12 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
             for (ClientTcpSocket client : clients) {
                 client.publishIfSubscribed(topic, data);
             }
+            //disconnected sessions keep receiving into their replay buffers.
+            for (ResumableSession resumable : resumableSessions.values()) {
+                if (resumable.expiry != null) {
+                    resumable.session.publishIfSubscribed(topic, data);
+                }
+            }
         }
     }
 
@@ -171,10 +213,14 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
 
 
     private Runnable createRunnable(final ClientTcpSocket clientTcpSocket) throws IOException {
+        if (config.getResumeWindowSize() > 0) {
+            return createResumableRunnable(clientTcpSocket);
+        }
         final TcpSocket socket = clientTcpSocket.getSocket();
         final Fiber sendFiber = fiberFactory.createSendFiber(socket.getSocket());
         final Serializer<R, W> serializer = ser.createForSocket(socket);
-        final JetlangStreamSession<R, W> session = new JetlangStreamSession<R, W>(socket.getRemoteSocketAddress(), new SocketMessageStreamWriter<W>(socket, ser.getCharset(), serializer.getWriter()), sendFiber, errorHandler);
+        final SocketMessageStreamWriter<W> writer = new SocketMessageStreamWriter<W>(createOut(socket, sendFiber), ser.getCharset(), serializer.getWriter());
+        final JetlangStreamSession<R, W> session = new JetlangStreamSession<R, W>(socket.getRemoteSocketAddress(), writer, sendFiber, errorHandler);
         return new Runnable() {
             @Override
             public void run() {
@@ -202,6 +248,280 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
         };
     }
 
+    /**
+     * The session is created once the first frame arrives. A client that opens with a resume request for a known
+     * session is attached to it, otherwise a new session is started.
+     */
+    private Runnable createResumableRunnable(final ClientTcpSocket clientTcpSocket) {
+        final TcpSocket socket = clientTcpSocket.getSocket();
+        final Serializer<R, W> serializer = ser.createForSocket(socket);
+        return new Runnable() {
+            @Override
+            public void run() {
+                final ResumeHandshake handshake = new ResumeHandshake(clientTcpSocket, serializer);
+                try {
+                    JetlangRemotingProtocol<R> protocol = new JetlangRemotingProtocol<R>(handshake, serializer.getReader(), ser.createTopicReader());
+                    JetlangRemotingInputStream state = new JetlangRemotingInputStream(socket.getInputStream(), protocol, handshake);
+                    while (state.readFromStream()) {
+
+                    }
+                } catch (IOException disconnect) {
+                    //failed.printStackTrace();
+                } catch (Exception clientFailure) {
+                    errorHandler.onException(clientFailure);
+                } finally {
+                    stopAndRemove(clientTcpSocket);
+                    handshake.onDisconnect();
+                }
+            }
+        };
+    }
+
+    private class ResumableSession {
+        final String token;
+        final JetlangStreamSession<R, W> session;
+        final Fiber sendFiber;
+        int connection = 1;
+        //set while waiting for the client to reconnect
+        Disposable expiry;
+
+        ResumableSession(String token, JetlangStreamSession<R, W> session, Fiber sendFiber) {
+            this.token = token;
+            this.session = session;
+            this.sendFiber = sendFiber;
+        }
+
+        void close() {
+            sendFiber.dispose();
+            session.onClose(new SessionCloseEvent());
+        }
+    }
+
+    private class ResumeHandshake implements JetlangRemotingProtocol.Handler<R>, Runnable {
+        private final ClientTcpSocket client;
+        private final Serializer<R, W> serializer;
+        private JetlangStreamSession<R, W> session;
+        private Fiber sendFiber;
+        private SequencedMessageStreamWriter<W> writer;
+        private ResumableSession resumable;
+        private int connection;
+
+        ResumeHandshake(ClientTcpSocket client, Serializer<R, W> serializer) {
+            this.client = client;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void onResumeRequest(String token, long lastSequence) {
+            if (session != null) {
+                session.onUnknownMessage(MsgTypes.ResumeRequest);
+            } else if (token.isEmpty() || !resume(token, lastSequence)) {
+                start(true);
+            }
+        }
+
+        private boolean resume(String token, long lastSequence) {
+            ResumableSession expired = null;
+            synchronized (clients) {
+                final ResumableSession existing = resumableSessions.get(token);
+                if (existing == null) {
+                    return false;
+                }
+                if (!existing.session.canResume(lastSequence)) {
+                    resumableSessions.remove(token);
+                    if (existing.expiry != null) {
+                        existing.expiry.dispose();
+                        expired = existing;
+                    } else {
+                        //the reader for the old connection closes the session
+                        existing.session.disconnect();
+                    }
+                } else {
+                    if (existing.expiry != null) {
+                        existing.expiry.dispose();
+                        existing.expiry = null;
+                    }
+                    resumable = existing;
+                    connection = ++existing.connection;
+                    session = existing.session;
+                    sendFiber = existing.sendFiber;
+                    client.setSession(session);
+                }
+            }
+            if (expired != null) {
+                expired.close();
+                return false;
+            }
+            try {
+                writer = createWriter(sendFiber);
+            } catch (IOException e) {
+                client.close();
+                return true;
+            }
+            session.attach(writer, lastSequence);
+            return true;
+        }
+
+        private void start(boolean resumeRequested) {
+            final TcpSocket socket = client.getSocket();
+            sendFiber = fiberFactory.createSendFiber(socket.getSocket());
+            try {
+                writer = createWriter(sendFiber);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (resumeRequested) {
+                session = new JetlangStreamSession<R, W>(socket.getRemoteSocketAddress(), writer, sendFiber, errorHandler,
+                        new ReplayBuffer(config.getResumeWindowSize()), ser.createBuffered());
+                final String token = UUID.randomUUID().toString().replace("-", "");
+                session.sendSessionToken(token);
+                synchronized (clients) {
+                    resumable = new ResumableSession(token, session, sendFiber);
+                    connection = resumable.connection;
+                    resumableSessions.put(token, resumable);
+                }
+            } else {
+                session = new JetlangStreamSession<R, W>(socket.getRemoteSocketAddress(), writer, sendFiber, errorHandler);
+            }
+            client.setSession(session);
+            channels.onNewSession(JetlangClientHandler.this, session);
+            session.startHeartbeat(config.getHeartbeatIntervalInMs(), TimeUnit.MILLISECONDS);
+            sendFiber.start();
+        }
+
+        private SequencedMessageStreamWriter<W> createWriter(Fiber fiber) throws IOException {
+            return new SocketMessageStreamWriter<W>(createOut(client.getSocket(), fiber), ser.getCharset(), serializer.getWriter());
+        }
+
+        private JetlangStreamSession<R, W> session() {
+            if (session == null) {
+                //client did not ask to resume
+                start(false);
+            }
+            return session;
+        }
+
+        void onDisconnect() {
+            if (session == null) {
+                return;
+            }
+            if (resumable == null) {
+                sendFiber.dispose();
+                session.onClose(new SessionCloseEvent());
+                return;
+            }
+            boolean close = false;
+            synchronized (clients) {
+                if (resumableSessions.get(resumable.token) != resumable) {
+                    close = true;
+                } else if (resumable.connection == connection) {
+                    if (session.isLoggedOut() || !running.get()) {
+                        resumableSessions.remove(resumable.token);
+                        close = true;
+                    } else {
+                        session.detach(writer);
+                        resumable.expiry = globalSendFiber.schedule(expire(resumable, connection), config.getResumeGracePeriodInMs(), TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+            if (close) {
+                resumable.close();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (session != null) {
+                session.onReadTimeout(new ReadTimeoutEvent());
+            }
+        }
+
+        @Override
+        public void onMessage(String dataTopicVal, R readObject) {
+            session().onMessage(dataTopicVal, readObject);
+        }
+
+        @Override
+        public void onSubscriptionRequest(String val) {
+            session().onSubscriptionRequest(val);
+        }
+
+        @Override
+        public void onRequest(int reqId, String dataTopicVal, R readObject) {
+            session().onRequest(reqId, dataTopicVal, readObject);
+        }
+
+        @Override
+        public void onUnsubscribeRequest(String val) {
+            session().onUnsubscribeRequest(val);
+        }
+
+        @Override
+        public void onHb() {
+            session().onHb();
+        }
+
+        @Override
+        public void onLogout() {
+            session().onLogout();
+        }
+
+        @Override
+        public void onUnknownMessage(int read) {
+            session().onUnknownMessage(read);
+        }
+
+        @Override
+        public void onRequestReply(int reqId, String dataTopicVal, R readObject) {
+            session().onRequestReply(reqId, dataTopicVal, readObject);
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            errorHandler.onException(failed);
+        }
+
+        @Override
+        public void onReadComplete() {
+            if (session != null) {
+                session.onReadComplete();
+            }
+        }
+    }
+
+    private Runnable expire(final ResumableSession resumable, final int connection) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                synchronized (clients) {
+                    if (resumableSessions.get(resumable.token) != resumable || resumable.connection != connection) {
+                        return;
+                    }
+                    resumableSessions.remove(resumable.token);
+                }
+                resumable.close();
+            }
+        };
+    }
+
+    private SocketMessageStreamWriter.Out createOut(final TcpSocket socket, Fiber sendFiber) throws IOException {
+        if (config.isAdaptiveFlush()) {
+            Callback<IOException> onFlushFailure = new Callback<IOException>() {
+                @Override
+                public void onMessage(IOException e) {
+                    //closing the socket ends the read loop and the session.
+                    if (socket.close()) {
+                        errorHandler.onException(e);
+                    }
+                }
+            };
+            return new SocketMessageStreamWriter.AdaptiveStream(new ByteArrayBuffer(), socket, sendFiber,
+                    config.getAdaptiveFlushMaxBytes(), TimeUnit.MICROSECONDS.toNanos(config.getAdaptiveFlushMaxDelayInMicros()),
+                    onFlushFailure, writeStats);
+        }
+        return new SocketMessageStreamWriter.BufferedStream(new ByteArrayBuffer(), socket, writeStats);
+    }
+
     private void configureClientSocketAfterAccept(Socket socket) throws SocketException {
         socket.setTcpNoDelay(config.getTcpNoDelay());
         if (config.getReceiveBufferSize() > 0)
@@ -7,6 +7,7 @@ import org.jetlang.remote.core.HeartbeatEvent;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -71,6 +72,10 @@ public class JetlangFiberSession<R, W> implements JetlangSession<R, W> {
         return session.getSessionMessageChannel();
     }
 
+    public Subscriber<List<SessionMessage<R>>> getSessionMessageBatchChannel() {
+        return session.getSessionMessageBatchChannel();
+    }
+
     public Subscriber<SessionRequest<R,W>> getSessionRequestChannel() {
         return session.getSessionRequestChannel();
     }
@@ -83,6 +88,13 @@ public class JetlangFiberSession<R, W> implements JetlangSession<R, W> {
         return session.getSessionCloseChannel();
     }
 
+    /**
+     * The listener is invoked on the read thread, not on the session fiber.
+     */
+    public void setSessionListener(SessionListener<R> listener) {
+        session.setSessionListener(listener);
+    }
+
     public void disconnect() {
         session.disconnect();
     }
@@ -94,4 +106,8 @@ public class JetlangFiberSession<R, W> implements JetlangSession<R, W> {
     public void publish(String topic, W msg) {
         session.publish(topic, msg);
     }
+
+    public void reply(int reqId, String replyTopic, W replyMsg) {
+        session.reply(reqId, replyTopic, replyMsg);
+    }
 }
@@ -40,18 +40,18 @@ public class JetlangNioSession<R, W> extends JetlangBaseSession<R, W> implements
     @Override
     public void onLogout() {
         sendFiber.handleLogout(channel);
-        Logout.publish(new LogoutEvent());
+        super.onLogout();
     }
 
     @Override
     public void onSubscriptionRequest(String topic) {
         sendFiber.onSubscriptionRequest(topic, channel);
-        SubscriptionRequest.publish(new SessionTopic(topic, this));
+        super.onSubscriptionRequest(topic);
     }
 
     @Override
     public void onUnsubscribeRequest(String topic) {
-        UnsubscribeRequest.publish(topic);
+        super.onUnsubscribeRequest(topic);
         sendFiber.onUnsubscribeRequest(topic, channel);
     }
 
@@ -91,6 +91,12 @@ public class JetlangNioSession<R, W> extends JetlangBaseSession<R, W> implements
         super.onClose(sessionCloseEvent);
     }
 
+    @Override
+    public void onResumeRequest(String token, long lastSequence) {
+        //nio sessions keep no replay window, so the client falls back to a new session.
+        sendFiber.sendSessionToken(channel, "");
+    }
+
     @Override
     public void onUnknownMessage(int read) {
         errorHandler.onUnknownMessage(read);
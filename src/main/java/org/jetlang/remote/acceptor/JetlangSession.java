@@ -4,6 +4,8 @@ import org.jetlang.channels.Subscriber;
 import org.jetlang.remote.core.HeartbeatEvent;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 
+import java.util.List;
+
 /**
  * User: mrettig
  * Date: 4/6/11
@@ -23,12 +25,33 @@ public interface JetlangSession<R, W> {
 
     Subscriber<SessionMessage<R>> getSessionMessageChannel();
 
+    /**
+     * Delivers all messages decoded from a single socket read as one event. Subscribing to this channel
+     * lets a fiber handle a burst of messages with a single queued event instead of one per message.
+     * Messages are also published to the session message channel.
+     * <p>
+     * The default throws {@link UnsupportedOperationException} so sessions written before batching still compile.
+     */
+    default Subscriber<List<SessionMessage<R>>> getSessionMessageBatchChannel() {
+        throw new UnsupportedOperationException("Batched session messages not supported by " + getClass().getName());
+    }
+
     Subscriber<SessionRequest<R, W>> getSessionRequestChannel();
 
     Subscriber<ReadTimeoutEvent> getReadTimeoutChannel();
 
     Subscriber<SessionCloseEvent> getSessionCloseChannel();
 
+    /**
+     * Sets a listener that is invoked directly on the read thread, ahead of the session channels.
+     * Set the listener when the session is created, before messages are read. Pass null to remove it.
+     * <p>
+     * The default throws {@link UnsupportedOperationException} so sessions written before listeners still compile.
+     */
+    default void setSessionListener(SessionListener<R> listener) {
+        throw new UnsupportedOperationException("Session listeners not supported by " + getClass().getName());
+    }
+
     /**
      * Attempts to disconnect the client.
      */
@@ -41,4 +64,12 @@ public interface JetlangSession<R, W> {
     void publish(byte[] data);
 
     void publish(final String topic, final W msg);
+
+    /**
+     * Replies to a request received by a {@link SessionListener}. The default throws
+     * {@link UnsupportedOperationException}.
+     */
+    default void reply(int reqId, String replyTopic, W replyMsg) {
+        throw new UnsupportedOperationException("Replies not supported by " + getClass().getName());
+    }
 }
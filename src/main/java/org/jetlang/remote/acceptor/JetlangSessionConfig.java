@@ -7,6 +7,11 @@ public class JetlangSessionConfig {
     private int receiveBufferSize = 1024 * 512;
     private int sendBufferSize = 1024 * 512;
     private int readTimeoutInMs = 3000;
+    private boolean adaptiveFlush = false;
+    private int adaptiveFlushMaxBytes = 1024 * 64;
+    private long adaptiveFlushMaxDelayInMicros = 1000;
+    private int resumeWindowSize = 0;
+    private int resumeGracePeriodInMs = 30000;
 
     public void setHeartbeatIntervalInMs(int ms) {
         this.hbIntervalInMs = ms;
@@ -47,4 +52,55 @@ public class JetlangSessionConfig {
     public void setReadTimeoutInMs(int readTimeoutInMs) {
         this.readTimeoutInMs = readTimeoutInMs;
     }
+
+    public boolean isAdaptiveFlush() {
+        return adaptiveFlush;
+    }
+
+    /**
+     * When enabled, messages are buffered while the send fiber has more work queued and written
+     * with a single socket write once the queue drains or a size/delay limit is reached.
+     */
+    public void setAdaptiveFlush(boolean adaptiveFlush) {
+        this.adaptiveFlush = adaptiveFlush;
+    }
+
+    public int getAdaptiveFlushMaxBytes() {
+        return adaptiveFlushMaxBytes;
+    }
+
+    public void setAdaptiveFlushMaxBytes(int adaptiveFlushMaxBytes) {
+        this.adaptiveFlushMaxBytes = adaptiveFlushMaxBytes;
+    }
+
+    public long getAdaptiveFlushMaxDelayInMicros() {
+        return adaptiveFlushMaxDelayInMicros;
+    }
+
+    public void setAdaptiveFlushMaxDelayInMicros(long adaptiveFlushMaxDelayInMicros) {
+        this.adaptiveFlushMaxDelayInMicros = adaptiveFlushMaxDelayInMicros;
+    }
+
+    public int getResumeWindowSize() {
+        return resumeWindowSize;
+    }
+
+    /**
+     * Number of recent data frames kept per session so a client that reconnects can resume without
+     * resubscribing or losing messages. Zero disables resume.
+     */
+    public void setResumeWindowSize(int resumeWindowSize) {
+        this.resumeWindowSize = resumeWindowSize;
+    }
+
+    public int getResumeGracePeriodInMs() {
+        return resumeGracePeriodInMs;
+    }
+
+    /**
+     * How long a disconnected resumable session is kept before it is closed.
+     */
+    public void setResumeGracePeriodInMs(int resumeGracePeriodInMs) {
+        this.resumeGracePeriodInMs = resumeGracePeriodInMs;
+    }
 }
@@ -5,8 +5,10 @@ import org.jetlang.fibers.Fiber;
 import org.jetlang.remote.core.ErrorHandler;
 import org.jetlang.remote.core.JetlangRemotingProtocol;
 import org.jetlang.remote.core.MsgTypes;
+import org.jetlang.remote.core.ReplayBuffer;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -15,9 +17,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> implements JetlangRemotingProtocol.Handler<R> {
 
-    private final MessageStreamWriter<W> socket;
+    private static final Charset tokenCharset = Charset.forName("US-ASCII");
+
+    //null while a resumable session is waiting for the client to reconnect.
+    private volatile MessageStreamWriter<W> socket;
     private final Fiber sendFiber;
     private final ErrorHandler errorHandler;
+    private final ReplayBuffer replay;
+    private final BufferedSerializer<W> frameSerializer;
     private final Set<String> subscriptions = Collections.synchronizedSet(new HashSet<String>());
     private volatile boolean loggedOut;
 
@@ -32,6 +39,22 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
         this.socket = socket;
         this.sendFiber = sendFiber;
         this.errorHandler = errorHandler;
+        this.replay = null;
+        this.frameSerializer = null;
+    }
+
+    /**
+     * Creates a resumable session. Data frames are sequenced and retained in the replay buffer so they can be
+     * resent to a client that reconnects with {@link #attach(SequencedMessageStreamWriter, long)}.
+     */
+    public JetlangStreamSession(Object id, SequencedMessageStreamWriter<W> socket, Fiber sendFiber, ErrorHandler errorHandler,
+                                ReplayBuffer replay, BufferedSerializer<W> frameSerializer) {
+        super(id);
+        this.socket = socket;
+        this.sendFiber = sendFiber;
+        this.errorHandler = errorHandler;
+        this.replay = replay;
+        this.frameSerializer = frameSerializer;
     }
 
     public void startHeartbeat(int interval, TimeUnit unit) {
@@ -64,31 +87,120 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
     @Override
     public void onSubscriptionRequest(String topic) {
         subscriptions.add(topic);
-        SubscriptionRequest.publish(new SessionTopic<W>(topic, this));
+        super.onSubscriptionRequest(topic);
     }
 
     @Override
     public void onUnsubscribeRequest(String top) {
         subscriptions.remove(top);
-        UnsubscribeRequest.publish(top);
+        super.onUnsubscribeRequest(top);
     }
 
-    private void write(final int byteToWrite) {
+    @Override
+    public void onResumeRequest(String token, long lastSequence) {
+        //resume is handled before the session is created, so this session cannot be resumed.
+        sendSessionToken("");
+    }
+
+    /**
+     * Tells the client which token to present when it reconnects. Must be the first frame sent.
+     */
+    public void sendSessionToken(final String token) {
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                final MessageStreamWriter<W> out = socket;
+                if (out != null) {
+                    try {
+                        out.writeSubscription(MsgTypes.SessionToken, token, tokenCharset);
+                    } catch (IOException e) {
+                        handleDisconnect(out, e);
+                    }
+                }
+            }
+        };
+        sendFiber.execute(r);
+    }
+
+    public boolean isResumable() {
+        return replay != null;
+    }
+
+    public boolean canResume(long lastSequence) {
+        return replay != null && replay.canReplayFrom(lastSequence);
+    }
+
+    /**
+     * Switches the session to a new connection and resends every frame after the given sequence.
+     * A previous connection that is still open is closed.
+     */
+    public void attach(final SequencedMessageStreamWriter<W> writer, final long lastSequence) {
         Runnable r = new Runnable() {
             @Override
             public void run() {
+                final MessageStreamWriter<W> previous = socket;
+                socket = writer;
+                if (previous != null) {
+                    previous.tryClose();
+                }
                 try {
-                    socket.writeByteAsInt(byteToWrite);
+                    writer.writeByteAsInt(MsgTypes.ResumeAccepted);
+                    final long last = replay.getLastSequence();
+                    for (long seq = lastSequence + 1; seq <= last; seq++) {
+                        final byte[] frame = replay.get(seq);
+                        if (frame == null) {
+                            //window moved past the client. it will get a new session on the next connect.
+                            writer.tryClose();
+                            return;
+                        }
+                        writer.writeSequenced(seq, frame);
+                    }
                 } catch (IOException e) {
-                    handleDisconnect(e);
+                    handleDisconnect(writer, e);
+                }
+            }
+        };
+        sendFiber.execute(r);
+    }
+
+    /**
+     * Stops writing to the connection. Frames published while detached are kept in the replay buffer.
+     */
+    public void detach(final MessageStreamWriter<W> writer) {
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                if (socket == writer) {
+                    socket = null;
+                }
+            }
+        };
+        sendFiber.execute(r);
+    }
+
+    public boolean isLoggedOut() {
+        return loggedOut;
+    }
+
+    private void write(final int byteToWrite) {
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                final MessageStreamWriter<W> out = socket;
+                if (out != null) {
+                    try {
+                        out.writeByteAsInt(byteToWrite);
+                    } catch (IOException e) {
+                        handleDisconnect(out, e);
+                    }
                 }
             }
         };
         sendFiber.execute(r);
     }
 
-    private void handleDisconnect(IOException e) {
-        socket.tryClose();
+    private void handleDisconnect(MessageStreamWriter<W> out, IOException e) {
+        out.tryClose();
         if (!loggedOut) {
             errorHandler.onException(e);
         }
@@ -96,13 +208,16 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
 
     @Override
     public void disconnect() {
-        socket.tryClose();
+        final MessageStreamWriter<W> out = socket;
+        if (out != null) {
+            out.tryClose();
+        }
     }
 
     @Override
     public void onLogout() {
         write(MsgTypes.Disconnect);
-        Logout.publish(new LogoutEvent());
+        super.onLogout();
         loggedOut = true;
         hbStopper.run();
     }
@@ -123,10 +238,17 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
             @Override
             public void run() {
                 if (subscriptions.contains(topic)) {
-                    try {
-                        socket.write(topic, msg);
-                    } catch (IOException e) {
-                        handleDisconnect(e);
+                    if (replay != null) {
+                        writeSequenced(frameSerializer.createArray(topic, msg));
+                        return;
+                    }
+                    final MessageStreamWriter<W> out = socket;
+                    if (out != null) {
+                        try {
+                            out.write(topic, msg);
+                        } catch (IOException e) {
+                            handleDisconnect(out, e);
+                        }
                     }
                 }
             }
@@ -150,10 +272,30 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
     }
 
     private void writeBytesOnSendFiberThread(byte[] data) {
-        try {
-            socket.writeBytes(data);
-        } catch (IOException e) {
-            handleDisconnect(e);
+        if (replay != null) {
+            writeSequenced(data);
+            return;
+        }
+        final MessageStreamWriter<W> out = socket;
+        if (out != null) {
+            try {
+                out.writeBytes(data);
+            } catch (IOException e) {
+                handleDisconnect(out, e);
+            }
+        }
+    }
+
+    private void writeSequenced(byte[] frame) {
+        final long seq = replay.add(frame);
+        //a session with a replay buffer is only given sequenced writers, by its constructor and attach
+        final SequencedMessageStreamWriter<W> out = (SequencedMessageStreamWriter<W>) socket;
+        if (out != null) {
+            try {
+                out.writeSequenced(seq, frame);
+            } catch (IOException e) {
+                handleDisconnect(out, e);
+            }
         }
     }
 
@@ -162,10 +304,13 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
         Runnable replyRunner = new Runnable() {
             @Override
             public void run() {
-                try {
-                    socket.writeReply(reqId, replyTopic, replyMsg);
-                } catch (IOException e) {
-                    handleDisconnect(e);
+                final MessageStreamWriter<W> out = socket;
+                if (out != null) {
+                    try {
+                        out.writeReply(reqId, replyTopic, replyMsg);
+                    } catch (IOException e) {
+                        handleDisconnect(out, e);
+                    }
                 }
             }
         };
@@ -16,6 +16,28 @@ public interface MessageStreamWriter<T> {
 
     void writeRequest(int reqId, String reqTopic, T req) throws IOException;
 
+    /**
+     * Encodes the message without writing it. It is written by the next write or {@link #flush()}.
+     * The default writes it at once.
+     */
+    default void bufferMessage(String topic, T msg) throws IOException {
+        write(topic, msg);
+    }
+
+    /**
+     * Encodes the request without writing it. It is written by the next write or {@link #flush()}.
+     * The default writes it at once.
+     */
+    default void bufferRequest(int reqId, String reqTopic, T req) throws IOException {
+        writeRequest(reqId, reqTopic, req);
+    }
+
+    /**
+     * Writes messages and requests encoded by the buffer methods.
+     */
+    default void flush() throws IOException {
+    }
+
     void writeBytes(byte[] bytes) throws IOException;
 
     boolean tryClose();
@@ -24,4 +46,10 @@ public interface MessageStreamWriter<T> {
 
     void writeSubscription(int msgType, String subject, Charset charset) throws IOException;
 
+    /**
+     * Writes bytes that are still buffered. Only needed before blocking on the send thread.
+     */
+    default void flushBuffered() throws IOException {
+    }
+
 }
@@ -9,31 +9,67 @@ import java.net.InetSocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
 
 public class NioAcceptorHandler implements NioChannelHandler {
 
     private final ServerSocketChannel channel;
     private final ClientFactory clientHandler;
     private final Runnable onEnd;
+    private final AdmissionControl admission;
 
     public NioAcceptorHandler(ServerSocketChannel channel, ClientFactory clientHandler, Runnable onEnd) {
+        this(channel, clientHandler, onEnd, null);
+    }
+
+    /**
+     * @param admission limits accepted connections. may be null.
+     */
+    public NioAcceptorHandler(ServerSocketChannel channel, ClientFactory clientHandler, Runnable onEnd, AdmissionControl admission) {
         this.channel = channel;
         this.clientHandler = clientHandler;
         this.onEnd = onEnd;
+        this.admission = admission;
     }
 
     public interface ClientFactory {
 
         void onAccept(NioFiber fiber, NioControls controls, SelectionKey key, SocketChannel channel);
 
+        /**
+         * Starts the client and runs onClose once its channel has closed. Used with {@link AdmissionControl} to
+         * release the connection's slot. This default never runs onClose.
+         */
+        default void onAccept(NioFiber fiber, NioControls controls, SelectionKey key, SocketChannel channel, Runnable onClose) {
+            onAccept(fiber, controls, key, channel);
+        }
     }
 
     @Override
     public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
         try {
+            if (admission != null) {
+                long delay = admission.delayBeforeAccept(System.nanoTime());
+                if (delay > 0) {
+                    pauseAccepting(nioFiber, key, delay);
+                    return Result.Continue;
+                }
+            }
             final SocketChannel accept = channel.accept();
+            if (admission == null || accept == null) {
+                if (afterAccept(accept)) {
+                    clientHandler.onAccept(nioFiber, controls, key, accept);
+                }
+                return Result.Continue;
+            }
+            if (!admission.admit(accept, accept.socket().getInetAddress(), System.nanoTime())) {
+                accept.close();
+                return Result.Continue;
+            }
             if (afterAccept(accept)) {
-                clientHandler.onAccept(nioFiber, controls, key, accept);
+                clientHandler.onAccept(nioFiber, controls, key, accept, () -> admission.release(accept));
+            } else {
+                admission.release(accept);
             }
             return Result.Continue;
         } catch (IOException e) {
@@ -41,6 +77,22 @@ public class NioAcceptorHandler implements NioChannelHandler {
         }
     }
 
+    /**
+     * Stops selecting for accepts so pending connections wait in the backlog instead of spinning the selector.
+     */
+    private void pauseAccepting(NioFiber nioFiber, final SelectionKey key, long delayInNanos) {
+        key.interestOps(0);
+        Runnable resume = new Runnable() {
+            @Override
+            public void run() {
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_ACCEPT);
+                }
+            }
+        };
+        nioFiber.schedule(resume, delayInNanos, TimeUnit.NANOSECONDS);
+    }
+
     protected boolean afterAccept(SocketChannel accept) {
         return true;
     }
@@ -75,6 +127,10 @@ public class NioAcceptorHandler implements NioChannelHandler {
     }
 
     public static NioAcceptorHandler create(int port, ClientFactory clientHandler, Runnable onEnd, int backlogmax) {
+        return create(port, clientHandler, onEnd, backlogmax, null);
+    }
+
+    public static NioAcceptorHandler create(int port, ClientFactory clientHandler, Runnable onEnd, int backlogmax, AdmissionControl admission) {
         try {
             final ServerSocketChannel socketChannel = ServerSocketChannel.open();
             final InetSocketAddress address = new InetSocketAddress(port);
@@ -85,7 +141,7 @@ public class NioAcceptorHandler implements NioChannelHandler {
 
             }
             socketChannel.configureBlocking(false);
-            return new NioAcceptorHandler(socketChannel, clientHandler, onEnd);
+            return new NioAcceptorHandler(socketChannel, clientHandler, onEnd, admission);
         } catch (Exception failed) {
             throw new RuntimeException(failed);
         }
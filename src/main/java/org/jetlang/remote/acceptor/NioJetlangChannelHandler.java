@@ -48,6 +48,7 @@ public class NioJetlangChannelHandler<T> implements NioChannelHandler {
                         while (buffer.remaining() >= nextCommand.getRequiredBytes()) {
                             nextCommand = nextCommand.run();
                         }
+                        protocol.onReadComplete();
                         buffer.compact();
                         if (nextCommand.getRequiredBytes() > buffer.capacity()) {
                             protocol.resizeBuffer(nextCommand.getRequiredBytes());
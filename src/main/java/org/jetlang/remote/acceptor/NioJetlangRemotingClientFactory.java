@@ -47,9 +47,16 @@ public class NioJetlangRemotingClientFactory<R, W> implements NioAcceptorHandler
 
     @Override
     public void onAccept(NioFiber fiber, NioControls controls, SelectionKey key, SocketChannel channel) {
+        onAccept(fiber, controls, key, channel, () -> {
+        });
+    }
+
+    @Override
+    public void onAccept(NioFiber fiber, NioControls controls, SelectionKey key, SocketChannel channel, Runnable onChannelClose) {
         try {
             handler.configureAcceptedClient(key, channel);
         } catch (SocketException e) {
+            onChannelClose.run();
             throw new RuntimeException(e);
         }
         Hb hb = new Hb();
@@ -71,6 +78,7 @@ public class NioJetlangRemotingClientFactory<R, W> implements NioAcceptorHandler
         });
         Runnable onClose = () -> {
             hb.onClose();
+            onChannelClose.run();
             session.onClose(new SessionCloseEvent());
         };
         final NioJetlangChannelHandler<R> handler = new NioJetlangChannelHandler<R>(channel, session, serializer.getReader(), onClose, charset);
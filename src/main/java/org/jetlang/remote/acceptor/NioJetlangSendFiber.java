@@ -28,10 +28,12 @@ public class NioJetlangSendFiber<T> {
     private final Writer writer;
     private final SocketMessageStreamWriter<T> stream;
     private final Buffer buffer;
+    private final Charset charset;
     private final List<ChannelState> sessions = new ArrayList<>();
 
     public NioJetlangSendFiber(Fiber sendFiber, NioFiber receiveFiber, ObjectByteWriter<T> objectByteWriter, Charset charset, NioFiberImpl.OnBuffer ob) {
         this.sendFiber = sendFiber;
+        this.charset = charset;
         this.buffer = new Buffer(receiveFiber, sendFiber, ob);
         this.writer = new Writer(buffer);
         this.stream = new SocketMessageStreamWriter<T>(this.writer, charset, objectByteWriter);
@@ -138,6 +140,21 @@ public class NioJetlangSendFiber<T> {
         }
     }
 
+    /**
+     * Replies to a resume request. Sessions on this acceptor are not resumable, so the token is always empty and the
+     * client starts a fresh session.
+     */
+    public void sendSessionToken(ChannelState channel, String token) {
+        sendFiber.execute(() -> {
+            set(channel);
+            try {
+                stream.writeSubscription(MsgTypes.SessionToken, token, charset);
+            } catch (IOException e) {
+                handleDisconnect(e, channel);
+            }
+        });
+    }
+
     private void set(ChannelState channel) {
         writer.channel = channel;
         buffer.session = channel;
@@ -0,0 +1,17 @@
+package org.jetlang.remote.acceptor;
+
+import java.io.IOException;
+
+/**
+ * A writer that can carry a resumable session: data frames are sent with their sequence, and a reconnecting
+ * client asks to resume from the last sequence it received.
+ */
+public interface SequencedMessageStreamWriter<T> extends MessageStreamWriter<T> {
+
+    /**
+     * Writes a sequence header followed by an already encoded frame.
+     */
+    void writeSequenced(long sequence, byte[] frame) throws IOException;
+
+    void writeResumeRequest(String token, long lastSequence) throws IOException;
+}
@@ -0,0 +1,124 @@
+package org.jetlang.remote.acceptor;
+
+/**
+ * Receives session events directly on the thread that reads from the socket. No event objects are
+ * allocated and no executor is involved, so implementations must be fast and must not block. Exceptions
+ * thrown from a callback are passed to the session error handler.
+ * <p>
+ * The session channels are built on top of this interface, so events are still published to any
+ * subscribed channels after the listener returns.
+ */
+public interface SessionListener<R> {
+
+    default void onMessage(String topic, R msg) {
+    }
+
+    /**
+     * Reply with {@link JetlangSession#reply(int, String, Object)} using the same request id.
+     */
+    default void onRequest(int reqId, String reqTopic, R req) {
+    }
+
+    default void onSubscriptionRequest(String topic) {
+    }
+
+    default void onUnsubscribeRequest(String topic) {
+    }
+
+    default void onHeartbeat() {
+    }
+
+    default void onLogout() {
+    }
+
+    default void onReadTimeout() {
+    }
+
+    /**
+     * Invoked after all messages decoded from a single socket read have been delivered.
+     */
+    default void onReadComplete() {
+    }
+
+    default void onClose() {
+    }
+
+    /**
+     * @return a listener that passes each event to first and then to second, even if first throws
+     */
+    static <R> SessionListener<R> chain(final SessionListener<R> first, final SessionListener<R> second) {
+        return new SessionListener<R>() {
+            public void onMessage(String topic, R msg) {
+                try {
+                    first.onMessage(topic, msg);
+                } finally {
+                    second.onMessage(topic, msg);
+                }
+            }
+
+            public void onRequest(int reqId, String reqTopic, R req) {
+                try {
+                    first.onRequest(reqId, reqTopic, req);
+                } finally {
+                    second.onRequest(reqId, reqTopic, req);
+                }
+            }
+
+            public void onSubscriptionRequest(String topic) {
+                try {
+                    first.onSubscriptionRequest(topic);
+                } finally {
+                    second.onSubscriptionRequest(topic);
+                }
+            }
+
+            public void onUnsubscribeRequest(String topic) {
+                try {
+                    first.onUnsubscribeRequest(topic);
+                } finally {
+                    second.onUnsubscribeRequest(topic);
+                }
+            }
+
+            public void onHeartbeat() {
+                try {
+                    first.onHeartbeat();
+                } finally {
+                    second.onHeartbeat();
+                }
+            }
+
+            public void onLogout() {
+                try {
+                    first.onLogout();
+                } finally {
+                    second.onLogout();
+                }
+            }
+
+            public void onReadTimeout() {
+                try {
+                    first.onReadTimeout();
+                } finally {
+                    second.onReadTimeout();
+                }
+            }
+
+            public void onReadComplete() {
+                try {
+                    first.onReadComplete();
+                } finally {
+                    second.onReadComplete();
+                }
+            }
+
+            public void onClose() {
+                try {
+                    first.onClose();
+                } finally {
+                    second.onClose();
+                }
+            }
+        };
+    }
+}
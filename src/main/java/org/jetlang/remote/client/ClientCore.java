@@ -0,0 +1,590 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.channels.Channel;
+import org.jetlang.channels.Subscribable;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.remote.acceptor.MessageStreamWriter;
+import org.jetlang.remote.core.MsgTypes;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Requests, subscriptions and dead messages of a client, shared by {@link JetlangTcpClient} and
+ * {@link NioJetlangTcpClient}. The client supplies the writer of its current connection and handles write
+ * failures. Everything that writes runs on the client's send fiber.
+ */
+abstract class ClientCore<R, W> {
+
+    private static final Charset charset = Charset.forName("US-ASCII");
+
+    private final Fiber sendFiber;
+    private final JetlangClientConfig config;
+    private final ClientLatencyStats latencyStats;
+    private final Channel<DeadMessageEvent<W>> deadMessages;
+    private final AtomicInteger reqId = new AtomicInteger();
+    private final PendingRequests<Req> pendingRequests;
+    //only accessed on the send fiber
+    private final List<Req> expiredRequests = new ArrayList<Req>();
+    //only accessed on the send fiber. scheduled while a pending request has a deadline.
+    private Disposable requestTimeouts;
+    private boolean closed;
+    //read without a lock on the read thread. changes are made while holding the map's lock.
+    private final ConcurrentHashMap<String, RemoteSubscription> remoteSubscriptions = new ConcurrentHashMap<String, RemoteSubscription>();
+
+    private final SocketWriter<W> socketWriter = new SocketWriter<W>() {
+        @Override
+        public boolean send(String topic, W msg) {
+            final MessageStreamWriter<W> writer = canSendMessages() ? getWriter() : null;
+            if (writer != null) {
+                try {
+                    writer.write(topic, msg);
+                    return true;
+                } catch (IOException e) {
+                    onUnsent(topic, msg);
+                    onWriteFailure(e);
+                }
+            } else {
+                onUnsent(topic, msg);
+            }
+            return false;
+        }
+    };
+
+    ClientCore(Fiber sendFiber, JetlangClientConfig config, ClientLatencyStats latencyStats, Channel<DeadMessageEvent<W>> deadMessages) {
+        this.sendFiber = sendFiber;
+        this.config = config;
+        this.latencyStats = latencyStats;
+        this.deadMessages = deadMessages;
+        this.pendingRequests = new PendingRequests<Req>(config.getRequestTimeoutTickInMs(), System.currentTimeMillis());
+    }
+
+    /**
+     * @return the writer of the current connection, or null while not connected. Called on the send fiber.
+     */
+    abstract MessageStreamWriter<W> getWriter();
+
+    /**
+     * Called on the send fiber when a write to the current connection fails.
+     */
+    abstract void onWriteFailure(IOException e);
+
+    /**
+     * Runs work that writes on the send fiber.
+     */
+    void executeSend(Runnable send) {
+        sendFiber.execute(send);
+    }
+
+    /**
+     * @return false while messages must not be written to a connected writer
+     */
+    boolean canSendMessages() {
+        return true;
+    }
+
+    /**
+     * @return false while subscriptions must not be written to a connected writer
+     */
+    boolean canSendSubscriptions() {
+        return true;
+    }
+
+    /**
+     * Called with a message that could not be written. Publishes it to the dead message channel.
+     */
+    void onUnsent(String topic, W msg) {
+        deadMessages.publish(new DeadMessageEvent<W>(topic, msg));
+    }
+
+    /**
+     * Called when an unsubscribe could not be written.
+     */
+    void onUnsubscribeNotSent(String topic) {
+    }
+
+    SocketWriter<W> getSocketWriter() {
+        return socketWriter;
+    }
+
+    private static final Subscription[] noSubscriptions = new Subscription[0];
+
+    /**
+     * Subscribers to one remote topic. Changes are made under the remoteSubscriptions lock and publish a new
+     * array, so the read thread dispatches without taking a lock.
+     */
+    private class RemoteSubscription {
+        private final String topic;
+        private volatile Subscription[] subscriptions = noSubscriptions;
+        //only accessed on the send fiber
+        private boolean subscriptionSent = false;
+        private final Callback<Subscription> onDispose = new Callback<Subscription>() {
+            @Override
+            public void onMessage(Subscription subscription) {
+                remove(subscription);
+            }
+        };
+
+        public RemoteSubscription(String topic) {
+            this.topic = topic;
+        }
+
+        public Disposable subscribe(Subscribable<?> callback) {
+            final Subscription subscription = new Subscription(callback, onDispose);
+            final Subscription[] current = subscriptions;
+            final Subscription[] added = Arrays.copyOf(current, current.length + 1);
+            added[current.length] = subscription;
+            subscriptions = added;
+            callback.getQueue().add(subscription);
+
+            executeSend(new Runnable() {
+                @Override
+                public void run() {
+                    if (!subscriptionSent) {
+                        subscriptionSent = sendSubscription(topic, MsgTypes.Subscription);
+                    }
+                }
+            });
+            return subscription;
+        }
+
+        private void remove(Subscription subscription) {
+            synchronized (remoteSubscriptions) {
+                final Subscription[] current = subscriptions;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == subscription) {
+                        final Subscription[] removed = new Subscription[current.length - 1];
+                        System.arraycopy(current, 0, removed, 0, i);
+                        System.arraycopy(current, i + 1, removed, i, removed.length - i);
+                        subscriptions = removed;
+                        break;
+                    }
+                }
+            }
+            executeSend(new Runnable() {
+                @Override
+                public void run() {
+                    unsubscribeIfNecessary();
+                }
+            });
+        }
+
+        private void unsubscribeIfNecessary() {
+            synchronized (remoteSubscriptions) {
+                if (subscriptions.length == 0 && remoteSubscriptions.get(topic) == this) {
+                    if (subscriptionSent) {
+                        sendUnsubscribe(topic);
+                    }
+
+                    remoteSubscriptions.remove(topic);
+                }
+            }
+        }
+
+        public void publish(Object object) {
+            final Subscription[] current = subscriptions;
+            for (int i = 0; i < current.length; i++) {
+                //noinspection unchecked
+                current[i].callback.onMessage(object);
+            }
+        }
+
+        public void onConnect() {
+            subscriptionSent = sendSubscription(topic, MsgTypes.Subscription);
+        }
+
+        public void onResume() {
+            if (!subscriptionSent) {
+                onConnect();
+            }
+        }
+
+        public void close() {
+            for (Subscription subscription : subscriptions) {
+                subscription.callback.getQueue().remove(subscription);
+            }
+            subscriptions = noSubscriptions;
+        }
+    }
+
+    private static class Subscription implements Disposable {
+        private final Subscribable callback;
+        private final Callback<Subscription> onDispose;
+        private final AtomicBoolean disposed = new AtomicBoolean(false);
+
+        public Subscription(Subscribable<?> callback, Callback<Subscription> onDispose) {
+            this.callback = callback;
+            this.onDispose = onDispose;
+        }
+
+        @Override
+        public void dispose() {
+            if (disposed.compareAndSet(false, true)) {
+                callback.getQueue().remove(this);
+                onDispose.onMessage(this);
+            }
+        }
+    }
+
+    <T extends R> Disposable subscribe(String subject, Subscribable<T> callback) {
+        synchronized (remoteSubscriptions) {
+            RemoteSubscription remoteSubscription = remoteSubscriptions.get(subject);
+            if (remoteSubscription == null) {
+                remoteSubscription = new RemoteSubscription(subject);
+                remoteSubscriptions.put(subject, remoteSubscription);
+            }
+            return remoteSubscription.subscribe(callback);
+        }
+    }
+
+    void publishData(String topic, R object) {
+        final RemoteSubscription subscription = remoteSubscriptions.get(topic);
+        if (subscription != null) {
+            subscription.publish(object);
+        }
+    }
+
+    /**
+     * Sends every subscription on a new connection.
+     */
+    void sendSubscriptions() {
+        synchronized (remoteSubscriptions) {
+            for (RemoteSubscription subscription : remoteSubscriptions.values()) {
+                subscription.onConnect();
+            }
+        }
+    }
+
+    /**
+     * Sends the subscriptions a resumed session does not already have.
+     */
+    void resendSubscriptions() {
+        synchronized (remoteSubscriptions) {
+            for (RemoteSubscription subscription : remoteSubscriptions.values()) {
+                subscription.onResume();
+            }
+        }
+    }
+
+    void sendUnsubscribe(String topic) {
+        if (!sendSubscription(topic, MsgTypes.Unsubscribe)) {
+            onUnsubscribeNotSent(topic);
+        }
+    }
+
+    private boolean sendSubscription(String subject, int msgType) {
+        final MessageStreamWriter<W> writer = canSendSubscriptions() ? getWriter() : null;
+        if (writer != null) {
+            try {
+                writer.writeSubscription(msgType, subject, charset);
+                return true;
+            } catch (IOException e) {
+                onWriteFailure(e);
+            }
+        }
+        return false;
+    }
+
+    void publishReply(int id, R reply) {
+        final Req r;
+        synchronized (pendingRequests) {
+            r = pendingRequests.remove(id);
+        }
+        if (r != null) {
+            if (r.sentNanos != 0) {
+                latencyStats.recordRequestReply(r.topic, System.nanoTime() - r.sentNanos);
+            }
+            //noinspection unchecked
+            r.onReply(reply);
+        }
+    }
+
+    /**
+     * Called on the send fiber once the connection is gone. Replies are never sent on a later connection, so
+     * futures waiting on this one would otherwise never complete.
+     */
+    void onDisconnect(CloseEvent closeCause) {
+        final List<Req> outstanding = new ArrayList<Req>();
+        synchronized (pendingRequests) {
+            pendingRequests.values(outstanding);
+        }
+        IOException failed = null;
+        for (int i = 0; i < outstanding.size(); i++) {
+            final Req r = outstanding.get(i);
+            if (r instanceof FutureReq) {
+                if (failed == null) {
+                    failed = closeCause instanceof CloseEvent.IOExceptionEvent
+                            ? new IOException("Connection lost", ((CloseEvent.IOExceptionEvent) closeCause).getException())
+                            : new IOException("Connection closed");
+                }
+                ((FutureReq) r).fail(failed);
+            }
+        }
+    }
+
+    /**
+     * Called on the send fiber when the client closes. Stops request timeouts and detaches every subscriber.
+     */
+    void close() {
+        closed = true;
+        if (requestTimeouts != null) {
+            requestTimeouts.dispose();
+            requestTimeouts = null;
+        }
+        synchronized (remoteSubscriptions) {
+            for (RemoteSubscription subscription : remoteSubscriptions.values()) {
+                subscription.close();
+            }
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<ClientCore.Req> reqDisposed = AtomicIntegerFieldUpdater.newUpdater(ClientCore.Req.class, "disposed");
+
+    private class Req<T> implements Disposable, TimeoutControls {
+        final int id;
+        final DisposingExecutor fiber;
+        final Callback<T> cb;
+        final Callback<TimeoutControls> timeoutCallback;
+        volatile int disposed;
+        //only accessed on the send fiber
+        boolean sent;
+        //set before the request is added to the pending table
+        String topic;
+        long sentNanos;
+
+        public Req(int id, DisposingExecutor fiber, Callback<T> cb, Callback<TimeoutControls> timeoutCallback) {
+            this.id = id;
+            this.fiber = fiber;
+            this.cb = cb;
+            this.timeoutCallback = timeoutCallback;
+        }
+
+        public void onReply(final T reply) {
+            if (disposed == 0) {
+                Runnable run = new Runnable() {
+                    public void run() {
+                        if (reqDisposed.compareAndSet(Req.this, 0, 1)) {
+                            cb.onMessage(reply);
+                        }
+                    }
+                };
+                fiber.execute(run);
+            }
+        }
+
+        public void onTimeout() {
+            if (disposed != 0 || !sent) {
+                removeRequest(id);
+            }
+            if (disposed == 0) {
+                timeoutCallback.onMessage(this);
+            }
+        }
+
+        public void cancelRequest() {
+            disposed = 1;
+            removeRequest(id);
+        }
+
+        public void dispose() {
+            disposed = 1;
+        }
+    }
+
+    /**
+     * Completes a future instead of calling back on a fiber.
+     */
+    private class FutureReq<T> extends Req<T> {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        public FutureReq(int id) {
+            super(id, null, null, null);
+        }
+
+        @Override
+        public void onReply(T reply) {
+            if (reqDisposed.compareAndSet(this, 0, 1)) {
+                complete(reply, null);
+            }
+        }
+
+        @Override
+        public void onTimeout() {
+            if (reqDisposed.compareAndSet(this, 0, 1)) {
+                removeRequest(id);
+                complete(null, new TimeoutException("Request " + id + " timed out"));
+            }
+        }
+
+        public void fail(Throwable failed) {
+            if (reqDisposed.compareAndSet(this, 0, 1)) {
+                removeRequest(id);
+                complete(null, failed);
+            }
+        }
+
+        private void complete(final T reply, final Throwable failed) {
+            final Executor executor = config.getReplyExecutor();
+            if (executor == null) {
+                completeNow(reply, failed);
+            } else {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        completeNow(reply, failed);
+                    }
+                });
+            }
+        }
+
+        private void completeNow(T reply, Throwable failed) {
+            if (failed != null) {
+                future.completeExceptionally(failed);
+            } else {
+                future.complete(reply);
+            }
+        }
+    }
+
+    private void removeRequest(int id) {
+        synchronized (pendingRequests) {
+            pendingRequests.remove(id);
+        }
+    }
+
+    private final Runnable expireRequests = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (pendingRequests) {
+                pendingRequests.expire(System.currentTimeMillis(), expiredRequests);
+            }
+            for (int i = 0; i < expiredRequests.size(); i++) {
+                expiredRequests.get(i).onTimeout();
+            }
+            expiredRequests.clear();
+            synchronized (pendingRequests) {
+                if (pendingRequests.hasDeadlines()) {
+                    return;
+                }
+            }
+            if (requestTimeouts != null) {
+                requestTimeouts.dispose();
+                requestTimeouts = null;
+            }
+        }
+    };
+
+    /**
+     * Starts advancing the timer wheel, if it is not already. Called on the send fiber after adding a deadline.
+     */
+    private void scheduleRequestTimeouts() {
+        if (requestTimeouts == null && !closed) {
+            final long tick = config.getRequestTimeoutTickInMs();
+            requestTimeouts = sendFiber.scheduleWithFixedDelay(expireRequests, tick, tick, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    <T extends W, C extends R> Disposable request(final String reqTopic,
+                                                  final T req,
+                                                  final DisposingExecutor executor, final Callback<C> callback,
+                                                  final Callback<TimeoutControls> timeoutRunnable, int timeout, TimeUnit timeUnit) {
+        final boolean timed = timeout > 0 && callback != null;
+        final long deadline = timed ? System.currentTimeMillis() + Math.max(1, timeUnit.toMillis(timeout)) : 0;
+        final Req<C> r = new Req<C>(reqId.incrementAndGet(), executor, callback, timeoutRunnable);
+        Runnable reqSend = new Runnable() {
+            public void run() {
+                if (r.disposed == 0) {
+                    final MessageStreamWriter<W> writer = getWriter();
+                    r.sent = writer != null;
+                    r.topic = reqTopic;
+                    r.sentNanos = System.nanoTime();
+                    //unsent requests are still added so they time out
+                    if (r.sent || timed) {
+                        synchronized (pendingRequests) {
+                            pendingRequests.put(r.id, r, deadline);
+                        }
+                        if (timed) {
+                            scheduleRequestTimeouts();
+                        }
+                    }
+                    if (r.sent) {
+                        try {
+                            writer.writeRequest(r.id, reqTopic, req);
+                        } catch (IOException e) {
+                            r.sent = false;
+                            if (!timed) {
+                                removeRequest(r.id);
+                            }
+                            onWriteFailure(e);
+                        }
+                    }
+                }
+            }
+        };
+        executeSend(reqSend);
+        return r;
+    }
+
+    <C extends R> List<CompletableFuture<C>> requestAll(final String reqTopic, final List<? extends W> reqs, long timeout, TimeUnit timeUnit) {
+        final long deadline = timeout > 0 ? System.currentTimeMillis() + Math.max(1, timeUnit.toMillis(timeout)) : 0;
+        final List<FutureReq<C>> pending = new ArrayList<FutureReq<C>>(reqs.size());
+        final List<CompletableFuture<C>> futures = new ArrayList<CompletableFuture<C>>(reqs.size());
+        for (int i = 0; i < reqs.size(); i++) {
+            final FutureReq<C> r = new FutureReq<C>(reqId.incrementAndGet());
+            pending.add(r);
+            futures.add(r.future);
+        }
+        Runnable reqSend = new Runnable() {
+            public void run() {
+                final MessageStreamWriter<W> writer = getWriter();
+                if (writer == null) {
+                    final IOException notConnected = new IOException("Not connected");
+                    for (int i = 0; i < pending.size(); i++) {
+                        pending.get(i).fail(notConnected);
+                    }
+                    return;
+                }
+                final long sentNanos = System.nanoTime();
+                synchronized (pendingRequests) {
+                    for (int i = 0; i < pending.size(); i++) {
+                        final FutureReq<C> r = pending.get(i);
+                        r.sent = true;
+                        r.topic = reqTopic;
+                        r.sentNanos = sentNanos;
+                        pendingRequests.put(r.id, r, deadline);
+                    }
+                }
+                if (deadline > 0) {
+                    scheduleRequestTimeouts();
+                }
+                try {
+                    for (int i = 0; i < pending.size(); i++) {
+                        writer.bufferRequest(pending.get(i).id, reqTopic, reqs.get(i));
+                    }
+                    writer.flush();
+                } catch (IOException e) {
+                    for (int i = 0; i < pending.size(); i++) {
+                        pending.get(i).fail(e);
+                    }
+                    onWriteFailure(e);
+                }
+            }
+        };
+        executeSend(reqSend);
+        return futures;
+    }
+}
@@ -0,0 +1,145 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.remote.core.LatencyHistogram;
+
+import java.util.Arrays;
+
+/**
+ * Latency histograms kept by a client. Request and publish latencies can also be broken down by topic
+ * prefix. A value is added to the histogram of the longest registered prefix that matches its topic.
+ */
+public class ClientLatencyStats {
+
+    private final LatencyHistogram requestReply = new LatencyHistogram();
+    private final LatencyHistogram publishWrite = new LatencyHistogram();
+    private final LatencyHistogram heartbeatGap = new LatencyHistogram();
+    private final LatencyHistogram reconnect = new LatencyHistogram();
+    private volatile TopicPrefix[] prefixes = new TopicPrefix[0];
+
+    private static class TopicPrefix {
+        final String prefix;
+        final LatencyHistogram requestReply = new LatencyHistogram();
+        final LatencyHistogram publishWrite = new LatencyHistogram();
+
+        TopicPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * Starts a breakdown for topics that start with the prefix.
+     */
+    public synchronized void addTopicPrefix(String prefix) {
+        if (find(prefix, prefixes, true) == null) {
+            final TopicPrefix[] added = Arrays.copyOf(prefixes, prefixes.length + 1);
+            added[prefixes.length] = new TopicPrefix(prefix);
+            prefixes = added;
+        }
+    }
+
+    private static TopicPrefix find(String topic, TopicPrefix[] prefixes, boolean exact) {
+        TopicPrefix match = null;
+        for (TopicPrefix p : prefixes) {
+            if (exact ? topic.equals(p.prefix) : topic.startsWith(p.prefix)) {
+                if (match == null || p.prefix.length() > match.prefix.length()) {
+                    match = p;
+                }
+            }
+        }
+        return match;
+    }
+
+    void recordRequestReply(String topic, long nanos) {
+        requestReply.record(nanos);
+        final TopicPrefix p = find(topic, prefixes, false);
+        if (p != null) {
+            p.requestReply.record(nanos);
+        }
+    }
+
+    void recordPublishWrite(String topic, long nanos) {
+        publishWrite.record(nanos);
+        final TopicPrefix p = find(topic, prefixes, false);
+        if (p != null) {
+            p.publishWrite.record(nanos);
+        }
+    }
+
+    void recordHeartbeatGap(long nanos) {
+        heartbeatGap.record(nanos);
+    }
+
+    void recordReconnect(long nanos) {
+        reconnect.record(nanos);
+    }
+
+    /**
+     * Time from sending a request to reading its reply.
+     */
+    public LatencyHistogram getRequestReply() {
+        return requestReply;
+    }
+
+    /**
+     * Time from publishing a message to writing it to the socket stream, including the wait on the send fiber.
+     */
+    public LatencyHistogram getPublishWrite() {
+        return publishWrite;
+    }
+
+    /**
+     * Time between heartbeats received from the server. Gaps well over the heartbeat interval show stalls on
+     * the network or either side.
+     */
+    public LatencyHistogram getHeartbeatGap() {
+        return heartbeatGap;
+    }
+
+    /**
+     * Time from losing a connection to connecting again.
+     */
+    public LatencyHistogram getReconnect() {
+        return reconnect;
+    }
+
+    /**
+     * @return the histogram for a registered prefix, or null
+     */
+    public LatencyHistogram getRequestReply(String prefix) {
+        final TopicPrefix p = find(prefix, prefixes, true);
+        return p != null ? p.requestReply : null;
+    }
+
+    /**
+     * @return the histogram for a registered prefix, or null
+     */
+    public LatencyHistogram getPublishWrite(String prefix) {
+        final TopicPrefix p = find(prefix, prefixes, true);
+        return p != null ? p.publishWrite : null;
+    }
+
+    public void reset() {
+        requestReply.reset();
+        publishWrite.reset();
+        heartbeatGap.reset();
+        reconnect.reset();
+        for (TopicPrefix p : prefixes) {
+            p.requestReply.reset();
+            p.publishWrite.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("ClientLatencyStats{")
+                .append("requestReply=").append(requestReply)
+                .append(", publishWrite=").append(publishWrite)
+                .append(", heartbeatGap=").append(heartbeatGap)
+                .append(", reconnect=").append(reconnect);
+        for (TopicPrefix p : prefixes) {
+            builder.append(", ").append(p.prefix).append("{requestReply=").append(p.requestReply)
+                    .append(", publishWrite=").append(p.publishWrite).append('}');
+        }
+        return builder.append('}').toString();
+    }
+}
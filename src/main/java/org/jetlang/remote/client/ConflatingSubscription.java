@@ -0,0 +1,62 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.channels.Subscribable;
+import org.jetlang.core.Callback;
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps only the latest message pending for a subscriber. A message that arrives while the previous one is
+ * still waiting for the executor replaces it, so a slow subscriber sees the latest value instead of a growing
+ * backlog. At most one task is queued on the executor at a time and no task is allocated per message.
+ * <p>
+ * Use with {@link JetlangClient#subscribe(String, Subscribable)} on any client.
+ */
+public class ConflatingSubscription<T> implements Subscribable<T> {
+
+    private static final Object none = new Object();
+
+    private final DisposingExecutor executor;
+    private final Callback<T> callback;
+    private final AtomicReference<Object> pending = new AtomicReference<Object>(none);
+    private final LongAdder conflated = new LongAdder();
+
+    private final Runnable deliver = new Runnable() {
+        @Override
+        public void run() {
+            final Object msg = pending.getAndSet(none);
+            if (msg != none) {
+                //noinspection unchecked
+                callback.onMessage((T) msg);
+            }
+        }
+    };
+
+    public ConflatingSubscription(DisposingExecutor executor, Callback<T> callback) {
+        this.executor = executor;
+        this.callback = callback;
+    }
+
+    @Override
+    public DisposingExecutor getQueue() {
+        return executor;
+    }
+
+    @Override
+    public void onMessage(T message) {
+        if (pending.getAndSet(message) == none) {
+            executor.execute(deliver);
+        } else {
+            conflated.increment();
+        }
+    }
+
+    /**
+     * @return messages replaced by a newer message before they were delivered
+     */
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+}
@@ -3,15 +3,25 @@ package org.jetlang.remote.client;
 import org.jetlang.remote.core.TopicReader;
 
 import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 public class JetlangClientConfig {
     private int hbIntervalInMs = 2000;
     private long initialConnectDelayInMs = 0;
     private long reconnectDelayInMs = 2000;
+    private long reconnectMaxDelayInMs = 0;
+    private double reconnectJitter = 0;
     private long logoutTimeout = 60;
     private TimeUnit logoutTimeoutUnit = TimeUnit.SECONDS;
     private boolean cacheTopics = true;
+    private boolean adaptiveFlush = false;
+    private int adaptiveFlushMaxBytes = 1024 * 64;
+    private long adaptiveFlushMaxDelayInMicros = 1000;
+    private boolean sessionResume = false;
+    private long requestTimeoutTickInMs = 10;
+    private Executor replyExecutor = null;
+    private int maxPendingWriteBytes = 64 * 1024 * 1024;
 
     public void setHeartbeatIntervalInMs(int ms) {
         this.hbIntervalInMs = ms;
@@ -37,6 +47,30 @@ public class JetlangClientConfig {
         this.reconnectDelayInMs = reconnectDelayInMs;
     }
 
+    public long getReconnectMaxDelayInMs() {
+        return reconnectMaxDelayInMs;
+    }
+
+    /**
+     * When greater than the reconnect delay, the delay doubles after each failed connect up to this limit.
+     * It drops back to the reconnect delay once connected.
+     */
+    public void setReconnectMaxDelayInMs(long reconnectMaxDelayInMs) {
+        this.reconnectMaxDelayInMs = reconnectMaxDelayInMs;
+    }
+
+    public double getReconnectJitter() {
+        return reconnectJitter;
+    }
+
+    /**
+     * Fraction of each reconnect delay, from 0 to 1, that is randomly taken off so clients that lost the same
+     * server do not all reconnect at the same moment.
+     */
+    public void setReconnectJitter(double reconnectJitter) {
+        this.reconnectJitter = reconnectJitter;
+    }
+
     public long getLogoutLatchTimeout() {
         return logoutTimeout;
     }
@@ -64,4 +98,78 @@ public class JetlangClientConfig {
     public TopicReader createTopicReader(Charset charset) {
         return cacheTopics ? new TopicReader.Cached(charset) : new TopicReader.Default(charset);
     }
+
+    public boolean isAdaptiveFlush() {
+        return adaptiveFlush;
+    }
+
+    /**
+     * When enabled, messages are buffered while the send fiber has more work queued and written
+     * with a single socket write once the queue drains or a size/delay limit is reached.
+     */
+    public void setAdaptiveFlush(boolean adaptiveFlush) {
+        this.adaptiveFlush = adaptiveFlush;
+    }
+
+    public int getAdaptiveFlushMaxBytes() {
+        return adaptiveFlushMaxBytes;
+    }
+
+    public void setAdaptiveFlushMaxBytes(int adaptiveFlushMaxBytes) {
+        this.adaptiveFlushMaxBytes = adaptiveFlushMaxBytes;
+    }
+
+    public long getAdaptiveFlushMaxDelayInMicros() {
+        return adaptiveFlushMaxDelayInMicros;
+    }
+
+    public void setAdaptiveFlushMaxDelayInMicros(long adaptiveFlushMaxDelayInMicros) {
+        this.adaptiveFlushMaxDelayInMicros = adaptiveFlushMaxDelayInMicros;
+    }
+
+    public boolean isSessionResume() {
+        return sessionResume;
+    }
+
+    /**
+     * When enabled, the client asks the acceptor to resume its previous session after a reconnect instead of
+     * resubscribing. Requires a blocking acceptor with a resume window configured.
+     */
+    public void setSessionResume(boolean sessionResume) {
+        this.sessionResume = sessionResume;
+    }
+
+    public long getRequestTimeoutTickInMs() {
+        return requestTimeoutTickInMs;
+    }
+
+    /**
+     * Resolution of request timeouts. Outstanding requests are checked for timeouts once per tick.
+     */
+    public void setRequestTimeoutTickInMs(long requestTimeoutTickInMs) {
+        this.requestTimeoutTickInMs = requestTimeoutTickInMs;
+    }
+
+    public Executor getReplyExecutor() {
+        return replyExecutor;
+    }
+
+    /**
+     * Executor that completes request futures. When null, futures are completed on the thread that reads the reply.
+     */
+    public void setReplyExecutor(Executor replyExecutor) {
+        this.replyExecutor = replyExecutor;
+    }
+
+    public int getMaxPendingWriteBytes() {
+        return maxPendingWriteBytes;
+    }
+
+    /**
+     * Most bytes the nio client buffers for a socket that cannot keep up. A write past this closes the connection
+     * and the message goes to the dead message channel.
+     */
+    public void setMaxPendingWriteBytes(int maxPendingWriteBytes) {
+        this.maxPendingWriteBytes = maxPendingWriteBytes;
+    }
 }
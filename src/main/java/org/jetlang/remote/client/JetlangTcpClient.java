@@ -10,6 +10,7 @@ import org.jetlang.core.Disposable;
 import org.jetlang.core.DisposingExecutor;
 import org.jetlang.fibers.Fiber;
 import org.jetlang.remote.acceptor.MessageStreamWriter;
+import org.jetlang.remote.core.ByteArrayBuffer;
 import org.jetlang.remote.core.CloseableChannel;
 import org.jetlang.remote.core.ErrorHandler;
 import org.jetlang.remote.core.HeartbeatEvent;
@@ -19,20 +20,22 @@ import org.jetlang.remote.core.MsgTypes;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 import org.jetlang.remote.core.Serializer;
 import org.jetlang.remote.core.SocketMessageStreamWriter;
+import org.jetlang.remote.core.SocketWriteStats;
 import org.jetlang.remote.core.TcpSocket;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  */
@@ -43,11 +46,16 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     private final JetlangClientConfig config;
     private final Serializer<R, W> ser;
     private final ErrorHandler errorHandler;
+    //null when messages published while disconnected go to the dead message channel
+    private final OutboundJournal journal;
     private static final Charset charset = Charset.forName("US-ASCII");
     private final SocketConnector socketConnector;
     private Disposable pendingConnect;
+    private final ReconnectBackoff reconnectBackoff;
+    private long disconnectedAtNanos;
+    private volatile long lastReconnectLatencyInMs;
+    private volatile long reconnectCount;
     private final CloseableChannel.Group channelsToClose = new CloseableChannel.Group();
-    private final Map<String, RemoteSubscription> remoteSubscriptions = new LinkedHashMap<String, RemoteSubscription>();
 
     private <T> CloseableChannel<T> channel() {
         return channelsToClose.add(new MemoryChannel<T>());
@@ -62,151 +70,169 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     private final CountDownLatch logoutLatch = new CountDownLatch(1);
     private Disposable hbSchedule;
     private final Channel<HeartbeatEvent> Heartbeat = channel();
-    private AtomicInteger reqId = new AtomicInteger();
-    private final Map<Integer, Req> pendingRequests = Collections.synchronizedMap(new HashMap<Integer, Req>());
+    private final SocketWriteStats writeStats = new SocketWriteStats();
+    private final ClientLatencyStats latencyStats = new ClientLatencyStats();
+    private final ClientCore<R, W> core;
+    //only accessed on the read thread
+    private long lastHeartbeatNanos;
+
+    //session resume state. token and pending flags are only accessed on the send fiber.
+    private String resumeToken;
+    private boolean resumePending;
+    private final List<String> pendingUnsubscribes = new ArrayList<String>();
+    private volatile long lastSequence;
+    //only accessed on the read thread
+    private long nextSequence;
+
+    //only accessed on the send fiber
+    private final JournalFrame journalFrame = new JournalFrame();
+    private SocketMessageStreamWriter<W> journalWriter;
+    private SocketMessageStreamWriter.Out socketOut;
+
+    /**
+     * Encodes frames for the outbound journal.
+     */
+    private static class JournalFrame extends ByteArrayBuffer implements SocketMessageStreamWriter.Out {
+
+        public boolean appendTo(OutboundJournal journal, long nowInMs) throws IOException {
+            try {
+                return journal.append(buffer, 0, position, nowInMs);
+            } finally {
+                position = 0;
+            }
+        }
 
-    private final SocketWriter<W> socketWriter = new SocketWriter<W>() {
-        @Override
-        public boolean send(final String topic, final W msg){
-            if (socket != null) {
-                try {
-                    socket.write(topic, msg);
-                    return true;
-                } catch (IOException e) {
-                    DeadMessage.publish(new DeadMessageEvent<W>(topic, msg));
-                    handleDisconnect(new CloseEvent.WriteException(e));
+        public ByteArrayBuffer getBuffer() {
+            return this;
+        }
+
+        public void flush() {
+        }
+
+        public void write(int byteToWrite) {
+            appendIntAsByte(byteToWrite);
+        }
+
+        public void writeBytes(byte[] bytes) {
+            append(bytes);
+        }
+
+        public boolean close() {
+            return true;
+        }
+    }
+
+    /**
+     * While a resume is pending, messages are journaled so they are not sent ahead of the journaled backlog.
+     */
+    private boolean journalUntilResumed() {
+        return resumePending && journal != null;
+    }
+
+    private void journalOrDeadMessage(String topic, W msg) {
+        if (journal != null) {
+            try {
+                if (journalWriter == null) {
+                    journalWriter = new SocketMessageStreamWriter<W>(journalFrame, charset, ser.getWriter());
                 }
-            } else {
-                DeadMessage.publish(new DeadMessageEvent<W>(topic, msg));
+                journalWriter.bufferMessage(topic, msg);
+                if (journalFrame.appendTo(journal, System.currentTimeMillis())) {
+                    return;
+                }
+            } catch (IOException e) {
+                journalFrame.reset();
+                errorHandler.onException(e);
             }
-            return false;
         }
-    };
+        DeadMessage.publish(new DeadMessageEvent<W>(topic, msg));
+    }
+
+    private void drainJournal() {
+        if (journal != null && socketOut != null && !journal.isEmpty()) {
+            try {
+                journal.drainTo(socketOut, System.currentTimeMillis());
+            } catch (IOException e) {
+                handleDisconnect(new CloseEvent.WriteException(e));
+            }
+        }
+    }
 
     public JetlangTcpClient(SocketConnector socketConnector,
                             Fiber sendFiber,
                             JetlangClientConfig config,
                             Serializer<R, W> ser,
                             ErrorHandler errorHandler) {
+        this(socketConnector, sendFiber, config, ser, errorHandler, null);
+    }
+
+    /**
+     * @param journal stores messages published while disconnected and sends them once connected. It holds the
+     *                state of one client, so each client needs its own journal and directory.
+     */
+    public JetlangTcpClient(SocketConnector socketConnector,
+                            Fiber sendFiber,
+                            JetlangClientConfig config,
+                            Serializer<R, W> ser,
+                            ErrorHandler errorHandler,
+                            OutboundJournal journal) {
+        this.journal = journal;
         this.socketConnector = socketConnector;
+        this.reconnectBackoff = new ReconnectBackoff(config);
         this.sendFiber = sendFiber;
         this.config = config;
         this.ser = ser;
         this.errorHandler = errorHandler;
-    }
-
-    private class RemoteSubscription<T> {
-        private final CloseableChannel<T> channel = channel();
-        private final String topic;
-        private boolean subscriptionSent = false;
-
-        public RemoteSubscription(String topic) {
-            this.topic = topic;
-        }
-
-        public Disposable subscribe(Subscribable<T> callback) {
-            final Disposable channelDisposable = channel.subscribe(callback);
+        this.core = new ClientCore<R, W>(sendFiber, config, latencyStats, DeadMessage) {
+            @Override
+            MessageStreamWriter<W> getWriter() {
+                return socket;
+            }
 
-            sendFiber.execute(new Runnable() {
-                @Override
-                public void run() {
-                    if (!subscriptionSent) {
-                        subscriptionSent = sendSubscription(topic, MsgTypes.Subscription);
-                    }
-                }
-            });
+            @Override
+            void onWriteFailure(IOException e) {
+                handleDisconnect(new CloseEvent.WriteException(e));
+            }
 
-            return new Disposable() {
-                @Override
-                public void dispose() {
-                    channelDisposable.dispose();
+            @Override
+            boolean canSendMessages() {
+                return !journalUntilResumed();
+            }
 
-                    sendFiber.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            unsubscribeIfNecessary();
-                        }
-                    });
-                }
-            };
-        }
+            @Override
+            boolean canSendSubscriptions() {
+                return !resumePending;
+            }
 
-        private void unsubscribeIfNecessary() {
-            synchronized (remoteSubscriptions) {
-                if (channel.subscriptionCount() == 0 && !channel.isClosed()) {
-                    channel.close();
-                    channelsToClose.remove(channel);
-                    if (subscriptionSent) {
-                        sendSubscription(topic, MsgTypes.Unsubscribe);
-                    }
+            @Override
+            void onUnsent(String topic, W msg) {
+                journalOrDeadMessage(topic, msg);
+            }
 
-                    remoteSubscriptions.remove(topic);
+            @Override
+            void onUnsubscribeNotSent(String topic) {
+                if (config.isSessionResume()) {
+                    //a resumed session still has the subscription
+                    pendingUnsubscribes.add(topic);
                 }
             }
-        }
-
-        public void publish(T object) {
-            channel.publish(object);
-        }
-
-        public void onConnect() {
-            subscriptionSent = sendSubscription(topic, MsgTypes.Subscription);
-        }
+        };
     }
 
     @Override
     public <T extends R> Disposable subscribe(final String subject, Subscribable<T> callback) {
-        synchronized (remoteSubscriptions) {
-            final RemoteSubscription<T> remoteSubscription;
-            if (remoteSubscriptions.containsKey(subject)) {
-                //noinspection unchecked
-                remoteSubscription = (RemoteSubscription<T>) remoteSubscriptions.get(subject);
-            } else {
-                remoteSubscription = new RemoteSubscription<T>(subject);
-                remoteSubscriptions.put(subject, remoteSubscription);
-            }
-            return remoteSubscription.subscribe(callback);
-        }
-    }
-
-    private void publishData(String topic, R object) {
-        RemoteSubscription channel;
-        synchronized (remoteSubscriptions) {
-            channel = remoteSubscriptions.get(topic);
-        }
-        if (channel != null) {
-            //noinspection unchecked
-            channel.publish(object);
-        }
-    }
-
-    private void publishReply(int id, R reply) {
-        Req r = pendingRequests.remove(id);
-        if (r != null) {
-            //noinspection unchecked
-            r.onReply(reply);
-        }
-    }
-
-    private boolean sendSubscription(String subject, int msgType) {
-        if (socket != null) {
-            try {
-                socket.writeSubscription(msgType, subject, charset);
-                return true;
-            } catch (IOException e) {
-                handleDisconnect(new CloseEvent.WriteException(e));
-            }
-        }
-        return false;
+        return core.subscribe(subject, callback);
     }
 
     private void closeIfNeeded(CloseEvent closeCause) {
         if (socket != null) {
             socket.tryClose();
             socket = null;
+            socketOut = null;
+            disconnectedAtNanos = System.nanoTime();
             if (hbSchedule != null) {
                 hbSchedule.dispose();
             }
+            core.onDisconnect(closeCause);
             if (closed.get()) {
                 this.Closed.publish(new CloseEvent.GracefulDisconnect());
             } else {
@@ -224,6 +250,7 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
             } catch (Exception failed) {
                 errorHandler.onException(failed);
                 socket = null;
+                scheduleConnect();
             }
         }
     };
@@ -249,26 +276,40 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     };
 
     private void handleConnect(Socket newSocket) throws IOException {
-        this.pendingConnect.dispose();
         this.pendingConnect = null;
-        this.socket = new SocketMessageStreamWriter<W>(new TcpSocket(newSocket, errorHandler), charset, ser.getWriter());
-        synchronized (remoteSubscriptions) {
-            for (RemoteSubscription subscription : remoteSubscriptions.values()) {
-                subscription.onConnect();
-            }
+        reconnectBackoff.reset();
+        if (disconnectedAtNanos != 0) {
+            final long reconnectNanos = System.nanoTime() - disconnectedAtNanos;
+            latencyStats.recordReconnect(reconnectNanos);
+            lastReconnectLatencyInMs = TimeUnit.NANOSECONDS.toMillis(reconnectNanos);
+            reconnectCount++;
+            disconnectedAtNanos = 0;
+        }
+        this.socketOut = createOut(new TcpSocket(newSocket, errorHandler));
+        final SocketMessageStreamWriter<W> writer = new SocketMessageStreamWriter<W>(socketOut, charset, ser.getWriter());
+        this.socket = writer;
+        if (config.isSessionResume()) {
+            //subscriptions are sent once the server answers
+            resumePending = true;
+            writer.writeResumeRequest(resumeToken != null ? resumeToken : "", resumeToken != null ? lastSequence : 0);
+        } else {
+            core.sendSubscriptions();
         }
+        final MessageStreamWriter<W> connection = socket;
         final InputStream stream = newSocket.getInputStream();
         final Runnable reader = new Runnable() {
             @Override
             public void run() {
                 final JetlangRemotingProtocol protocol = new JetlangRemotingProtocol<R>(protocolHandler, ser.getReader(), config.createTopicReader(charset));
                 final JetlangRemotingInputStream inputStream = new JetlangRemotingInputStream(stream, protocol, onReadTimeout);
+                nextSequence = 0;
+                lastHeartbeatNanos = 0;
                 try {
                     Connected.publish(new ConnectEvent());
                     while (inputStream.readFromStream()) {
                     }
                 } catch (IOException failed) {
-                    handleReadExceptionOnSendFiber(failed);
+                    handleReadExceptionOnSendFiber(connection, failed);
                 }
             }
         };
@@ -277,12 +318,80 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
         if (config.getHeartbeatIntervalInMs() > 0) {
             hbSchedule = sendFiber.scheduleWithFixedDelay(hb, config.getHeartbeatIntervalInMs(), config.getHeartbeatIntervalInMs(), TimeUnit.MILLISECONDS);
         }
+        if (!config.isSessionResume()) {
+            drainJournal();
+        }
+    }
+
+    private SocketMessageStreamWriter.Out createOut(TcpSocket tcpSocket) throws IOException {
+        if (config.isAdaptiveFlush()) {
+            Callback<IOException> onFlushFailure = new Callback<IOException>() {
+                @Override
+                public void onMessage(IOException e) {
+                    handleDisconnect(new CloseEvent.WriteException(e));
+                }
+            };
+            return new SocketMessageStreamWriter.AdaptiveStream(new ByteArrayBuffer(), tcpSocket, sendFiber,
+                    config.getAdaptiveFlushMaxBytes(), TimeUnit.MICROSECONDS.toNanos(config.getAdaptiveFlushMaxDelayInMicros()),
+                    onFlushFailure, writeStats);
+        }
+        return new SocketMessageStreamWriter.BufferedStream(new ByteArrayBuffer(), tcpSocket, writeStats);
+    }
+
+    private void onSessionStarted(String token) {
+        resumeToken = token.isEmpty() ? null : token;
+        resumePending = false;
+        pendingUnsubscribes.clear();
+        core.sendSubscriptions();
+        drainJournal();
+    }
+
+    private void onSessionResumed() {
+        resumePending = false;
+        final List<String> unsubscribes = new ArrayList<String>(pendingUnsubscribes);
+        pendingUnsubscribes.clear();
+        for (String topic : unsubscribes) {
+            core.sendUnsubscribe(topic);
+        }
+        core.resendSubscriptions();
+        drainJournal();
     }
 
     private final JetlangRemotingProtocol.Handler<R> protocolHandler = new JetlangRemotingProtocol.Handler<R>() {
         @Override
         public void onMessage(String dataTopicVal, R readObject) {
-            publishData(dataTopicVal, readObject);
+            if (nextSequence != 0) {
+                lastSequence = nextSequence;
+                nextSequence = 0;
+            }
+            core.publishData(dataTopicVal, readObject);
+        }
+
+        @Override
+        public void onSessionToken(final String token) {
+            lastSequence = 0;
+            nextSequence = 0;
+            sendFiber.execute(new Runnable() {
+                @Override
+                public void run() {
+                    onSessionStarted(token);
+                }
+            });
+        }
+
+        @Override
+        public void onResumeAccepted() {
+            sendFiber.execute(new Runnable() {
+                @Override
+                public void run() {
+                    onSessionResumed();
+                }
+            });
+        }
+
+        @Override
+        public void onSequence(long sequence) {
+            nextSequence = sequence;
         }
 
         @Override
@@ -307,6 +416,11 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
 
         @Override
         public void onHb() {
+            final long now = System.nanoTime();
+            if (lastHeartbeatNanos != 0) {
+                latencyStats.recordHeartbeatGap(now - lastHeartbeatNanos);
+            }
+            lastHeartbeatNanos = now;
             Heartbeat.publish(new HeartbeatEvent());
         }
 
@@ -322,16 +436,19 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
 
         @Override
         public void onRequestReply(int reqId, String dataTopicVal, R readObject) {
-            publishReply(reqId, readObject);
+            core.publishReply(reqId, readObject);
         }
     };
 
 
-    private void handleReadExceptionOnSendFiber(final IOException e) {
+    private void handleReadExceptionOnSendFiber(final MessageStreamWriter<W> connection, final IOException e) {
         Runnable exec = new Runnable() {
             @Override
             public void run() {
-                handleDisconnect(new CloseEvent.ReadException(e));
+                //the connection may already have been replaced by a reconnect
+                if (socket == connection || socket == null) {
+                    handleDisconnect(new CloseEvent.ReadException(e));
+                }
             }
         };
         sendFiber.execute(exec);
@@ -339,25 +456,64 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
 
     @Override
     public void start() {
-        pendingConnect = sendFiber.scheduleWithFixedDelay(connect, config.getInitialConnectDelayInMs(), config.getReconnectDelayInMs(), TimeUnit.MILLISECONDS);
+        pendingConnect = sendFiber.schedule(connect, config.getInitialConnectDelayInMs(), TimeUnit.MILLISECONDS);
         sendFiber.start();
     }
 
     private void handleDisconnect(CloseEvent event) {
         closeIfNeeded(event);
-        if (pendingConnect == null && !closed.get()) {
-            //should use fixed rate but don't want to introduce a dependency on that method.
-            if (config.getReconnectDelayInMs() > 0) {
-                pendingConnect = sendFiber.scheduleWithFixedDelay(connect, config.getReconnectDelayInMs(), config.getReconnectDelayInMs(), TimeUnit.MILLISECONDS);
-            }
+        if (pendingConnect == null) {
+            scheduleConnect();
+        }
+    }
+
+    private void scheduleConnect() {
+        if (!closed.get() && config.getReconnectDelayInMs() > 0) {
+            pendingConnect = sendFiber.schedule(connect, reconnectBackoff.next(), TimeUnit.MILLISECONDS);
+        } else {
+            pendingConnect = null;
         }
     }
 
+    /**
+     * Drops the current connection, if any, and reconnects after the reconnect delay.
+     */
+    public void reconnect(final IOException cause) {
+        sendFiber.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (socket != null) {
+                    handleDisconnect(new CloseEvent.WriteException(cause));
+                }
+            }
+        });
+    }
+
+    /**
+     * Time from the last disconnect to the connect that followed it.
+     */
+    public long getLastReconnectLatencyInMs() {
+        return lastReconnectLatencyInMs;
+    }
+
+    public long getReconnectCount() {
+        return reconnectCount;
+    }
+
     @Override
     public <T extends R> Disposable subscribe(String topic, DisposingExecutor clientFiber, Callback<T> cb) {
         return subscribe(topic, new ChannelSubscription<T>(clientFiber, cb));
     }
 
+    /**
+     * Subscribes so that only the latest message on the topic is kept pending while the fiber is behind.
+     *
+     * @see ConflatingSubscription
+     */
+    public <T extends R> Disposable subscribeConflated(String topic, DisposingExecutor clientFiber, Callback<T> cb) {
+        return subscribe(topic, new ConflatingSubscription<T>(clientFiber, cb));
+    }
+
     @Override
     public LogoutResult close(final boolean sendLogoutIfStillConnected) {
         final CountDownLatch closedLatch = new CountDownLatch(1);
@@ -369,6 +525,7 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
                     if (socket != null && sendLogoutIfStillConnected) {
                         try {
                             socket.writeByteAsInt(MsgTypes.Disconnect);
+                            socket.flushBuffered();
                             boolean result = logoutLatch.await(config.getLogoutLatchTimeout(), config.getLogoutLatchTimeoutUnit());
                             logoutLatchComplete.set(result);
                         } catch (Exception e) {
@@ -383,6 +540,7 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
                     closedLatch.countDown();
                     sendFiber.dispose();
                     channelsToClose.closeAndClear();
+                    core.close();
                 }
             };
             sendFiber.execute(disconnect);
@@ -391,83 +549,45 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
         throw new RuntimeException("Already closed.");
     }
 
-    private class Req<T> {
-        final DisposingExecutor fiber;
-        final Callback<T> cb;
-        private final AtomicBoolean disposed;
-
-        public Req(DisposingExecutor fiber, Callback<T> cb, AtomicBoolean disposed) {
-            this.fiber = fiber;
-            this.cb = cb;
-            this.disposed = disposed;
-        }
-
-        public void onReply(final T reply) {
-            if (!disposed.get()) {
-                Runnable run = new Runnable() {
-                    public void run() {
-                        if (disposed.compareAndSet(false, true)) {
-                            cb.onMessage(reply);
-                        }
-                    }
-                };
-                fiber.execute(run);
-            }
-        }
-    }
-
     public <T extends W, C extends R> Disposable request(final String reqTopic,
                                   final T req,
                                   final DisposingExecutor executor, final Callback<C> callback,
                                   final Callback<TimeoutControls> timeoutRunnable, int timeout, TimeUnit timeUnit) {
-        final AtomicBoolean disposed = new AtomicBoolean(false);
-        final int id = reqId.incrementAndGet();
-        Runnable reqSend = new Runnable() {
-            public void run() {
-                if (!disposed.get()) {
-                    if (socket != null) {
-                        pendingRequests.put(id, new Req<C>(executor, callback, disposed));
-                        try {
-                            socket.writeRequest(id, reqTopic, req);
-                        } catch (IOException e) {
-                            pendingRequests.remove(id);
-                            handleDisconnect(new CloseEvent.WriteException(e));
-                        }
-                    }
-                }
-            }
-        };
-        sendFiber.execute(reqSend);
-        if (timeout > 0 && callback != null) {
-            Runnable onTimeout = new Runnable() {
-                public void run() {
-                    if (!disposed.get()) {
-                        TimeoutControls controls = new TimeoutControls() {
-                            public void cancelRequest() {
-                                disposed.set(true);
-                                pendingRequests.remove(id);
-                            }
-                        };
-                        timeoutRunnable.onMessage(controls);
-                    }
-                }
-            };
-            final Disposable disposable = sendFiber.schedule(onTimeout, timeout, timeUnit);
-            return new Disposable() {
-                public void dispose() {
-                    disposed.set(true);
-                    disposable.dispose();
-                }
-            };
-        } else {
-            return new Disposable() {
-                public void dispose() {
-                    disposed.set(true);
-                }
-            };
-        }
+        return core.request(reqTopic, req, executor, callback, timeoutRunnable, timeout, timeUnit);
+    }
+
+    /**
+     * Sends a request and completes the future with the reply. The future fails with a
+     * {@link TimeoutException} if no reply arrives in time, or with an IOException if the client is not connected or the connection is lost before the reply.
+     *
+     * @param timeout zero or less to wait for the reply indefinitely
+     */
+    public <C extends R> CompletableFuture<C> request(String reqTopic, W req, long timeout, TimeUnit timeUnit) {
+        return this.<C>requestAll(reqTopic, Collections.singletonList(req), timeout, timeUnit).get(0);
     }
 
+    /**
+     * Sends the requests with a single write. Each future is completed as its reply arrives, in any order.
+     *
+     * @see #request(String, Object, long, TimeUnit)
+     */
+    public <C extends R> List<CompletableFuture<C>> requestAll(String reqTopic, List<? extends W> reqs, long timeout, TimeUnit timeUnit) {
+        return core.requestAll(reqTopic, reqs, timeout, timeUnit);
+    }
+
+    /**
+     * Latency histograms for requests, publishes, heartbeats and reconnects of this client.
+     */
+    public ClientLatencyStats getLatencyStats() {
+        return latencyStats;
+    }
+
+    /**
+     * Socket write counts across all connections made by this client.
+     */
+    public SocketWriteStats getWriteStats() {
+        return writeStats;
+    }
 
     public Subscriber<CloseEvent> getCloseChannel() {
         return Closed;
@@ -490,9 +610,11 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     }
 
     public <T extends W> void publish(final String topic, final T msg, final Runnable onSend) {
+        final long enqueuedNanos = System.nanoTime();
         Runnable r = new Runnable() {
             public void run() {
-                if(socketWriter.send(topic, msg)){
+                if(core.getSocketWriter().send(topic, msg)){
+                    latencyStats.recordPublishWrite(topic, System.nanoTime() - enqueuedNanos);
                     if (onSend != null)
                         onSend.run();
                 }
@@ -501,10 +623,45 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
         sendFiber.execute(r);
     }
 
+    /**
+     * Encodes all of the messages and writes them with a single flush. If the client is not connected or the
+     * write fails, every message is journaled or published to the dead message channel.
+     */
+    public void publishBatch(final Collection<? extends TopicMessage<? extends W>> messages) {
+        final long enqueuedNanos = System.nanoTime();
+        Runnable r = new Runnable() {
+            public void run() {
+                IOException failed = null;
+                if (socket != null && !journalUntilResumed()) {
+                    try {
+                        for (TopicMessage<? extends W> message : messages) {
+                            socket.bufferMessage(message.getTopic(), message.getMessage());
+                        }
+                        socket.flush();
+                        final long writeNanos = System.nanoTime() - enqueuedNanos;
+                        for (TopicMessage<? extends W> message : messages) {
+                            latencyStats.recordPublishWrite(message.getTopic(), writeNanos);
+                        }
+                        return;
+                    } catch (IOException e) {
+                        failed = e;
+                    }
+                }
+                for (TopicMessage<? extends W> message : messages) {
+                    journalOrDeadMessage(message.getTopic(), message.getMessage());
+                }
+                if (failed != null) {
+                    handleDisconnect(new CloseEvent.WriteException(failed));
+                }
+            }
+        };
+        sendFiber.execute(r);
+    }
+
     public void execOnSendThread(final Callback<SocketWriter<W>> cb){
         Runnable r = new Runnable() {
             public void run() {
-                cb.onMessage(socketWriter);
+                cb.onMessage(core.getSocketWriter());
             }
         };
         sendFiber.execute(r);
@@ -0,0 +1,757 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.channels.Channel;
+import org.jetlang.channels.ChannelSubscription;
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.channels.Subscribable;
+import org.jetlang.channels.Subscriber;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.jetlang.fibers.NioChannelHandler;
+import org.jetlang.fibers.NioControls;
+import org.jetlang.fibers.NioFiber;
+import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.remote.acceptor.MessageStreamWriter;
+import org.jetlang.remote.core.ByteArrayBuffer;
+import org.jetlang.remote.core.CloseableChannel;
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.JetlangRemotingProtocol;
+import org.jetlang.remote.core.MsgTypes;
+import org.jetlang.remote.core.ReadTimeoutEvent;
+import org.jetlang.remote.core.Serializer;
+import org.jetlang.remote.core.SocketMessageStreamWriter;
+import org.jetlang.remote.core.SocketWriteStats;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking client with the same reconnect, heartbeat and request behavior as {@link JetlangTcpClient}.
+ * Connecting, reading, writing and timers all run on the nio fiber, which can be shared by many clients so
+ * no thread is dedicated to a connection. Bytes the socket cannot take are buffered and written once the
+ * socket is writable, so a slow server does not hold up the fiber. Once more than
+ * {@link JetlangClientConfig#getMaxPendingWriteBytes()} are buffered the connection is closed and the message
+ * that overflowed goes to the dead message channel.
+ * <p>
+ * Heartbeats are sent every {@link JetlangClientConfig#getHeartbeatIntervalInMs()}. When the connector has a read
+ * timeout, a read timeout event is published each time nothing, heartbeats included, has been read for that long.
+ * The connection is left open, as it is by the blocking client.
+ * <p>
+ * The fiber is not started or disposed by the client. Session resume and adaptive flush are not supported.
+ */
+public class NioJetlangTcpClient<R, W> implements JetlangClient<R, W> {
+
+    private static final Charset charset = Charset.forName("US-ASCII");
+
+    private final NioFiber fiber;
+    private final SocketConnector socketConnector;
+    private final JetlangClientConfig config;
+    private final Serializer<R, W> ser;
+    private final ErrorHandler errorHandler;
+    private final CloseableChannel.Group channelsToClose = new CloseableChannel.Group();
+
+    private <T> CloseableChannel<T> channel() {
+        return channelsToClose.add(new MemoryChannel<T>());
+    }
+
+    private final Channel<ConnectEvent> Connected = channel();
+    private final Channel<CloseEvent> Closed = channel();
+    private final Channel<ReadTimeoutEvent> ReadTimeout = channel();
+    private final Channel<DeadMessageEvent<W>> DeadMessage = channel();
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean logoutComplete = new AtomicBoolean(false);
+    private final CountDownLatch closedLatch = new CountDownLatch(1);
+    private final SocketWriteStats writeStats = new SocketWriteStats();
+    private final ClientLatencyStats latencyStats = new ClientLatencyStats();
+    private final ClientCore<R, W> core;
+
+    //only accessed on the nio fiber
+    private Connection connection;
+    private Disposable pendingConnect;
+    private final ReconnectBackoff reconnectBackoff;
+    private List<SocketConnector.Endpoint> connectOrder;
+    private int connectIndex;
+    private long disconnectedAtNanos;
+    private volatile long lastReconnectLatencyInMs;
+    private volatile long reconnectCount;
+    private Disposable logoutTimeout;
+    private boolean closeFinished;
+    private long lastHeartbeatNanos;
+
+    public NioJetlangTcpClient(SocketConnector socketConnector,
+                               NioFiber fiber,
+                               JetlangClientConfig config,
+                               Serializer<R, W> ser,
+                               ErrorHandler errorHandler) {
+        this.socketConnector = socketConnector;
+        this.fiber = fiber;
+        this.config = config;
+        this.ser = ser;
+        this.errorHandler = errorHandler;
+        this.reconnectBackoff = new ReconnectBackoff(config);
+        this.core = new ClientCore<R, W>(fiber, config, latencyStats, DeadMessage) {
+            @Override
+            MessageStreamWriter<W> getWriter() {
+                final Connection c = connection;
+                return c != null && c.connected ? c.writer : null;
+            }
+
+            @Override
+            void onWriteFailure(IOException e) {
+                final Connection c = connection;
+                if (c != null) {
+                    c.close(new CloseEvent.WriteException(e));
+                }
+            }
+
+            @Override
+            void executeSend(Runnable send) {
+                NioJetlangTcpClient.this.executeSend(send);
+            }
+        };
+    }
+
+    @Override
+    public <T extends R> Disposable subscribe(String subject, Subscribable<T> callback) {
+        return core.subscribe(subject, callback);
+    }
+
+    @Override
+    public <T extends R> Disposable subscribe(String topic, DisposingExecutor clientFiber, Callback<T> cb) {
+        return subscribe(topic, new ChannelSubscription<T>(clientFiber, cb));
+    }
+
+    private final Callback<NioControls> connect = new Callback<NioControls>() {
+        @Override
+        public void onMessage(NioControls controls) {
+            pendingConnect = null;
+            if (closed.get() || connection != null) {
+                return;
+            }
+            if (connectOrder == null || connectIndex >= connectOrder.size()) {
+                connectOrder = socketConnector.endpointsInOrder();
+                connectIndex = 0;
+            }
+            final SocketConnector.Endpoint endpoint = connectOrder.get(connectIndex++);
+            endpoint.onAttempt();
+            final SocketChannel channel;
+            try {
+                channel = socketConnector.openChannel(endpoint);
+            } catch (IOException failed) {
+                endpoint.onFailure();
+                errorHandler.onException(failed);
+                retryConnect();
+                return;
+            }
+            final Connection c = new Connection(channel, endpoint, controls);
+            connection = c;
+            controls.addHandler(c);
+            if (c.connected) {
+                c.onConnected();
+            } else {
+                c.startConnectTimeout();
+            }
+        }
+    };
+
+    /**
+     * Runs work that writes to the connection. While a connect is in progress the work waits for it to finish,
+     * the same as it would behind a blocking connect on the send fiber.
+     */
+    private void executeSend(final Runnable send) {
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                final Connection c = connection;
+                if (c != null && !c.connected) {
+                    c.waitingForConnect.add(send);
+                } else {
+                    send.run();
+                }
+            }
+        };
+        fiber.execute(r);
+    }
+
+    private void scheduleReconnect(long delayInMs) {
+        if (pendingConnect == null && !closed.get() && delayInMs >= 0) {
+            Runnable r = new Runnable() {
+                @Override
+                public void run() {
+                    fiber.execute(connect);
+                }
+            };
+            pendingConnect = fiber.schedule(r, delayInMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Fails over to the next endpoint right away. Once every endpoint has been tried, waits for the backoff.
+     */
+    private void retryConnect() {
+        if (connectOrder != null && connectIndex < connectOrder.size()) {
+            if (!closed.get()) {
+                fiber.execute(connect);
+            }
+        } else if (config.getReconnectDelayInMs() > 0) {
+            scheduleReconnect(reconnectBackoff.next());
+        }
+    }
+
+    /**
+     * Time from the last disconnect to the connect that followed it.
+     */
+    public long getLastReconnectLatencyInMs() {
+        return lastReconnectLatencyInMs;
+    }
+
+    public long getReconnectCount() {
+        return reconnectCount;
+    }
+
+    private void onConnectionEnd(Connection c) {
+        if (connection != c) {
+            return;
+        }
+        connection = null;
+        if (c.connected) {
+            disconnectedAtNanos = System.nanoTime();
+            core.onDisconnect(c.closeEvent);
+            if (closed.get()) {
+                Closed.publish(new CloseEvent.GracefulDisconnect());
+            } else {
+                Closed.publish(c.closeEvent);
+            }
+        } else {
+            c.endpoint.onFailure();
+            if (c.closeEvent instanceof CloseEvent.IOExceptionEvent) {
+                errorHandler.onException(((CloseEvent.IOExceptionEvent) c.closeEvent).getException());
+            }
+        }
+        if (closed.get()) {
+            finishClose();
+        } else if (c.connected) {
+            if (config.getReconnectDelayInMs() > 0) {
+                scheduleReconnect(reconnectBackoff.next());
+            }
+        } else {
+            retryConnect();
+        }
+    }
+
+    private void finishClose() {
+        if (closeFinished) {
+            return;
+        }
+        closeFinished = true;
+        if (logoutTimeout != null) {
+            logoutTimeout.dispose();
+        }
+        if (pendingConnect != null) {
+            pendingConnect.dispose();
+        }
+        if (connection != null) {
+            connection.close(new CloseEvent.GracefulDisconnect());
+        }
+        core.close();
+        closedLatch.countDown();
+        channelsToClose.closeAndClear();
+    }
+
+    private final JetlangRemotingProtocol.Handler<R> protocolHandler = new JetlangRemotingProtocol.Handler<R>() {
+        @Override
+        public void onMessage(String dataTopicVal, R readObject) {
+            core.publishData(dataTopicVal, readObject);
+        }
+
+        @Override
+        public void onSubscriptionRequest(String val) {
+            errorHandler.onException(new IOException("SubscriptionNotSupported: " + val));
+        }
+
+        @Override
+        public void onRequest(int reqId, String dataTopicVal, Object readObject) {
+            errorHandler.onException(new IOException("RequestNotSupported: " + dataTopicVal + " val: " + readObject));
+        }
+
+        @Override
+        public void onUnsubscribeRequest(String val) {
+            errorHandler.onException(new IOException("UnsubscribeNotSupported: " + val));
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            errorHandler.onException(failed);
+        }
+
+        @Override
+        public void onHb() {
+            //every read, heartbeats included, resets the read timeout
+            final long now = System.nanoTime();
+            if (lastHeartbeatNanos != 0) {
+                latencyStats.recordHeartbeatGap(now - lastHeartbeatNanos);
+            }
+            lastHeartbeatNanos = now;
+        }
+
+        @Override
+        public void onLogout() {
+            logoutComplete.set(true);
+            if (closed.get()) {
+                //finish after the current read so the connection is not closed underneath it
+                fiber.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishClose();
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onUnknownMessage(int read) {
+            errorHandler.onException(new IOException(read + " not supported"));
+        }
+
+        @Override
+        public void onRequestReply(int reqId, String dataTopicVal, R readObject) {
+            core.publishReply(reqId, readObject);
+        }
+    };
+
+    /**
+     * A single connection attempt. Only accessed on the nio fiber.
+     */
+    private class Connection implements NioChannelHandler, SocketMessageStreamWriter.Out {
+        private final SocketChannel channel;
+        private final SocketConnector.Endpoint endpoint;
+        private final NioControls controls;
+        private final JetlangRemotingProtocol<R> protocol = new JetlangRemotingProtocol<R>(protocolHandler, ser.getReader(), config.createTopicReader(charset));
+        private final WriteBuffer buffer = new WriteBuffer();
+        private final SocketMessageStreamWriter<W> writer = new SocketMessageStreamWriter<W>(this, charset, ser.getWriter());
+        private final PendingWrite pendingWrite = new PendingWrite();
+        private final List<Runnable> waitingForConnect = new ArrayList<Runnable>();
+        private JetlangRemotingProtocol.State nextCommand = protocol.root;
+        private CloseEvent closeEvent = new CloseEvent.ReadException(new EOFException("Connection closed by server"));
+        private boolean connected;
+        private boolean ended;
+        private long lastReadMs;
+        private Disposable connectTimeout;
+        private Disposable hbSchedule;
+        private Disposable readTimeoutSchedule;
+
+        public Connection(SocketChannel channel, SocketConnector.Endpoint endpoint, NioControls controls) {
+            this.channel = channel;
+            this.endpoint = endpoint;
+            this.controls = controls;
+            this.connected = channel.isConnected();
+        }
+
+        public void startConnectTimeout() {
+            Runnable onTimeout = new Runnable() {
+                @Override
+                public void run() {
+                    if (!connected) {
+                        close(new CloseEvent.ReadException(new SocketTimeoutException("Connect timed out")));
+                    }
+                }
+            };
+            connectTimeout = fiber.schedule(onTimeout, socketConnector.getConnectTimeoutInMs(), TimeUnit.MILLISECONDS);
+        }
+
+        public void onConnected() {
+            connected = true;
+            connectOrder = null;
+            reconnectBackoff.reset();
+            lastHeartbeatNanos = 0;
+            if (disconnectedAtNanos != 0) {
+                final long reconnectNanos = System.nanoTime() - disconnectedAtNanos;
+                latencyStats.recordReconnect(reconnectNanos);
+                lastReconnectLatencyInMs = TimeUnit.NANOSECONDS.toMillis(reconnectNanos);
+                reconnectCount++;
+                disconnectedAtNanos = 0;
+            }
+            lastReadMs = System.currentTimeMillis();
+            if (connectTimeout != null) {
+                connectTimeout.dispose();
+            }
+            core.sendSubscriptions();
+            if (ended) {
+                return;
+            }
+            runWaitingForConnect();
+            if (ended) {
+                return;
+            }
+            Connected.publish(new ConnectEvent());
+            final int hbInterval = config.getHeartbeatIntervalInMs();
+            if (hbInterval > 0) {
+                Runnable hb = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            writer.writeByteAsInt(MsgTypes.Heartbeat);
+                        } catch (IOException exc) {
+                            close(new CloseEvent.WriteException(exc));
+                        }
+                    }
+                };
+                hbSchedule = fiber.scheduleWithFixedDelay(hb, hbInterval, hbInterval, TimeUnit.MILLISECONDS);
+            }
+            final int readTimeout = socketConnector.getReadTimeoutInMs();
+            if (readTimeout > 0) {
+                Runnable check = new Runnable() {
+                    @Override
+                    public void run() {
+                        final long now = System.currentTimeMillis();
+                        if (now - lastReadMs >= readTimeout) {
+                            lastReadMs = now;
+                            ReadTimeout.publish(new ReadTimeoutEvent());
+                        }
+                    }
+                };
+                //checked several times per timeout so an idle connection is noticed close to the timeout
+                final long period = Math.max(1, readTimeout / 4);
+                readTimeoutSchedule = fiber.scheduleWithFixedDelay(check, period, period, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void runWaitingForConnect() {
+            for (int i = 0; i < waitingForConnect.size(); i++) {
+                waitingForConnect.get(i).run();
+            }
+            waitingForConnect.clear();
+        }
+
+        @Override
+        public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+            if (!connected) {
+                try {
+                    if (!key.isConnectable() || !channel.finishConnect()) {
+                        return Result.Continue;
+                    }
+                } catch (IOException failed) {
+                    closeEvent = new CloseEvent.ReadException(failed);
+                    return Result.CloseSocket;
+                }
+                key.interestOps((key.interestOps() & ~SelectionKey.OP_CONNECT) | SelectionKey.OP_READ);
+                onConnected();
+                return Result.Continue;
+            }
+            try {
+                while (true) {
+                    //must get latest buffer b/c it may have been resized
+                    final ByteBuffer buffer = protocol.buffer;
+                    final int read = channel.read(buffer);
+                    switch (read) {
+                        case -1:
+                            return Result.CloseSocket;
+                        case 0:
+                            return Result.Continue;
+                        default:
+                            lastReadMs = System.currentTimeMillis();
+                            buffer.flip();
+                            while (buffer.remaining() >= nextCommand.getRequiredBytes()) {
+                                nextCommand = nextCommand.run();
+                            }
+                            protocol.onReadComplete();
+                            buffer.compact();
+                            if (nextCommand.getRequiredBytes() > buffer.capacity()) {
+                                protocol.resizeBuffer(nextCommand.getRequiredBytes());
+                            }
+                    }
+                }
+            } catch (IOException failed) {
+                closeEvent = new CloseEvent.ReadException(failed);
+                return Result.CloseSocket;
+            }
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return channel;
+        }
+
+        @Override
+        public int getInterestSet() {
+            return connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT;
+        }
+
+        public void close(CloseEvent event) {
+            if (!ended) {
+                closeEvent = event;
+                controls.close(channel);
+                onEnd();
+            }
+        }
+
+        @Override
+        public void onEnd() {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            if (connectTimeout != null) {
+                connectTimeout.dispose();
+            }
+            if (hbSchedule != null) {
+                hbSchedule.dispose();
+            }
+            if (readTimeoutSchedule != null) {
+                readTimeoutSchedule.dispose();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                errorHandler.onException(e);
+            }
+            onConnectionEnd(this);
+            //connect failed so the waiting work finds no connection
+            runWaitingForConnect();
+        }
+
+        @Override
+        public void onSelectorEnd() {
+            onEnd();
+        }
+
+        @Override
+        public ByteArrayBuffer getBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            write(buffer.take());
+        }
+
+        @Override
+        public void write(int byteToWrite) throws IOException {
+            buffer.appendIntAsByte(byteToWrite);
+            flush();
+        }
+
+        @Override
+        public void writeBytes(byte[] bytes) throws IOException {
+            write(ByteBuffer.wrap(bytes));
+        }
+
+        private void write(ByteBuffer data) throws IOException {
+            if (ended) {
+                throw new IOException("Connection closed");
+            }
+            writeStats.onWrite(data.remaining());
+            if (pendingWrite.data != null) {
+                checkPending(pendingWrite.data.remaining() + (long) data.remaining());
+                pendingWrite.data = NioFiberImpl.addTo(pendingWrite.data, data);
+                return;
+            }
+            NioFiberImpl.writeAll(channel, data);
+            if (data.remaining() > 0) {
+                checkPending(data.remaining());
+                pendingWrite.data = NioFiberImpl.addTo(null, data);
+                controls.addHandler(pendingWrite);
+            }
+        }
+
+        //a peer that stops reading would otherwise grow the pending bytes until the heap is exhausted
+        private void checkPending(long pending) throws IOException {
+            if (pending > config.getMaxPendingWriteBytes()) {
+                throw new IOException("Pending writes exceed " + config.getMaxPendingWriteBytes() + " bytes");
+            }
+        }
+
+        @Override
+        public boolean close() {
+            close(new CloseEvent.GracefulDisconnect());
+            return true;
+        }
+
+        /**
+         * Holds bytes the socket could not take and writes them when the socket is writable.
+         */
+        private class PendingWrite implements NioChannelHandler {
+            private ByteBuffer data;
+
+            @Override
+            public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+                try {
+                    NioFiberImpl.writeAll(channel, data);
+                } catch (IOException failed) {
+                    closeEvent = new CloseEvent.WriteException(failed);
+                    return Result.CloseSocket;
+                }
+                if (data.remaining() > 0) {
+                    return Result.Continue;
+                }
+                data = null;
+                return Result.RemoveHandler;
+            }
+
+            @Override
+            public SelectableChannel getChannel() {
+                return channel;
+            }
+
+            @Override
+            public int getInterestSet() {
+                return SelectionKey.OP_WRITE;
+            }
+
+            @Override
+            public void onEnd() {
+            }
+
+            @Override
+            public void onSelectorEnd() {
+            }
+        }
+    }
+
+    private static class WriteBuffer extends ByteArrayBuffer {
+
+        public ByteBuffer take() {
+            final ByteBuffer data = ByteBuffer.wrap(buffer, 0, position);
+            position = 0;
+            return data;
+        }
+    }
+
+    @Override
+    public void start() {
+        if (config.getInitialConnectDelayInMs() > 0) {
+            scheduleReconnect(config.getInitialConnectDelayInMs());
+        } else {
+            fiber.execute(connect);
+        }
+    }
+
+    @Override
+    public LogoutResult close(final boolean sendLogoutIfStillConnected) {
+        if (closed.compareAndSet(false, true)) {
+            Runnable disconnect = new Runnable() {
+                @Override
+                public void run() {
+                    if (pendingConnect != null) {
+                        pendingConnect.dispose();
+                        pendingConnect = null;
+                    }
+                    final Connection c = connection;
+                    if (c != null && c.connected && sendLogoutIfStillConnected && !logoutComplete.get()) {
+                        try {
+                            c.writer.writeByteAsInt(MsgTypes.Disconnect);
+                            Runnable onTimeout = new Runnable() {
+                                @Override
+                                public void run() {
+                                    finishClose();
+                                }
+                            };
+                            logoutTimeout = fiber.schedule(onTimeout, config.getLogoutLatchTimeout(), config.getLogoutLatchTimeoutUnit());
+                            return;
+                        } catch (IOException e) {
+                            errorHandler.onException(e);
+                        }
+                    }
+                    finishClose();
+                }
+            };
+            fiber.execute(disconnect);
+            return new LogoutResult(logoutComplete, closedLatch);
+        }
+        throw new RuntimeException("Already closed.");
+    }
+
+    @Override
+    public <T extends W, C extends R> Disposable request(final String reqTopic,
+                                                         final T req,
+                                                         final DisposingExecutor executor, final Callback<C> callback,
+                                                         final Callback<TimeoutControls> timeoutRunnable, int timeout, TimeUnit timeUnit) {
+        return core.request(reqTopic, req, executor, callback, timeoutRunnable, timeout, timeUnit);
+    }
+
+    /**
+     * @see JetlangTcpClient#request(String, Object, long, TimeUnit)
+     */
+    public <C extends R> CompletableFuture<C> request(String reqTopic, W req, long timeout, TimeUnit timeUnit) {
+        return this.<C>requestAll(reqTopic, Collections.singletonList(req), timeout, timeUnit).get(0);
+    }
+
+    /**
+     * @see JetlangTcpClient#requestAll(String, List, long, TimeUnit)
+     */
+    public <C extends R> List<CompletableFuture<C>> requestAll(String reqTopic, List<? extends W> reqs, long timeout, TimeUnit timeUnit) {
+        return core.requestAll(reqTopic, reqs, timeout, timeUnit);
+    }
+
+    /**
+     * Latency histograms for requests, publishes, heartbeats and reconnects of this client.
+     */
+    public ClientLatencyStats getLatencyStats() {
+        return latencyStats;
+    }
+
+    /**
+     * Bytes handed to the socket or buffered for it, across all connections made by this client.
+     */
+    public SocketWriteStats getWriteStats() {
+        return writeStats;
+    }
+
+    public Subscriber<CloseEvent> getCloseChannel() {
+        return Closed;
+    }
+
+    public Subscriber<ReadTimeoutEvent> getReadTimeoutChannel() {
+        return ReadTimeout;
+    }
+
+    public Subscriber<ConnectEvent> getConnectChannel() {
+        return Connected;
+    }
+
+    public Subscriber<DeadMessageEvent<W>> getDeadMessageChannel() {
+        return DeadMessage;
+    }
+
+    public void publish(String topic, W msg) {
+        publish(topic, msg, null);
+    }
+
+    public <T extends W> void publish(final String topic, final T msg, final Runnable onSend) {
+        final long enqueuedNanos = System.nanoTime();
+        Runnable r = new Runnable() {
+            public void run() {
+                if (core.getSocketWriter().send(topic, msg)) {
+                    latencyStats.recordPublishWrite(topic, System.nanoTime() - enqueuedNanos);
+                    if (onSend != null)
+                        onSend.run();
+                }
+            }
+        };
+        executeSend(r);
+    }
+
+    public void execOnSendThread(final Callback<SocketWriter<W>> cb) {
+        Runnable r = new Runnable() {
+            public void run() {
+                cb.onMessage(core.getSocketWriter());
+            }
+        };
+        executeSend(r);
+    }
+}
@@ -0,0 +1,238 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.remote.core.SocketMessageStreamWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Store and forward journal for messages published while a client is disconnected. Encoded frames are
+ * appended to memory mapped segment files in a directory and streamed to the server once the client connects.
+ * Frames left in the directory by a previous process are recovered when the journal is opened.
+ * <p>
+ * A segment is deleted once its frames have been flushed to the server, so a connection lost while draining
+ * can deliver a frame twice. When the journal is over its size limit the oldest segment is dropped, and frames
+ * older than the age limit are dropped instead of sent.
+ * <p>
+ * Not thread safe. Use one journal and directory per client.
+ */
+public class OutboundJournal {
+
+    private static final String suffix = ".journal";
+    //length and timestamp
+    private static final int recordHeader = 12;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final long maxAgeInMs;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+    private long nextSegmentId;
+    private byte[] scratch = new byte[1024];
+
+    private long appended;
+    private long replayed;
+    private long dropped;
+
+    /**
+     * @param segmentSize size of each mapped file, which also limits the size of one frame
+     * @param maxBytes    size of all segments to keep, zero for no limit
+     * @param maxAgeInMs  age after which frames are dropped instead of sent, zero for no limit
+     */
+    public OutboundJournal(File directory, int segmentSize, long maxBytes, long maxAgeInMs) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        this.maxAgeInMs = maxAgeInMs;
+        recover();
+    }
+
+    private void recover() throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(suffix)) {
+                final long id = Long.parseLong(name.substring(0, name.length() - suffix.length()));
+                nextSegmentId = Math.max(nextSegmentId, id + 1);
+                if (isEmpty(file)) {
+                    //a drained segment whose file could not be deleted while it was mapped
+                    file.delete();
+                    continue;
+                }
+                final Segment segment = new Segment(file, (int) Math.max(segmentSize, file.length()));
+                segment.scan();
+                segments.add(segment);
+            }
+        }
+    }
+
+    private static boolean isEmpty(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.length() < 4 || raf.readInt() <= 0;
+        }
+    }
+
+    /**
+     * @return false if the frame is larger than a segment
+     */
+    public boolean append(byte[] frame, int offset, int length, long nowInMs) throws IOException {
+        final int recordSize = recordHeader + length;
+        if (recordSize > segmentSize) {
+            return false;
+        }
+        Segment last = segments.peekLast();
+        if (last == null || last.remaining() < recordSize) {
+            last = newSegment(nowInMs);
+        }
+        last.append(frame, offset, length, nowInMs);
+        appended++;
+        return true;
+    }
+
+    private Segment newSegment(long nowInMs) throws IOException {
+        while (!segments.isEmpty()) {
+            final Segment oldest = segments.peekFirst();
+            final boolean overSize = maxBytes > 0 && (long) (segments.size() + 1) * segmentSize > maxBytes;
+            final boolean expired = maxAgeInMs > 0 && nowInMs - oldest.lastTimestamp > maxAgeInMs;
+            if (!overSize && !expired) {
+                break;
+            }
+            dropped += oldest.count;
+            segments.removeFirst().delete();
+        }
+        final File file = new File(directory, String.format("%019d", nextSegmentId++) + suffix);
+        final Segment segment = new Segment(file, segmentSize);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Writes every journaled frame to the output. Each segment is flushed and then deleted.
+     *
+     * @return the number of frames written
+     */
+    public int drainTo(SocketMessageStreamWriter.Out out, long nowInMs) throws IOException {
+        int written = 0;
+        while (!segments.isEmpty()) {
+            final Segment segment = segments.peekFirst();
+            final MappedByteBuffer map = segment.map;
+            int position = 0;
+            while (position < segment.position) {
+                final int length = map.getInt(position);
+                final long timestamp = map.getLong(position + 4);
+                if (maxAgeInMs > 0 && nowInMs - timestamp > maxAgeInMs) {
+                    dropped++;
+                } else {
+                    if (scratch.length < length) {
+                        scratch = new byte[Math.max(length, scratch.length * 2)];
+                    }
+                    map.position(position + recordHeader);
+                    map.get(scratch, 0, length);
+                    out.getBuffer().append(scratch, 0, length);
+                    written++;
+                }
+                position += recordHeader + length;
+            }
+            out.flush();
+            out.flushBuffered();
+            replayed += segment.count;
+            segments.removeFirst().delete();
+        }
+        return written;
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public int getPendingCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.count;
+        }
+        return count;
+    }
+
+    public long getAppendedCount() {
+        return appended;
+    }
+
+    /**
+     * @return frames removed by a drain, including any that were dropped for age
+     */
+    public long getReplayedCount() {
+        return replayed;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    private static class Segment {
+        private final File file;
+        private final MappedByteBuffer map;
+        private int position;
+        private int count;
+        private long lastTimestamp;
+
+        Segment(File file, int size) throws IOException {
+            this.file = file;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                //the mapping stays valid after the file is closed
+                this.map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        /**
+         * Finds the end of the records written by a previous process. A record whose length was never written is
+         * ignored.
+         */
+        void scan() {
+            while (position + recordHeader <= map.capacity()) {
+                final int length = map.getInt(position);
+                if (length <= 0 || position + recordHeader + length > map.capacity()) {
+                    break;
+                }
+                lastTimestamp = map.getLong(position + 4);
+                position += recordHeader + length;
+                count++;
+            }
+        }
+
+        int remaining() {
+            return map.capacity() - position;
+        }
+
+        void append(byte[] frame, int offset, int length, long nowInMs) {
+            map.putLong(position + 4, nowInMs);
+            map.position(position + recordHeader);
+            map.put(frame, offset, length);
+            //length last, so a record cut short by a crash reads as the end of the segment
+            map.putInt(position, length);
+            position += recordHeader + length;
+            count++;
+            lastTimestamp = nowInMs;
+        }
+
+        /**
+         * The mapping is only released once the buffer is garbage collected, and until then some platforms refuse
+         * to delete the file. The first record is cleared first, so a file left behind is recovered as empty.
+         */
+        void delete() {
+            map.putInt(0, 0);
+            file.delete();
+        }
+    }
+}
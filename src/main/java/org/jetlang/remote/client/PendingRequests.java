@@ -0,0 +1,199 @@
+package org.jetlang.remote.client;
+
+import java.util.List;
+
+/**
+ * Outstanding requests keyed by request id. Ids are held in an open addressing table so lookups do not box,
+ * and deadlines are held on a timer wheel that is advanced by one periodic task instead of a scheduled
+ * task per request. The task only needs to run while {@link #hasDeadlines()}.
+ * <p>
+ * Not thread safe.
+ */
+public class PendingRequests<T> {
+
+    private static final int wheelSize = 512;
+
+    private final long tickInMs;
+    private int[] keys = new int[64];
+    private Object[] values = new Object[64];
+    private long[] deadlines = new long[64];
+    private int size;
+
+    private final int[][] slots = new int[wheelSize][];
+    private final int[] slotCounts = new int[wheelSize];
+    private int wheelCount;
+    private long lastTick;
+
+    /**
+     * @param tickInMs resolution of the timer wheel
+     * @param nowInMs  start time of the wheel, on the same clock as the deadlines
+     */
+    public PendingRequests(long tickInMs, long nowInMs) {
+        this.tickInMs = Math.max(1, tickInMs);
+        this.lastTick = nowInMs / this.tickInMs;
+    }
+
+    /**
+     * @param deadlineInMs time to report the request by {@link #expire(long, List)}, or zero for no timeout
+     */
+    public void put(int id, T value, long deadlineInMs) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int index = indexOf(id);
+        if (index < 0) {
+            index = -index - 1;
+            size++;
+        }
+        keys[index] = id;
+        values[index] = value;
+        deadlines[index] = deadlineInMs;
+        if (deadlineInMs > 0) {
+            //never behind the wheel, otherwise it would wait a full rotation
+            addToSlot(Math.max(lastTick + 1, (deadlineInMs + tickInMs - 1) / tickInMs), id);
+        }
+    }
+
+    public T get(int id) {
+        final int index = indexOf(id);
+        //noinspection unchecked
+        return index >= 0 ? (T) values[index] : null;
+    }
+
+    public T remove(int id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        //noinspection unchecked
+        final T removed = (T) values[index];
+        size--;
+        //shift back the entries that follow so lookups do not need tombstones
+        final int mask = keys.length - 1;
+        int next = (index + 1) & mask;
+        while (values[next] != null) {
+            final int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                deadlines[index] = deadlines[next];
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[index] = null;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds every outstanding request to the list, in no particular order.
+     */
+    public void values(List<T> into) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                //noinspection unchecked
+                into.add((T) values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return false once every deadline has been reported or passed, so the wheel no longer needs advancing
+     */
+    public boolean hasDeadlines() {
+        return wheelCount > 0;
+    }
+
+    /**
+     * Advances the wheel and adds every request whose deadline has passed to the list. Expired requests stay in
+     * the table until removed, but are only reported once.
+     */
+    public void expire(long nowInMs, List<T> expired) {
+        final long nowTick = nowInMs / tickInMs;
+        //only one rotation is needed to visit every slot
+        final long from = Math.max(lastTick + 1, nowTick - wheelSize + 1);
+        for (long tick = from; tick <= nowTick; tick++) {
+            expireSlot((int) (tick & (wheelSize - 1)), nowInMs, expired);
+        }
+        lastTick = Math.max(lastTick, nowTick);
+    }
+
+    private void expireSlot(int slot, long nowInMs, List<T> expired) {
+        final int[] ids = slots[slot];
+        final int count = slotCounts[slot];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            final int id = ids[i];
+            final int index = indexOf(id);
+            if (index < 0 || deadlines[index] == 0) {
+                continue;
+            }
+            if (deadlines[index] <= nowInMs) {
+                deadlines[index] = 0;
+                //noinspection unchecked
+                expired.add((T) values[index]);
+            } else {
+                ids[kept++] = id;
+            }
+        }
+        wheelCount -= count - kept;
+        slotCounts[slot] = kept;
+    }
+
+    private void addToSlot(long tick, int id) {
+        final int slot = (int) (tick & (wheelSize - 1));
+        int[] ids = slots[slot];
+        final int count = slotCounts[slot];
+        if (ids == null) {
+            ids = slots[slot] = new int[16];
+        } else if (count == ids.length) {
+            final int[] grown = new int[count * 2];
+            System.arraycopy(ids, 0, grown, 0, count);
+            ids = slots[slot] = grown;
+        }
+        ids[count] = id;
+        slotCounts[slot] = count + 1;
+        wheelCount++;
+    }
+
+    /**
+     * @return the index of the key, or -(insertion point + 1) if it is not present
+     */
+    private int indexOf(int id) {
+        final int mask = keys.length - 1;
+        int index = hash(id) & mask;
+        while (values[index] != null) {
+            if (keys[index] == id) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -index - 1;
+    }
+
+    private static int hash(int id) {
+        final int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void resize(int capacity) {
+        final int[] oldKeys = keys;
+        final Object[] oldValues = values;
+        final long[] oldDeadlines = deadlines;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        deadlines = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                final int index = -indexOf(oldKeys[i]) - 1;
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                deadlines[index] = oldDeadlines[i];
+            }
+        }
+    }
+}
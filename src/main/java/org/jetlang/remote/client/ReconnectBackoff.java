@@ -0,0 +1,44 @@
+package org.jetlang.remote.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delay between connect attempts. Doubles from the reconnect delay up to the max delay after each failure
+ * and takes off a random part of each delay when jitter is configured.
+ * <p>
+ * Not thread safe.
+ */
+class ReconnectBackoff {
+
+    private final long initialDelayInMs;
+    private final long maxDelayInMs;
+    private final double jitter;
+    private long delayInMs;
+
+    ReconnectBackoff(JetlangClientConfig config) {
+        this(config.getReconnectDelayInMs(), config.getReconnectMaxDelayInMs(), config.getReconnectJitter());
+    }
+
+    ReconnectBackoff(long initialDelayInMs, long maxDelayInMs, double jitter) {
+        this.initialDelayInMs = initialDelayInMs;
+        this.maxDelayInMs = Math.max(initialDelayInMs, maxDelayInMs);
+        this.jitter = Math.max(0, Math.min(1, jitter));
+        this.delayInMs = initialDelayInMs;
+    }
+
+    /**
+     * @return the delay before the next attempt, always at least one ms
+     */
+    long next() {
+        final long delay = delayInMs;
+        delayInMs = Math.min(maxDelayInMs, delay * 2);
+        if (jitter > 0) {
+            return Math.max(1, delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble()));
+        }
+        return Math.max(1, delay);
+    }
+
+    void reset() {
+        delayInMs = initialDelayInMs;
+    }
+}
@@ -4,11 +4,93 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class SocketConnector {
 
-    private final String host;
-    private final int port;
+    /**
+     * Order in which endpoints are tried on each connect.
+     */
+    public enum Policy {
+        /**
+         * Endpoints in the order given, so the first endpoint is preferred whenever it is reachable.
+         */
+        Ordered,
+        /**
+         * A random order on every connect, which spreads clients across the endpoints.
+         */
+        Random,
+        /**
+         * Endpoints that have never failed or failed longest ago first.
+         */
+        LeastRecentFailure
+    }
+
+    public static class Endpoint {
+        private final String host;
+        private final int port;
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile long lastFailureMs;
+
+        public Endpoint(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public InetSocketAddress resolve() {
+            return new InetSocketAddress(host, port);
+        }
+
+        public void onAttempt() {
+            attempts.increment();
+        }
+
+        public void onFailure() {
+            lastFailureMs = System.currentTimeMillis();
+            failures.increment();
+        }
+
+        public long getAttemptCount() {
+            return attempts.sum();
+        }
+
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        public long getLastFailureMs() {
+            return lastFailureMs;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    private Policy policy = Policy.Ordered;
+    private long parallelConnectDelayInMs = 0;
     private boolean tcpNoDelay = true;
     private int readTimeoutInMs = 3000;
     private int connectTimeoutInMs = 4000;
@@ -16,8 +98,18 @@ public class SocketConnector {
     private int sendBufferSize = -1;
 
     public SocketConnector(String host, int port) {
-        this.host = host;
-        this.port = port;
+        this(Collections.singletonList(new Endpoint(host, port)));
+    }
+
+    public SocketConnector(Endpoint... endpoints) {
+        this(Arrays.asList(endpoints));
+    }
+
+    public SocketConnector(List<Endpoint> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        this.endpoints = new ArrayList<Endpoint>(endpoints);
     }
 
     public boolean isTcpNoDelay() {
@@ -60,11 +152,186 @@ public class SocketConnector {
         this.sendBufferSize = sendBufferSize;
     }
 
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public long getParallelConnectDelayInMs() {
+        return parallelConnectDelayInMs;
+    }
+
+    /**
+     * When greater than zero, {@link #connect()} races the endpoints. The next endpoint is tried whenever the
+     * delay passes without a connection and the first connection to complete is used.
+     */
+    public void setParallelConnectDelayInMs(long parallelConnectDelayInMs) {
+        this.parallelConnectDelayInMs = parallelConnectDelayInMs;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    public long getConnectAttemptCount() {
+        long total = 0;
+        for (Endpoint endpoint : endpoints) {
+            total += endpoint.getAttemptCount();
+        }
+        return total;
+    }
+
+    public long getConnectFailureCount() {
+        long total = 0;
+        for (Endpoint endpoint : endpoints) {
+            total += endpoint.getFailureCount();
+        }
+        return total;
+    }
+
+    /**
+     * @return the endpoints in the order the policy would try them now
+     */
+    public List<Endpoint> endpointsInOrder() {
+        final List<Endpoint> order = new ArrayList<Endpoint>(endpoints);
+        switch (policy) {
+            case Random:
+                Collections.shuffle(order, ThreadLocalRandom.current());
+                break;
+            case LeastRecentFailure:
+                //stable sort keeps the configured order between endpoints that have never failed
+                Collections.sort(order, new Comparator<Endpoint>() {
+                    @Override
+                    public int compare(Endpoint a, Endpoint b) {
+                        return Long.compare(a.getLastFailureMs(), b.getLastFailureMs());
+                    }
+                });
+                break;
+            default:
+        }
+        return order;
+    }
+
+    /**
+     * Tries each endpoint in policy order until one connects.
+     */
     public Socket connect() throws IOException {
-        InetSocketAddress endpoint = new InetSocketAddress(host, port);
-        Socket socket = configureSocket();
-        socket.connect(endpoint, connectTimeoutInMs);
-        return socket;
+        final List<Endpoint> order = endpointsInOrder();
+        if (parallelConnectDelayInMs > 0 && order.size() > 1) {
+            return raceConnect(order);
+        }
+        IOException last = null;
+        for (Endpoint endpoint : order) {
+            Socket socket = configureSocket();
+            endpoint.onAttempt();
+            try {
+                socket.connect(endpoint.resolve(), connectTimeoutInMs);
+                return socket;
+            } catch (IOException failed) {
+                endpoint.onFailure();
+                socket.close();
+                last = failed;
+            }
+        }
+        throw last;
+    }
+
+    /**
+     * Races channel connects to pick the endpoint, then connects a plain socket to it. The channel itself is not
+     * used, because on JDK 8 the streams of a channel's socket share one lock, so a write would wait for a blocked
+     * read to time out.
+     */
+    private Socket raceConnect(List<Endpoint> order) throws IOException {
+        final List<SocketChannel> attempts = new ArrayList<SocketChannel>();
+        final long[] startedAt = new long[order.size()];
+        SocketChannel winner = null;
+        Endpoint winnerEndpoint = null;
+        final Selector selector = Selector.open();
+        try {
+            IOException last = null;
+            int next = 0;
+            int pending = 0;
+            long nextStart = System.nanoTime();
+            final long timeout = TimeUnit.MILLISECONDS.toNanos(connectTimeoutInMs);
+            while (winner == null) {
+                long now = System.nanoTime();
+                if (next < order.size() && now - nextStart >= 0) {
+                    final Endpoint endpoint = order.get(next);
+                    endpoint.onAttempt();
+                    try {
+                        final SocketChannel channel = openChannel(endpoint);
+                        attempts.add(channel);
+                        if (channel.isConnected()) {
+                            winner = channel;
+                            winnerEndpoint = endpoint;
+                            break;
+                        }
+                        channel.register(selector, SelectionKey.OP_CONNECT, next);
+                        startedAt[next] = now;
+                        pending++;
+                    } catch (IOException failed) {
+                        endpoint.onFailure();
+                        last = failed;
+                    }
+                    next++;
+                    nextStart = now + TimeUnit.MILLISECONDS.toNanos(parallelConnectDelayInMs);
+                }
+                if (pending == 0 && next >= order.size()) {
+                    throw last;
+                }
+                for (SelectionKey key : selector.keys()) {
+                    final int index = (Integer) key.attachment();
+                    if (key.isValid() && now - startedAt[index] >= timeout) {
+                        order.get(index).onFailure();
+                        last = new SocketTimeoutException("connect timed out: " + order.get(index));
+                        key.cancel();
+                        pending--;
+                    }
+                }
+                if (pending == 0 && next >= order.size()) {
+                    throw last;
+                }
+                long waitNanos = timeout;
+                if (next < order.size()) {
+                    waitNanos = Math.min(waitNanos, nextStart - now);
+                }
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+                for (SelectionKey key : selector.selectedKeys()) {
+                    final SocketChannel channel = (SocketChannel) key.channel();
+                    final Endpoint endpoint = order.get((Integer) key.attachment());
+                    try {
+                        if (channel.finishConnect()) {
+                            winner = channel;
+                            winnerEndpoint = endpoint;
+                            break;
+                        }
+                    } catch (IOException failed) {
+                        endpoint.onFailure();
+                        last = failed;
+                        key.cancel();
+                        pending--;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } finally {
+            selector.close();
+            for (SocketChannel attempt : attempts) {
+                attempt.close();
+            }
+        }
+        final Socket socket = configureSocket();
+        try {
+            socket.connect(winnerEndpoint.resolve(), connectTimeoutInMs);
+            return socket;
+        } catch (IOException failed) {
+            winnerEndpoint.onFailure();
+            socket.close();
+            throw failed;
+        }
     }
 
     public Socket configureSocket() throws SocketException {
@@ -77,4 +344,36 @@ public class SocketConnector {
             socket.setSendBufferSize(sendBufferSize);
         return socket;
     }
+
+    /**
+     * Opens a non-blocking channel to the first endpoint in policy order and starts connecting.
+     *
+     * @see #openChannel(Endpoint)
+     */
+    public SocketChannel openChannel() throws IOException {
+        return openChannel(endpointsInOrder().get(0));
+    }
+
+    /**
+     * Opens a non-blocking channel and starts connecting. The caller completes the connect with
+     * {@link SocketChannel#finishConnect()} once the channel is connectable and reports a failed connect to
+     * the endpoint.
+     */
+    public SocketChannel openChannel(Endpoint endpoint) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            Socket socket = channel.socket();
+            socket.setTcpNoDelay(tcpNoDelay);
+            if (receiveBufferSize > 0)
+                socket.setReceiveBufferSize(receiveBufferSize);
+            if (sendBufferSize > 0)
+                socket.setSendBufferSize(sendBufferSize);
+            channel.connect(endpoint.resolve());
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,288 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.channels.Channel;
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.channels.Subscribable;
+import org.jetlang.channels.Subscriber;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.ReadTimeoutEvent;
+import org.jetlang.remote.core.SerializerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Spreads one logical client over several connections to the same acceptor, each with its own send fiber and
+ * read thread. Every topic is hashed to one stripe, and its publishes, subscriptions and requests all use that
+ * stripe, so messages on a topic stay in order.
+ * <p>
+ * The stripes connect as a unit. The connect event is published once every stripe is connected. When any stripe
+ * disconnects, the close event is published and the other stripes are disconnected too, so all of them reconnect
+ * and resubscribe together.
+ */
+public class StripedJetlangTcpClient<R, W> implements JetlangClient<R, W> {
+
+    private final List<JetlangTcpClient<R, W>> stripes = new ArrayList<JetlangTcpClient<R, W>>();
+    private final Channel<ConnectEvent> Connected = new MemoryChannel<ConnectEvent>();
+    private final Channel<CloseEvent> Closed = new MemoryChannel<CloseEvent>();
+    private final Channel<ReadTimeoutEvent> ReadTimeout = new MemoryChannel<ReadTimeoutEvent>();
+    private final Channel<DeadMessageEvent<W>> DeadMessage = new MemoryChannel<DeadMessageEvent<W>>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    //guarded by this
+    private final boolean[] connected;
+    private int connectedCount;
+    private boolean allConnected;
+
+    /**
+     * @param sendFibers one send fiber per stripe
+     */
+    public StripedJetlangTcpClient(SocketConnector socketConnector,
+                                   List<? extends Fiber> sendFibers,
+                                   JetlangClientConfig config,
+                                   SerializerFactory<R, W> serializerFactory,
+                                   ErrorHandler errorHandler) {
+        if (sendFibers.isEmpty()) {
+            throw new IllegalArgumentException("At least one send fiber is required");
+        }
+        this.connected = new boolean[sendFibers.size()];
+        for (Fiber sendFiber : sendFibers) {
+            final JetlangTcpClient<R, W> stripe = new JetlangTcpClient<R, W>(socketConnector, sendFiber, config, serializerFactory.create(), errorHandler);
+            final int index = stripes.size();
+            stripes.add(stripe);
+            final SynchronousDisposingExecutor inline = new SynchronousDisposingExecutor();
+            stripe.getConnectChannel().subscribe(inline, new Callback<ConnectEvent>() {
+                @Override
+                public void onMessage(ConnectEvent event) {
+                    onStripeConnected(index, event);
+                }
+            });
+            stripe.getCloseChannel().subscribe(inline, new Callback<CloseEvent>() {
+                @Override
+                public void onMessage(CloseEvent event) {
+                    onStripeClosed(index, event);
+                }
+            });
+            stripe.getReadTimeoutChannel().subscribe(inline, new Callback<ReadTimeoutEvent>() {
+                @Override
+                public void onMessage(ReadTimeoutEvent event) {
+                    ReadTimeout.publish(event);
+                }
+            });
+            stripe.getDeadMessageChannel().subscribe(inline, new Callback<DeadMessageEvent<W>>() {
+                @Override
+                public void onMessage(DeadMessageEvent<W> event) {
+                    DeadMessage.publish(event);
+                }
+            });
+        }
+    }
+
+    private void onStripeConnected(int index, ConnectEvent event) {
+        synchronized (this) {
+            if (connected[index]) {
+                return;
+            }
+            connected[index] = true;
+            connectedCount++;
+            if (connectedCount < connected.length) {
+                return;
+            }
+            allConnected = true;
+        }
+        Connected.publish(event);
+    }
+
+    private void onStripeClosed(int index, CloseEvent event) {
+        final List<JetlangTcpClient<R, W>> toDisconnect = new ArrayList<JetlangTcpClient<R, W>>();
+        synchronized (this) {
+            if (connected[index]) {
+                connected[index] = false;
+                connectedCount--;
+            }
+            if (!allConnected) {
+                return;
+            }
+            allConnected = false;
+            for (int i = 0; i < connected.length; i++) {
+                if (connected[i]) {
+                    toDisconnect.add(stripes.get(i));
+                }
+            }
+        }
+        Closed.publish(event);
+        if (!closed.get()) {
+            final IOException cause = new IOException("Stripe " + index + " disconnected");
+            for (JetlangTcpClient<R, W> stripe : toDisconnect) {
+                stripe.reconnect(cause);
+            }
+        }
+    }
+
+    /**
+     * @return the stripe that carries the topic
+     */
+    public JetlangTcpClient<R, W> getStripe(String topic) {
+        final int h = topic.hashCode();
+        return stripes.get(((h ^ (h >>> 16)) & Integer.MAX_VALUE) % stripes.size());
+    }
+
+    public List<JetlangTcpClient<R, W>> getStripes() {
+        return stripes;
+    }
+
+    @Override
+    public Subscriber<ConnectEvent> getConnectChannel() {
+        return Connected;
+    }
+
+    @Override
+    public Subscriber<CloseEvent> getCloseChannel() {
+        return Closed;
+    }
+
+    @Override
+    public Subscriber<ReadTimeoutEvent> getReadTimeoutChannel() {
+        return ReadTimeout;
+    }
+
+    @Override
+    public Subscriber<DeadMessageEvent<W>> getDeadMessageChannel() {
+        return DeadMessage;
+    }
+
+    @Override
+    public void publish(String topic, W msg) {
+        getStripe(topic).publish(topic, msg);
+    }
+
+    @Override
+    public <T extends R> Disposable subscribe(String subject, Subscribable<T> callback) {
+        return getStripe(subject).subscribe(subject, callback);
+    }
+
+    @Override
+    public <T extends R> Disposable subscribe(String topic, DisposingExecutor clientFiber, Callback<T> cb) {
+        return getStripe(topic).subscribe(topic, clientFiber, cb);
+    }
+
+    @Override
+    public void start() {
+        for (JetlangTcpClient<R, W> stripe : stripes) {
+            stripe.start();
+        }
+    }
+
+    @Override
+    public LogoutResult close(boolean sendLogoutIfStillConnected) {
+        if (!closed.compareAndSet(false, true)) {
+            throw new RuntimeException("Already closed.");
+        }
+        final List<LogoutResult> results = new ArrayList<LogoutResult>();
+        for (JetlangTcpClient<R, W> stripe : stripes) {
+            results.add(stripe.close(sendLogoutIfStillConnected));
+        }
+        return new StripedLogoutResult(results);
+    }
+
+    @Override
+    public <T extends W, C extends R> Disposable request(String reqTopic, T req, DisposingExecutor executor, Callback<C> callback, Callback<TimeoutControls> timeoutRunnable, int timeout, TimeUnit timeUnit) {
+        return getStripe(reqTopic).request(reqTopic, req, executor, callback, timeoutRunnable, timeout, timeUnit);
+    }
+
+    /**
+     * Runs the callback on the first stripe's send thread. Messages sent through the writer are handed to the
+     * stripe for their topic, and a send is reported as successful once it is queued on another stripe.
+     * <p>
+     * Sends on topics carried by other stripes are not ordered with publishes on those topics. Use
+     * {@link #execOnSendThread(String, Callback)} to keep a topic in order.
+     */
+    @Override
+    public void execOnSendThread(final Callback<SocketWriter<W>> cb) {
+        execOnSendThread(stripes.get(0), cb);
+    }
+
+    /**
+     * Runs the callback on the send thread of the stripe that carries the topic, so sends on the topic stay in
+     * order with publishes on it.
+     *
+     * @see #execOnSendThread(Callback)
+     */
+    public void execOnSendThread(String topic, final Callback<SocketWriter<W>> cb) {
+        execOnSendThread(getStripe(topic), cb);
+    }
+
+    private void execOnSendThread(final JetlangTcpClient<R, W> target, final Callback<SocketWriter<W>> cb) {
+        target.execOnSendThread(new Callback<SocketWriter<W>>() {
+            @Override
+            public void onMessage(final SocketWriter<W> targetWriter) {
+                cb.onMessage(new SocketWriter<W>() {
+                    @Override
+                    public boolean send(String topic, W msg) {
+                        final JetlangTcpClient<R, W> stripe = getStripe(topic);
+                        if (stripe == target) {
+                            return targetWriter.send(topic, msg);
+                        }
+                        stripe.publish(topic, msg);
+                        return true;
+                    }
+                });
+            }
+        });
+    }
+
+    private static class StripedLogoutResult extends LogoutResult {
+        private final List<LogoutResult> results;
+
+        StripedLogoutResult(List<LogoutResult> results) {
+            super(new AtomicBoolean(), new CountDownLatch(0));
+            this.results = results;
+        }
+
+        @Override
+        public boolean logoutLatchComplete() {
+            for (LogoutResult result : results) {
+                if (!result.logoutLatchComplete()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean closedLatchComplete() {
+            for (LogoutResult result : results) {
+                if (!result.closedLatchComplete()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean await(int time, TimeUnit unit) throws InterruptedException {
+            return awaitClosedLatchOnly(time, unit) && logoutLatchComplete();
+        }
+
+        @Override
+        public boolean awaitClosedLatchOnly(int time, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(time);
+            for (LogoutResult result : results) {
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(Math.max(0, deadline - System.nanoTime()));
+                if (!result.awaitClosedLatchOnly((int) Math.min(Integer.MAX_VALUE, remaining), TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
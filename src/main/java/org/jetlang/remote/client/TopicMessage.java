@@ -0,0 +1,27 @@
+package org.jetlang.remote.client;
+
+public class TopicMessage<T> {
+    private final String topic;
+    private final T message;
+
+    public TopicMessage(String topic, T message) {
+        this.topic = topic;
+        this.message = message;
+    }
+
+    public T getMessage() {
+        return message;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    @Override
+    public String toString() {
+        return "TopicMessage{" +
+                "topic='" + topic + '\'' +
+                ", message=" + message +
+                '}';
+    }
+}
@@ -42,6 +42,11 @@ public class ByteArrayBuffer {
         appendIntAsByte((v >>> 0) & 0xFF);
     }
 
+    public void appendLong(long v) {
+        appendInt((int) (v >>> 32));
+        appendInt((int) v);
+    }
+
     public void append(byte[] bytes, int offset, int length) {
         resize(length);
         System.arraycopy(bytes, offset, buffer, position, length);
@@ -29,6 +29,7 @@ public class JetlangRemotingInputStream {
         while (buffer.remaining() >= nextCommand.getRequiredBytes()) {
             nextCommand = nextCommand.run();
         }
+        protocol.onReadComplete();
         buffer.compact();
         if (nextCommand.getRequiredBytes() > buffer.capacity()) {
             protocol.resizeBuffer(nextCommand.getRequiredBytes());
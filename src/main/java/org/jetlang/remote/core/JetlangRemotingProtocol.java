@@ -49,6 +49,15 @@ public class JetlangRemotingProtocol<T> {
                     return dataRequest.reqIdSt;
                 case MsgTypes.DataReply:
                     return dataRequestReply.reqIdSt;
+                case MsgTypes.ResumeRequest:
+                    return resumeRequest.first.first;
+                case MsgTypes.SessionToken:
+                    return sessionToken.first;
+                case MsgTypes.ResumeAccepted:
+                    execEvent(session::onResumeAccepted);
+                    return this;
+                case MsgTypes.Sequence:
+                    return sequence;
                 default:
                     session.onUnknownMessage(read);
                     return this;
@@ -56,6 +65,13 @@ public class JetlangRemotingProtocol<T> {
         }
     };
 
+    /**
+     * Invoked by the reader once every complete message from a single socket read has been decoded.
+     */
+    public void onReadComplete() {
+        execEvent(session::onReadComplete);
+    }
+
     private void execEvent(Runnable event) {
         try {
             event.run();
@@ -86,6 +102,27 @@ public class JetlangRemotingProtocol<T> {
             return root;
         }
     };
+    private final StringState sessionToken = new StringState() {
+        @Override
+        protected State onString(String val) {
+            execEvent(() -> session.onSessionToken(val));
+            return root;
+        }
+    };
+    private final ResumeRequest resumeRequest = new ResumeRequest();
+    private final State sequence = new State() {
+        @Override
+        public int getRequiredBytes() {
+            return 8;
+        }
+
+        @Override
+        public State run() {
+            final long seq = buffer.getLong();
+            execEvent(() -> session.onSequence(seq));
+            return root;
+        }
+    };
     private final ObjectByteReader<T> reader;
 
     public void resizeBuffer(int requiredBytes) {
@@ -115,6 +152,40 @@ public class JetlangRemotingProtocol<T> {
         void onRequestReply(int reqId, String dataTopicVal, T readObject);
 
         void onHandlerException(Exception failed);
+
+        /**
+         * Marks the end of the messages decoded from one socket read.
+         */
+        default void onReadComplete() {
+        }
+
+        /**
+         * Client asks to resume a session. Sent as the first frame of a connection with an empty token when there is nothing to resume.
+         */
+        default void onResumeRequest(String token, long lastSequence) {
+            onUnknownMessage(MsgTypes.ResumeRequest);
+        }
+
+        /**
+         * Server started a new session. An empty token means the session cannot be resumed.
+         */
+        default void onSessionToken(String token) {
+            onUnknownMessage(MsgTypes.SessionToken);
+        }
+
+        /**
+         * Server resumed the session. Frames the client missed follow.
+         */
+        default void onResumeAccepted() {
+            onUnknownMessage(MsgTypes.ResumeAccepted);
+        }
+
+        /**
+         * Sequence number of the frame that follows.
+         */
+        default void onSequence(long sequence) {
+            onUnknownMessage(MsgTypes.Sequence);
+        }
     }
 
     public JetlangRemotingProtocol(Handler<T> session, ObjectByteReader<T> reader, TopicReader charset) {
@@ -200,6 +271,30 @@ public class JetlangRemotingProtocol<T> {
         protected abstract State onObject(String dataTopicVal, T readObject) throws IOException;
     }
 
+    private class ResumeRequest {
+        String token;
+        State lastSequence = new State() {
+            @Override
+            public int getRequiredBytes() {
+                return 8;
+            }
+
+            @Override
+            public State run() {
+                final long seq = buffer.getLong();
+                execEvent(() -> session.onResumeRequest(token, seq));
+                return root;
+            }
+        };
+        StringState first = new StringState() {
+            @Override
+            protected State onString(String val) {
+                token = val;
+                return lastSequence;
+            }
+        };
+    }
+
     private class DataRequest extends DataRequestBase {
         @Override
         protected void handleRequest(int reqId, String dataTopicVal, T readObject) {
@@ -0,0 +1,145 @@
+package org.jetlang.remote.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log bucketed histogram of durations in nanos. Each power of two is split into 16 linear buckets, so a
+ * recorded value is reported within about 6% of its true value. Recording does not allocate and is safe
+ * from any thread.
+ */
+public class LatencyHistogram {
+
+    private static final int subBucketBits = 4;
+    private static final int subBuckets = 1 << subBucketBits;
+    private static final int bucketCount = (64 - subBucketBits) * subBuckets;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * subBuckets) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        return shift * subBuckets + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < 2 * subBuckets) {
+            return index;
+        }
+        final int shift = index / subBuckets - 1;
+        return (long) (index - shift * subBuckets) << shift;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < 2 * subBuckets) {
+            return index;
+        }
+        final int shift = index / subBuckets - 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+
+    public Snapshot snapshot() {
+        final long[] copy = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, sum.sum(), max.get());
+    }
+
+    /**
+     * Takes a snapshot and clears the histogram. Values recorded while the snapshot is taken are either in the
+     * snapshot or kept for the next one.
+     */
+    public Snapshot snapshotAndReset() {
+        final long[] copy = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            copy[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(copy, sum.sumThenReset(), max.getAndSet(0));
+    }
+
+    public void reset() {
+        snapshotAndReset();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : sum / (double) count;
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         * @return the highest value in the bucket that holds the percentile, capped by the recorded max
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long target = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(highestValueAt(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count +
+                    ", meanUs=" + TimeUnit.NANOSECONDS.toMicros((long) getMeanNanos()) +
+                    ", p50Us=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(50)) +
+                    ", p99Us=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99)) +
+                    ", p999Us=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99.9)) +
+                    ", maxUs=" + TimeUnit.NANOSECONDS.toMicros(max) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.channels.Channel;
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.channels.Subscribable;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+/**
+ * Channel that is not allocated until the first subscription. Until then, publishing is a no-op since
+ * there is nobody to deliver to. Once materialized, the channel is registered with the group and is closed with it.
+ */
+public class LazyChannel<T> implements Channel<T> {
+
+    private final CloseableChannel.Group group;
+    private volatile CloseableChannel<T> channel;
+
+    public LazyChannel(CloseableChannel.Group group) {
+        this.group = group;
+    }
+
+    public void publish(T t) {
+        final CloseableChannel<T> target = channel;
+        if (target != null) {
+            target.publish(t);
+        }
+    }
+
+    public Disposable subscribe(DisposingExecutor disposingExecutor, Callback<T> tCallback) {
+        return materialize().subscribe(disposingExecutor, tCallback);
+    }
+
+    public Disposable subscribe(Subscribable<T> tSubscribable) {
+        return materialize().subscribe(tSubscribable);
+    }
+
+    /**
+     * @return true once a subscription has been made. Callers can use this to skip building events nobody receives.
+     */
+    public boolean isMaterialized() {
+        return channel != null;
+    }
+
+    private CloseableChannel<T> materialize() {
+        CloseableChannel<T> target = channel;
+        if (target == null) {
+            synchronized (this) {
+                target = channel;
+                if (target == null) {
+                    target = group.add(new MemoryChannel<T>());
+                    channel = target;
+                }
+            }
+        }
+        return target;
+    }
+}
@@ -9,6 +9,10 @@ public class MsgTypes {
     public static final int Unsubscribe = 5;
     public static final int DataRequest = 6;
     public static final int DataReply = 7;
+    public static final int ResumeRequest = 8;
+    public static final int SessionToken = 9;
+    public static final int ResumeAccepted = 10;
+    public static final int Sequence = 11;
 
     private MsgTypes() {
 
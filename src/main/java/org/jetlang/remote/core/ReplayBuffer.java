@@ -0,0 +1,46 @@
+package org.jetlang.remote.core;
+
+/**
+ * Bounded window of the most recent sequenced frames sent to a session. Frames are numbered from 1.
+ * A reconnecting client can resume as long as every frame after its last received sequence is still in the window.
+ */
+public class ReplayBuffer {
+
+    private final byte[][] frames;
+    private long lastSequence;
+
+    public ReplayBuffer(int capacity) {
+        this.frames = new byte[capacity][];
+    }
+
+    /**
+     * @return the sequence assigned to the frame
+     */
+    public synchronized long add(byte[] frame) {
+        final long seq = ++lastSequence;
+        frames[index(seq)] = frame;
+        return seq;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized boolean canReplayFrom(long receivedSequence) {
+        return receivedSequence <= lastSequence && receivedSequence >= lastSequence - frames.length;
+    }
+
+    /**
+     * @return the frame or null if it is no longer in the window
+     */
+    public synchronized byte[] get(long sequence) {
+        if (sequence > lastSequence || sequence <= lastSequence - frames.length || sequence < 1) {
+            return null;
+        }
+        return frames[index(sequence)];
+    }
+
+    private int index(long seq) {
+        return (int) (seq % frames.length);
+    }
+}
@@ -1,17 +1,19 @@
 package org.jetlang.remote.core;
 
-import org.jetlang.remote.acceptor.MessageStreamWriter;
+import org.jetlang.core.Callback;
+import org.jetlang.remote.acceptor.SequencedMessageStreamWriter;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
 
 /**
  * User: mrettig
  * Date: 4/6/11
  * Time: 8:52 AM
  */
-public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
+public class SocketMessageStreamWriter<T> implements SequencedMessageStreamWriter<T> {
     private final Charset charset;
     private final ObjectByteWriter<T> writer;
     private final ByteArrayBuffer buffer;
@@ -73,6 +75,21 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
         writeData(reqTopic, req);
     }
 
+    public void bufferMessage(String topic, T msg) throws IOException {
+        buffer.appendIntAsByte(MsgTypes.Data);
+        writeIntoBuffer(topic, msg);
+    }
+
+    public void bufferRequest(int id, String reqTopic, T req) throws IOException {
+        buffer.appendIntAsByte(MsgTypes.DataRequest);
+        buffer.appendInt(id);
+        writeIntoBuffer(reqTopic, req);
+    }
+
+    public void flush() throws IOException {
+        socketOutputStream.flush();
+    }
+
     public void writeReply(int reqId, String requestTopic, T replyMsg) throws IOException {
         buffer.appendIntAsByte(MsgTypes.DataReply);
         buffer.appendInt(reqId);
@@ -95,6 +112,27 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
         socketOutputStream.writeBytes(bytes);
     }
 
+    public void writeSequenced(long sequence, byte[] frame) throws IOException {
+        buffer.appendIntAsByte(MsgTypes.Sequence);
+        buffer.appendLong(sequence);
+        buffer.append(frame);
+        socketOutputStream.flush();
+    }
+
+    public void writeResumeRequest(String token, long lastSequence) throws IOException {
+        byte[] bytes = token.getBytes(charset);
+        buffer.appendIntAsByte(MsgTypes.ResumeRequest);
+        buffer.appendIntAsByte(bytes.length);
+        buffer.append(bytes);
+        buffer.appendLong(lastSequence);
+        socketOutputStream.flush();
+    }
+
+    @Override
+    public void flushBuffered() throws IOException {
+        socketOutputStream.flushBuffered();
+    }
+
     public interface Out {
         ByteArrayBuffer getBuffer();
 
@@ -105,17 +143,29 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
         void writeBytes(byte[] bytes) throws IOException;
 
         boolean close();
+
+        /**
+         * Writes any bytes held back by the stream. Streams that write on every flush have nothing to do.
+         */
+        default void flushBuffered() throws IOException {
+        }
     }
 
     public static class BufferedStream implements Out {
         private final ByteArrayBuffer buffer;
         private final ClosableOutputStream closable;
         private final OutputStream output;
+        private final SocketWriteStats stats;
 
         public BufferedStream(ByteArrayBuffer buffer, ClosableOutputStream closable) throws IOException {
+            this(buffer, closable, new SocketWriteStats());
+        }
+
+        public BufferedStream(ByteArrayBuffer buffer, ClosableOutputStream closable, SocketWriteStats stats) throws IOException {
             this.buffer = buffer;
             this.closable = closable;
             this.output = closable.getOutputStream();
+            this.stats = stats;
         }
 
         public ByteArrayBuffer getBuffer() {
@@ -123,16 +173,19 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
         }
 
         public void flush() throws IOException {
+            stats.onWrite(buffer.position);
             buffer.flushTo(closable.getOutputStream());
         }
 
         public void write(int byteToWrite) throws IOException {
             //write directly. no need for buffer.
+            stats.onWrite(1);
             output.write(byteToWrite);
         }
 
         public void writeBytes(byte[] bytes) throws IOException {
             //write directly. no need for buffer.
+            stats.onWrite(bytes.length);
             output.write(bytes);
         }
 
@@ -141,4 +194,103 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
         }
     }
 
+    /**
+     * Holds encoded messages in the buffer while the send fiber has more work queued.
+     * The first buffered message queues a flush behind the pending work, so the socket is written
+     * once the queue drains. The buffer is written sooner if it grows past maxBufferedBytes or
+     * if the oldest buffered message has waited longer than maxDelayNanos.
+     * <p>
+     * Must only be used from the send fiber that is passed in.
+     */
+    public static class AdaptiveStream implements Out {
+        private final ByteArrayBuffer buffer;
+        private final OutputStream output;
+        private final ClosableOutputStream closable;
+        private final Executor sendFiber;
+        private final int maxBufferedBytes;
+        private final long maxDelayNanos;
+        private final Callback<IOException> onFlushFailure;
+        private final SocketWriteStats stats;
+        private volatile boolean closed;
+        private boolean flushPending;
+        private long firstBufferedNanos;
+
+        private final Runnable flushOnDrain = new Runnable() {
+            @Override
+            public void run() {
+                flushPending = false;
+                if (!closed) {
+                    try {
+                        flushBuffered();
+                    } catch (IOException e) {
+                        onFlushFailure.onMessage(e);
+                    }
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "AdaptiveStream.flushOnDrain()";
+            }
+        };
+
+        public AdaptiveStream(ByteArrayBuffer buffer, ClosableOutputStream closable, Executor sendFiber,
+                              int maxBufferedBytes, long maxDelayNanos,
+                              Callback<IOException> onFlushFailure, SocketWriteStats stats) throws IOException {
+            this.buffer = buffer;
+            this.closable = closable;
+            this.output = closable.getOutputStream();
+            this.sendFiber = sendFiber;
+            this.maxBufferedBytes = maxBufferedBytes;
+            this.maxDelayNanos = maxDelayNanos;
+            this.onFlushFailure = onFlushFailure;
+            this.stats = stats;
+        }
+
+        public ByteArrayBuffer getBuffer() {
+            return buffer;
+        }
+
+        public void flush() throws IOException {
+            if (buffer.position >= maxBufferedBytes) {
+                flushBuffered();
+            } else if (flushPending) {
+                if (System.nanoTime() - firstBufferedNanos >= maxDelayNanos) {
+                    flushBuffered();
+                }
+            } else {
+                flushPending = true;
+                firstBufferedNanos = System.nanoTime();
+                sendFiber.execute(flushOnDrain);
+            }
+        }
+
+        public void write(int byteToWrite) throws IOException {
+            //buffer to preserve ordering with pending messages.
+            buffer.appendIntAsByte(byteToWrite);
+            flush();
+        }
+
+        public void writeBytes(byte[] bytes) throws IOException {
+            buffer.append(bytes);
+            flush();
+        }
+
+        @Override
+        public void flushBuffered() throws IOException {
+            final int position = buffer.position;
+            if (position > 0) {
+                //restart the delay for anything buffered before the queued flush runs.
+                firstBufferedNanos = System.nanoTime();
+                stats.onWrite(position);
+                buffer.flushTo(output);
+            }
+        }
+
+        public boolean close() {
+            closed = true;
+            return closable.close();
+        }
+    }
+
 }
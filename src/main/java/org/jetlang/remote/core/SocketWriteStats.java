@@ -0,0 +1,44 @@
+package org.jetlang.remote.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts writes made to a socket output stream. A single instance may be shared by many streams.
+ */
+public class SocketWriteStats {
+
+    private final LongAdder syscalls = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public void onWrite(int byteCount) {
+        syscalls.increment();
+        bytes.add(byteCount);
+    }
+
+    public long getSyscallCount() {
+        return syscalls.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytes.sum();
+    }
+
+    public double getAverageBytesPerSyscall() {
+        long count = getSyscallCount();
+        return count == 0 ? 0 : getBytesWritten() / (double) count;
+    }
+
+    public void reset() {
+        syscalls.reset();
+        bytes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SocketWriteStats{" +
+                "syscalls=" + getSyscallCount() +
+                ", bytes=" + getBytesWritten() +
+                ", avgBytesPerSyscall=" + getAverageBytesPerSyscall() +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package org.jetlang.web;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A response body sent as it is produced with Transfer-Encoding: chunked, so it never has to be held in memory.
+ * Each write is sent as one chunk. Producers keep the bytes buffered for the connection bounded by writing while
+ * {@link #isWritable()} and otherwise waiting for {@link #whenWritable}.
+ */
+public class ChunkedResponse {
+
+    private final HttpResponse response;
+    private final NioWriter writer;
+    private long highWaterMark = 256 * 1024;
+    private long lowWaterMark = 64 * 1024;
+    private boolean ended;
+
+    /**
+     * @param writer supplies the buffered byte count, or null if the response cannot report it and is always writable
+     */
+    public ChunkedResponse(HttpResponse response, NioWriter writer) {
+        this.response = response;
+        this.writer = writer;
+    }
+
+    /**
+     * The connection is not writable while more than highWaterMark bytes are buffered, and becomes writable again
+     * once no more than lowWaterMark bytes are.
+     */
+    public void setWaterMarks(long lowWaterMark, long highWaterMark) {
+        if (lowWaterMark > highWaterMark) {
+            throw new IllegalArgumentException("low water mark " + lowWaterMark + " > high water mark " + highWaterMark);
+        }
+        this.lowWaterMark = lowWaterMark;
+        this.highWaterMark = highWaterMark;
+    }
+
+    public boolean isWritable() {
+        return writer == null || writer.getTotalBytesBuffered() <= highWaterMark;
+    }
+
+    /**
+     * Runs the callback once the buffered bytes fall to the low water mark or the connection closes, at once if
+     * that is already the case. The callback runs on the nio fiber, so producers running elsewhere should hand
+     * back to their own fiber.
+     */
+    public void whenWritable(Runnable callback) {
+        if (writer == null) {
+            callback.run();
+        } else {
+            writer.whenBufferedAtMost(lowWaterMark, callback);
+        }
+    }
+
+    public SendResult write(byte[] content) {
+        return write(content, 0, content.length);
+    }
+
+    /**
+     * Sends the bytes as one chunk. Empty writes send nothing, since an empty chunk ends the body.
+     */
+    public SendResult write(byte[] content, int offset, int length) {
+        if (ended) {
+            throw new IllegalStateException("Chunked response already ended");
+        }
+        if (length == 0) {
+            return SendResult.SUCCESS;
+        }
+        return sendChunk(content, offset, length);
+    }
+
+    /**
+     * Sends the last chunk. The connection can then carry the next response.
+     */
+    public SendResult end() {
+        if (ended) {
+            throw new IllegalStateException("Chunked response already ended");
+        }
+        ended = true;
+        return sendChunk(new byte[0], 0, 0);
+    }
+
+    private SendResult sendChunk(byte[] content, int offset, int length) {
+        if (writer != null) {
+            return writer.sendChunk(content, offset, length);
+        }
+        ByteBuffer bb = ByteBuffer.allocate(HttpResponseWriter.chunkHeadLength(length) + length + 2);
+        HttpResponseWriter.writeChunkHead(bb, length);
+        bb.put(content, offset, length);
+        HttpResponseWriter.writeChunkEnd(bb);
+        bb.flip();
+        return response.send(bb);
+    }
+}
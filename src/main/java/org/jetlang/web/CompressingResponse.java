@@ -0,0 +1,90 @@
+package org.jetlang.web;
+
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Compresses response bodies with the encoding negotiated for the request. Bodies below the size threshold,
+ * content types that are not compressible, partial content and bodies that already have a Content-Encoding are
+ * sent as is, as are files, chunked bodies and raw buffers.
+ */
+public class CompressingResponse extends HttpResponse.Decorator {
+
+    private final HttpResponse target;
+    private final String encoding;
+    private final ResponseCompression compression;
+
+    /**
+     * @param encoding gzip or deflate
+     */
+    public CompressingResponse(HttpResponse target, String encoding, ResponseCompression compression) {
+        super(target);
+        this.target = target;
+        this.encoding = encoding;
+        this.compression = compression;
+    }
+
+    public HttpResponse getTarget() {
+        return target;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public ResponseCompression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public SendResult sendResponse(int statusCode, String statusTxt, String contentType, KeyValueList headers, byte[] content, Charset charset) {
+        if (statusCode != 206 && compression.isCompressible(contentType, content.length)
+                && (headers == null || (headers.get("Content-Encoding") == null && headers.get("Content-Range") == null))) {
+            final byte[] compressed = compression.compress(content, 0, content.length, encoding);
+            if (compressed.length < content.length) {
+                final KeyValueList withEncoding = new KeyValueList(headers == null ? 2 : headers.size() + 2, false);
+                if (headers != null) {
+                    for (KeyValueList.Entry header : headers) {
+                        withEncoding.add(header.name, header.value);
+                    }
+                }
+                withEncoding.add("Content-Encoding", encoding);
+                withEncoding.add("Vary", "Accept-Encoding");
+                return target.sendResponse(statusCode, statusTxt, contentType, withEncoding, compressed, charset);
+            }
+        }
+        return target.sendResponse(statusCode, statusTxt, contentType, headers, content, charset);
+    }
+
+    /**
+     * Wraps the response of every request that accepts gzip or deflate.
+     */
+    public static class Handler<T> implements HttpRequestHandler<T> {
+        private final HttpRequestHandler<T> target;
+        private final ResponseCompression compression;
+
+        public Handler(HttpRequestHandler<T> target, ResponseCompression compression) {
+            this.target = target;
+            this.compression = compression;
+        }
+
+        @Override
+        public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<T> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<T> reader, NioWriter writer, T sessionState) {
+            final String encoding = compression.negotiate(headers);
+            if (encoding != null) {
+                response = new CompressingResponse(response, encoding, compression);
+            }
+            return target.dispatch(dispatcher, headers, response, reader, writer, sessionState);
+        }
+
+        @Override
+        public boolean readsBody() {
+            return target.readsBody();
+        }
+
+        @Override
+        public void onException(Throwable processingException, SocketChannel channel) {
+            target.onException(processingException, channel);
+        }
+    }
+}
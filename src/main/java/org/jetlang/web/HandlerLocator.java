@@ -13,15 +13,30 @@ public interface HandlerLocator<T> {
 
     Handler<T> find(HttpRequest headers, T sessionState);
 
+    /**
+     * Tries each locator in the order added. Routes added one after another are compiled into a single
+     * {@link RadixRouter}, while other matchers and locators are tested in their place.
+     */
     class List<T> implements HandlerLocator<T> {
         private final ArrayList<HandlerLocator<T>> events = new ArrayList<>();
+        private RadixRouter<T> router;
 
         public void add(PathMatcher<T> matcher, Handler<T> handler) {
-            add(new PathLocator<T>(matcher, handler));
+            //subclasses may override handles(), so only the plain route types are compiled
+            if (matcher.getClass() == PathMatcher.Route.class || matcher.getClass() == PathMatcher.PathEq.class) {
+                if (router == null) {
+                    router = new RadixRouter<>();
+                    events.add(router);
+                }
+                router.add((PathMatcher.Route<T>) matcher, handler);
+            } else {
+                add(new PathLocator<T>(matcher, handler));
+            }
         }
 
         public void add(HandlerLocator<T> locator) {
             events.add(locator);
+            router = null;
         }
 
         @Override
@@ -42,12 +57,18 @@ public interface HandlerLocator<T> {
         private final HttpSecurity<T> security;
         private final Map<String, MimeType> fileExtensionToContentType;
         private final Path path;
+        private final StaticFiles files;
 
         public ResourcesDirectory(Path dir, HttpSecurity<T> security, Map<String, MimeType> fileExtensionToContentType) {
+            this(dir, security, fileExtensionToContentType, new StaticFiles());
+        }
+
+        public ResourcesDirectory(Path dir, HttpSecurity<T> security, Map<String, MimeType> fileExtensionToContentType, StaticFiles files) {
             //remove relative paths and make absolute
             path = getReal(dir);
             this.security = security;
             this.fileExtensionToContentType = fileExtensionToContentType;
+            this.files = files;
         }
 
         private static Path getReal(Path dir) {
@@ -87,8 +108,7 @@ public interface HandlerLocator<T> {
                     @Override
                     public void handle(Fiber dispatchFiber, HttpRequest headers, HttpResponse writer, T sessionState) {
                         try {
-                            byte[] bytes = Files.readAllBytes(finalResource);
-                            writer.sendResponse(200, "OK", contentType.getContentType(), bytes, contentType.getCharset(finalResource, bytes));
+                            files.send(headers, writer, finalResource, contentType);
                         } catch (IOException e) {
                             writer.sendResponse(404, "Not Found", "text/plain", e.getMessage(), HeaderReader.ascii);
                         }
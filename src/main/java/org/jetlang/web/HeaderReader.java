@@ -3,14 +3,17 @@ package org.jetlang.web;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
 
-import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 public class HeaderReader<T> {
 
     public static final Charset ascii = Charset.forName("ASCII");
+    //longest chunk size or trailer line accepted in a chunked body
+    private static final int maxChunkLine = 8 * 1024;
     private final SocketChannel channel;
     private final NioFiber fiber;
     private final NioControls controls;
@@ -22,8 +25,17 @@ public class HeaderReader<T> {
     private SessionDispatcherFactory.SessionDispatcher<T> sessionDispatcher;
     private final NioWriter writer;
     private final HttpResponse httpWriter;
+    private final int maxBodySize;
 
     public HeaderReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, SessionFactory<T> sessionFactory, SessionDispatcherFactory<T> dispatcher, IoBufferPool bufferFactory) {
+        this(channel, fiber, controls, handler, sessionFactory, dispatcher, bufferFactory, HttpRequestHandler.Default.defaultMaxBodySize);
+    }
+
+    /**
+     * @param maxBodySize limit on bodies read whole for handlers that do not read the body themselves
+     */
+    public HeaderReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, SessionFactory<T> sessionFactory, SessionDispatcherFactory<T> dispatcher, IoBufferPool bufferFactory, int maxBodySize) {
+        this.maxBodySize = maxBodySize;
         this.channel = channel;
         this.fiber = fiber;
         this.controls = controls;
@@ -35,7 +47,7 @@ public class HeaderReader<T> {
     }
 
     public NioReader.State start() {
-        return new FirstLine();
+        return new ReadRequestHead();
     }
 
     public NioFiber getReadFiber() {
@@ -53,36 +65,52 @@ public class HeaderReader<T> {
         handler.onException(processingException, channel);
     }
 
-    public class FirstLine implements NioReader.State {
-        private final HttpRequest headers = new HttpRequest(writer.getRemoteAddress());
+    /**
+     * Waits for the blank line that ends the request head, then parses the head in one pass. When the head spans
+     * several reads, scanning resumes where the previous read stopped instead of at the start of the head.
+     */
+    public class ReadRequestHead implements NioReader.State {
+        //bytes from the buffer position already searched for the end of the head
+        private int scanned;
 
         @Override
         public NioReader.State processBytes(ByteBuffer buffer) {
-            final int startPosition = buffer.position();
-            while (buffer.remaining() > 0) {
-                if (isCurrentCharEol(buffer)) {
-                    addFirstLine(buffer.array(), startPosition, buffer.position() - startPosition);
-                    return new HeaderLine(headers);
-                } else {
-                    buffer.position(buffer.position() + 1);
-                }
+            final byte[] array = buffer.array();
+            final int limit = buffer.limit();
+            int start = buffer.position();
+            //blank lines before a request line, such as a CRLF sent after a body, are ignored
+            while (start < limit && isEol(array[start])) {
+                start++;
+            }
+            buffer.position(start);
+            final int end = RequestHead.findEnd(array, start, start + scanned, limit);
+            if (end < 0) {
+                //the last bytes may hold part of the blank line
+                scanned = Math.max(0, limit - start - 3);
+                return null;
+            }
+            final RequestHead head = RequestHead.parse(array, start, end - start);
+            buffer.position(end);
+            final HttpRequest headers = new HttpRequest(writer.getRemoteAddress(), head);
+            final String transferEncoding = head.get("Transfer-Encoding");
+            if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+                //the chunks carry the length, so a Content-Length header is ignored
+                headers.chunked = true;
+                headers.contentLength = 0;
             }
-            buffer.position(startPosition);
-            return null;
+            return dispatchHttpRequest(headers);
         }
+    }
 
-        private void addFirstLine(byte[] array, int startPosition, int length) {
-            int first = find(array, startPosition, length, ' ');
-            int firstLength = first - startPosition;
-            headers.method = new String(array, startPosition, firstLength, ascii);
-            int second = find(array, first + 1, length - firstLength, ' ');
-            int secondLength = second - first - 1;
-            headers.setRequestUri(URI.create(new String(array, startPosition + firstLength + 1, secondLength, ascii)));
-            headers.protocolVersion = new String(array, startPosition + firstLength + secondLength + 2, length - firstLength - secondLength - 2, ascii);
+    public NioReader.State dispatchHttpRequest(HttpRequest headers) {
+        if (headers.hasBody() && !handler.readsBody()) {
+            //the handler would leave the body unread, and it would then be parsed as the next request
+            return bufferBody(headers, maxBodySize, () -> dispatch(headers));
         }
+        return dispatch(headers);
     }
 
-    public NioReader.State dispatchHttpRequest(HttpRequest headers) {
+    private NioReader.State dispatch(HttpRequest headers) {
         if (!sessionInit) {
             sessionInit = true;
             session = sessionFactory.create(channel, fiber, controls, headers);
@@ -91,111 +119,192 @@ public class HeaderReader<T> {
         return handler.dispatch(sessionDispatcher, headers, httpWriter, HeaderReader.this, writer, session);
     }
 
-    public class HeaderLine implements NioReader.State {
-
-        private final HttpRequest headers;
-        int eol;
-
-        public HeaderLine(HttpRequest headers) {
-            this.headers = headers;
+    /**
+     * Reads the body of the request, passing each part to the listener as it arrives, then continues with the next
+     * state. Bodies larger than maxBodySize are answered with 413 and the connection is closed.
+     */
+    public NioReader.State readBody(HttpRequest request, StreamingHttpHandler.BodyListener listener, long maxBodySize, Supplier<NioReader.State> next) {
+        if (!request.hasBody()) {
+            listener.onComplete();
+            return next.get();
         }
-
-        @Override
-        public NioReader.State processBytes(ByteBuffer buffer) {
-            int stripped = stripEndOfLines(buffer);
-            eol += stripped;
-            if (eol == 4) {
-                if (headers.contentLength == 0) {
-                    return dispatchHttpRequest(headers);
-                } else {
-                    return new ContentReader(headers);
-                }
-            }
-            if (buffer.hasRemaining() && eol == 2) {
-                return new ReadHeader(headers);
-            }
-            return null;
+        if (request.contentLength > maxBodySize) {
+            listener.onClosed();
+            return reject(413, "Payload Too Large");
         }
+        return new BodyReader(request, listener, maxBodySize, next);
     }
 
-    private class ContentReader implements NioReader.State {
+    /**
+     * Reads the whole body into the request's content, then continues with the next state.
+     */
+    public NioReader.State bufferBody(HttpRequest request, long maxBodySize, Supplier<NioReader.State> next) {
+        return readBody(request, new BufferedBody(request), maxBodySize, next);
+    }
+
+    private NioReader.State reject(int statusCode, String statusTxt) {
+        final KeyValueList close = new KeyValueList(1, false);
+        close.add("Connection", "close");
+        httpWriter.sendResponse(statusCode, statusTxt, "text/plain", close, statusTxt.getBytes(ascii), ascii);
+        return NioReader.CLOSE;
+    }
 
-        private final HttpRequest headers;
+    private static class BufferedBody implements StreamingHttpHandler.BodyListener {
+        private final HttpRequest request;
+        private byte[] content;
+        private int size;
 
-        public ContentReader(HttpRequest headers) {
-            this.headers = headers;
+        BufferedBody(HttpRequest request) {
+            this.request = request;
+            this.content = new byte[request.chunked ? 1024 : request.contentLength];
         }
 
         @Override
-        public int minRequiredBytes() {
-            return headers.contentLength;
+        public void onBody(byte[] data, int offset, int length) {
+            if (size + length > content.length) {
+                content = Arrays.copyOf(content, Math.max(size + length, content.length * 2));
+            }
+            System.arraycopy(data, offset, content, size, length);
+            size += length;
         }
 
         @Override
-        public NioReader.State processBytes(ByteBuffer bb) {
-            byte[] content = new byte[this.headers.contentLength];
-            bb.get(content);
-            headers.content = content;
-            return dispatchHttpRequest(headers);
+        public void onComplete() {
+            request.content = size == content.length ? content : Arrays.copyOf(content, size);
+            request.contentLength = size;
         }
     }
 
-    public class ReadHeader implements NioReader.State {
-
-        private final HttpRequest headers;
-
-        public ReadHeader(HttpRequest headers) {
-            this.headers = headers;
+    /**
+     * Passes the body on as it arrives, so the read buffer never has to hold more than one read. Chunked bodies are
+     * decoded and their trailers skipped.
+     */
+    private class BodyReader implements NioReader.State {
+        private static final int data = 0;
+        private static final int chunkEnd = 1;
+        private static final int chunkSize = 2;
+        private static final int trailer = 3;
+
+        private final HttpRequest request;
+        private final StreamingHttpHandler.BodyListener listener;
+        private final long maxBodySize;
+        private final Supplier<NioReader.State> next;
+        private int step;
+        //bytes left in the body, or in the current chunk
+        private long remaining;
+        private long total;
+
+        BodyReader(HttpRequest request, StreamingHttpHandler.BodyListener listener, long maxBodySize, Supplier<NioReader.State> next) {
+            this.request = request;
+            this.listener = listener;
+            this.maxBodySize = maxBodySize;
+            this.next = next;
+            this.step = request.chunked ? chunkSize : data;
+            this.remaining = request.chunked ? 0 : request.contentLength;
         }
 
         @Override
-        public NioReader.State processBytes(ByteBuffer buffer) {
-            final int startPosition = buffer.position();
-            while (buffer.remaining() > 0) {
-                if (isCurrentCharEol(buffer)) {
-                    addHeader(buffer.array(), startPosition, buffer.position() - startPosition);
-                    return new HeaderLine(headers);
-                } else {
-                    buffer.position(buffer.position() + 1);
+        public NioReader.State processBytes(ByteBuffer bb) {
+            while (true) {
+                if (step == data) {
+                    final int length = (int) Math.min(remaining, bb.remaining());
+                    if (length > 0) {
+                        listener.onBody(bb.array(), bb.position(), length);
+                        bb.position(bb.position() + length);
+                        remaining -= length;
+                    }
+                    if (remaining > 0) {
+                        return null;
+                    }
+                    if (!request.chunked) {
+                        return complete();
+                    }
+                    step = chunkEnd;
+                }
+                final int lineEnd = findLineEnd(bb);
+                if (lineEnd == -2) {
+                    listener.onClosed();
+                    return reject(400, "Bad Request");
+                }
+                if (lineEnd < 0) {
+                    return null;
+                }
+                final int lineStart = bb.position();
+                bb.position(lineEnd + 1);
+                final int lineLength = lineEnd > lineStart && bb.array()[lineEnd - 1] == '\r' ? lineEnd - 1 - lineStart : lineEnd - lineStart;
+                if (step == chunkEnd) {
+                    if (lineLength != 0) {
+                        listener.onClosed();
+                        return reject(400, "Bad Request");
+                    }
+                    step = chunkSize;
+                } else if (step == chunkSize) {
+                    final long size = parseChunkSize(bb.array(), lineStart, lineLength);
+                    if (size < 0) {
+                        listener.onClosed();
+                        return reject(400, "Bad Request");
+                    }
+                    total += size;
+                    if (total > maxBodySize) {
+                        listener.onClosed();
+                        return reject(413, "Payload Too Large");
+                    }
+                    remaining = size;
+                    step = size == 0 ? trailer : data;
+                } else if (lineLength == 0) {
+                    return complete();
                 }
             }
-            buffer.position(startPosition);
-            return null;
         }
 
-        private void addHeader(byte[] array, int startPosition, int length) {
-            int first = find(array, startPosition, length, ':');
-            final int nameLength = first - startPosition;
-            String name = new String(array, startPosition, nameLength, ascii);
-            String value = new String(array, startPosition + nameLength + 2, length - nameLength - 2, ascii);
-            headers.add(name, value);
-            if (name.equalsIgnoreCase("Content-Length")) {
-                headers.contentLength = Integer.parseInt(value);
+        /**
+         * @return the index of the next LF, -1 if it has not arrived yet, or -2 if the line is too long
+         */
+        private int findLineEnd(ByteBuffer bb) {
+            final byte[] array = bb.array();
+            final int limit = Math.min(bb.limit(), bb.position() + maxChunkLine);
+            for (int i = bb.position(); i < limit; i++) {
+                if (array[i] == '\n') {
+                    return i;
+                }
             }
+            return limit - bb.position() == maxChunkLine ? -2 : -1;
         }
-    }
 
-    private static int find(byte[] array, int startPosition, int length, char c) {
-        final int endPos = startPosition + length;
-        for (int i = startPosition; i < endPos; i++) {
-            if (array[i] == c) {
-                return i;
-            }
+        private NioReader.State complete() {
+            step = -1;
+            //handlers further down see the body as read, so it is not read again
+            request.bodyRead = true;
+            listener.onComplete();
+            return next.get();
         }
-        throw new RuntimeException(c + " not found in " + new String(array, startPosition, length) + " " + startPosition + " " + length);
-    }
 
-    private static int stripEndOfLines(ByteBuffer buffer) {
-        int count = 0;
-        while (buffer.remaining() > 0 && isCurrentCharEol(buffer)) {
-            buffer.position(buffer.position() + 1);
-            count++;
+        @Override
+        public void onClosed() {
+            if (step >= 0) {
+                listener.onClosed();
+            }
         }
-        return count;
     }
 
-    private static boolean isCurrentCharEol(ByteBuffer buffer) {
-        return isEol(buffer.get(buffer.position()));
+    /**
+     * @return the hex size before any chunk extension, or -1 if it is malformed
+     */
+    static long parseChunkSize(byte[] array, int offset, int length) {
+        long size = 0;
+        int digits = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final int c = array[i];
+            if (c == ';' || c == ' ' || c == '\t') {
+                break;
+            }
+            final int digit = Character.digit(c, 16);
+            if (digit < 0 || ++digits > 15) {
+                return -1;
+            }
+            size = size * 16 + digit;
+        }
+        return digits == 0 ? -1 : size;
     }
 
     private static boolean isEol(byte c) {
@@ -12,14 +12,21 @@ public class HttpRequest {
     public static final Charset defaultBodyCharset = Charset.forName("ISO-8859-1");
 
     private static final byte[] empty = new byte[0];
-    private final KeyValueList headers = new KeyValueList(false);
     private final SocketAddress socketAddress;
+    //raw request line and headers, materialized on first use
+    private RequestHead head;
+    private KeyValueList headers;
     String method;
     private URI requestUri;
     String protocolVersion;
     int contentLength;
+    //true when the body arrives with Transfer-Encoding: chunked
+    boolean chunked;
+    //set once the body has been read from the connection
+    boolean bodyRead;
     byte[] content = empty;
     private KeyValueList queryParams = KeyValueList.EMPTY;
+    private KeyValueList pathParams = KeyValueList.EMPTY;
 
     public HttpRequest(String method, String uri, String protocolVersion, SocketAddress remoteAddress) {
         this.method = method;
@@ -32,14 +39,36 @@ public class HttpRequest {
         this.socketAddress = socketAddress;
     }
 
+    HttpRequest(SocketAddress socketAddress, RequestHead head) {
+        this.socketAddress = socketAddress;
+        this.head = head;
+        this.contentLength = head.getContentLength();
+    }
+
     public SocketAddress getRemoteAddress() {
         return socketAddress;
     }
 
     public KeyValueList getQueryParams() {
+        getRequestUri();
         return queryParams;
     }
 
+    /**
+     * @return values matched by {name} segments of the route that handles the request
+     */
+    public KeyValueList getPathParams() {
+        return pathParams;
+    }
+
+    public String getPathParam(String name) {
+        return pathParams.get(name);
+    }
+
+    public void setPathParams(KeyValueList pathParams) {
+        this.pathParams = pathParams;
+    }
+
     public KeyValueList parsePostParams(boolean failOnUnsupportedEncoding, boolean caseSensitiveKeys) {
         String body = getContentAsString(failOnUnsupportedEncoding);
         return KeyValueList.parseUrlEncoded(body, caseSensitiveKeys);
@@ -56,51 +85,77 @@ public class HttpRequest {
     }
 
     public String get(String key) {
-        return headers.get(key);
+        if (headers == null && head != null) {
+            return head.get(key);
+        }
+        return getHeaders().get(key);
     }
 
     public byte[] getContent() {
         return content;
     }
 
+    /**
+     * @return true if a body follows the head, either with a Content-Length or chunked, and has not been read yet
+     */
+    public boolean hasBody() {
+        return !bodyRead && (chunked || contentLength > 0);
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
     public KeyValueList getHeaders() {
+        if (headers == null) {
+            headers = head != null ? head.headers() : new KeyValueList(false);
+        }
         return headers;
     }
 
     public String getMethod() {
+        if (method == null && head != null) {
+            method = head.method();
+        }
         return method;
     }
 
     public URI getRequestUri() {
+        if (requestUri == null && head != null) {
+            setRequestUri(URI.create(head.uri()));
+        }
         return requestUri;
     }
 
     public String getPath() {
-        return requestUri.getPath();
+        return getRequestUri().getPath();
     }
 
     public String getProtocolVersion() {
+        if (protocolVersion == null && head != null) {
+            protocolVersion = head.protocolVersion();
+        }
         return protocolVersion;
     }
 
     @Override
     public String toString() {
         return "HttpRequest{" +
-                "headers=" + headers +
-                ", method='" + method + '\'' +
-                ", requestUri='" + requestUri + '\'' +
-                ", protocolVersion='" + protocolVersion + '\'' +
+                "headers=" + getHeaders() +
+                ", method='" + getMethod() + '\'' +
+                ", requestUri='" + getRequestUri() + '\'' +
+                ", protocolVersion='" + getProtocolVersion() + '\'' +
                 '}';
     }
 
     public void add(String name, String value) {
-        headers.add(name, value);
+        getHeaders().add(name, value);
     }
 
     public ByteBuffer toByteBuffer(Charset charset) {
         StringBuilder builder = new StringBuilder();
-        builder.append(method).append(" ").append(requestUri).append(" ").append(protocolVersion).append("\r\n");
-        headers.appendTo(builder);
+        builder.append(getMethod()).append(" ").append(getRequestUri()).append(" ").append(getProtocolVersion()).append("\r\n");
+        getHeaders().appendTo(builder);
         String result = builder.append("\r\n").toString();
         return ByteBuffer.wrap(result.getBytes(charset));
     }
@@ -109,7 +164,7 @@ public class HttpRequest {
      * @return charset found in request or default body charset if one isn't present
      */
     public Charset getContentCharset(boolean failOnUnsupported) {
-        String s = headers.get("Content-Type");
+        String s = get("Content-Type");
         if (s != null) {
             StringTokenizer content = new StringTokenizer(s, ";");
             while (content.hasMoreElements()) {
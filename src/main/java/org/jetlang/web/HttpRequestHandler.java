@@ -7,30 +7,58 @@ public interface HttpRequestHandler<T> {
 
     void onException(Throwable processingException, SocketChannel channel);
 
+    /**
+     * @return true if the handler is dispatched as soon as the request head arrives and reads the body itself with
+     * {@link HeaderReader#readBody} or {@link HeaderReader#bufferBody}. Otherwise the whole body is read into the
+     * request before dispatch.
+     */
+    default boolean readsBody() {
+        return false;
+    }
+
     interface ExceptionHandler {
 
         void onException(Throwable processingException, SocketChannel channel);
     }
 
+    /**
+     * Finds the handler for the request. Bodies are read whole before the handler starts, unless it is a
+     * {@link StreamingHttpHandler}.
+     */
     class Default<T> implements HttpRequestHandler<T> {
+        public static final int defaultMaxBodySize = 64 * 1024 * 1024;
         private HandlerLocator.List<T> handlerMap;
         private final Handler<T> defaultHandler;
         private final ExceptionHandler handler;
+        private final int maxBodySize;
 
         public Default(HandlerLocator.List<T> handlerMap, Handler<T> defaultHandler, ExceptionHandler handler) {
+            this(handlerMap, defaultHandler, handler, defaultMaxBodySize);
+        }
+
+        /**
+         * @param maxBodySize larger bodies are answered with 413 instead of being read into memory
+         */
+        public Default(HandlerLocator.List<T> handlerMap, Handler<T> defaultHandler, ExceptionHandler handler, int maxBodySize) {
             this.handlerMap = handlerMap;
             this.defaultHandler = defaultHandler;
             this.handler = handler;
+            this.maxBodySize = maxBodySize;
         }
 
         @Override
         public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<T> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<T> reader, NioWriter writer, T sessionState) {
-            Handler<T> h = handlerMap.find(headers, sessionState);
-            if (h != null) {
-                return h.start(dispatcher, headers, response, reader, writer, sessionState);
-            } else {
-                return defaultHandler.start(dispatcher, headers, response, reader, writer, sessionState);
+            Handler<T> found = handlerMap.find(headers, sessionState);
+            final Handler<T> h = found != null ? found : defaultHandler;
+            if (headers.hasBody() && !(h instanceof StreamingHttpHandler)) {
+                return reader.bufferBody(headers, maxBodySize, () -> h.start(dispatcher, headers, response, reader, writer, sessionState));
             }
+            return h.start(dispatcher, headers, response, reader, writer, sessionState);
+        }
+
+        @Override
+        public boolean readsBody() {
+            return true;
         }
 
         @Override
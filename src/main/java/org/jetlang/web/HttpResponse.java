@@ -3,6 +3,7 @@ package org.jetlang.web;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -29,26 +30,47 @@ public interface HttpResponse {
     }
 
     default SendResult sendResponse(int statusCode, String statusTxt, String contentType, KeyValueList headers, byte[] content, Charset charset) {
-        StringBuilder response = new StringBuilder();
-        response.append("HTTP/1.1 ").append(statusCode).append(' ').append(statusTxt).append("\r\n");
-        response.append("Content-Type: ").append(contentType);
-        if (charset != null) {
-            response.append("; charset=").append(charset.name());
-        }
-        response.append("\r\n");
-
-        if (headers != null) {
-            headers.appendTo(response);
-        }
-        response.append("Content-Length: ").append(content.length).append("\r\n\r\n");
-        byte[] header = response.toString().getBytes(HeaderReader.ascii);
-        ByteBuffer bb = ByteBuffer.allocate(header.length + content.length);
-        bb.put(header);
+        final int headLength = HttpResponseWriter.headLength(statusCode, statusTxt, contentType, headers, content.length, charset);
+        ByteBuffer bb = ByteBuffer.allocate(headLength + content.length);
+        HttpResponseWriter.writeHead(bb, statusCode, statusTxt, contentType, headers, content.length, charset);
         bb.put(content);
         bb.flip();
         return send(bb);
     }
 
+    /**
+     * Sends the head followed by a region of the file, and closes the file. This default reads the region into
+     * memory and sends it with {@link #send}.
+     */
+    default SendResult sendFile(ByteBuffer head, FileChannel file, long position, long count) {
+        try (FileChannel toRead = file) {
+            final int headLength = head.remaining();
+            ByteBuffer bb = ByteBuffer.allocate(headLength + (int) count);
+            bb.put(head);
+            while (bb.hasRemaining()) {
+                if (toRead.read(bb, position + bb.position() - headLength) < 0) {
+                    throw new IOException("File ended before " + count + " bytes were read");
+                }
+            }
+            bb.flip();
+            return send(bb);
+        } catch (IOException failed) {
+            return new SendResult.FailedWithError(failed);
+        }
+    }
+
+    /**
+     * Sends the head of a response with Transfer-Encoding: chunked and returns the body to write to. This default
+     * sends through {@link #send} and cannot report buffered bytes, so the body is always writable.
+     */
+    default ChunkedResponse startChunked(int statusCode, String statusTxt, String contentType, KeyValueList headers, Charset charset) {
+        ByteBuffer bb = ByteBuffer.allocate(HttpResponseWriter.headLength(statusCode, statusTxt, contentType, headers, -1, charset));
+        HttpResponseWriter.writeHead(bb, statusCode, statusTxt, contentType, headers, -1, charset);
+        bb.flip();
+        send(bb);
+        return new ChunkedResponse(this, null);
+    }
+
     SocketAddress getRemoteAddress();
 
     SendResult send(ByteBuffer fullResponse);
@@ -74,12 +96,31 @@ public interface HttpResponse {
             return writer.send(fullResponse);
         }
 
+        @Override
+        public SendResult sendResponse(int statusCode, String statusTxt, String contentType, KeyValueList headers, byte[] content, Charset charset) {
+            return writer.sendResponse(statusCode, statusTxt, contentType, headers, content, charset);
+        }
+
+        @Override
+        public SendResult sendFile(ByteBuffer head, FileChannel file, long position, long count) {
+            return writer.sendFile(head, file, position, count);
+        }
+
+        @Override
+        public ChunkedResponse startChunked(int statusCode, String statusTxt, String contentType, KeyValueList headers, Charset charset) {
+            writer.sendChunkedHead(statusCode, statusTxt, contentType, headers, charset);
+            return new ChunkedResponse(this, writer);
+        }
+
         @Override
         public SocketAddress getRemoteAddress() {
             return writer.getRemoteAddress();
         }
     }
 
+    /**
+     * Forwards to the target, so the decorated response keeps the target's file, chunked and buffered sends.
+     */
     class Decorator implements HttpResponse {
 
         private final HttpResponse target;
@@ -97,6 +138,21 @@ public interface HttpResponse {
         public SendResult send(ByteBuffer fullResponse) {
             return target.send(fullResponse);
         }
+
+        @Override
+        public SendResult sendResponse(int statusCode, String statusTxt, String contentType, KeyValueList headers, byte[] content, Charset charset) {
+            return target.sendResponse(statusCode, statusTxt, contentType, headers, content, charset);
+        }
+
+        @Override
+        public SendResult sendFile(ByteBuffer head, FileChannel file, long position, long count) {
+            return target.sendFile(head, file, position, count);
+        }
+
+        @Override
+        public ChunkedResponse startChunked(int statusCode, String statusTxt, String contentType, KeyValueList headers, Charset charset) {
+            return target.startChunked(statusCode, statusTxt, contentType, headers, charset);
+        }
     }
 
 }
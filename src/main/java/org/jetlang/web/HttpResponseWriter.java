@@ -0,0 +1,208 @@
+package org.jetlang.web;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes response heads straight into a byte buffer. Status lines and Content-Type lines are encoded once and
+ * cached, and numbers are written as digits without creating Strings.
+ */
+public final class HttpResponseWriter {
+
+    private static final byte[] crlf = {'\r', '\n'};
+    private static final byte[] separator = {':', ' '};
+    private static final byte[] contentLengthName = ascii("Content-Length: ");
+    private static final byte[] chunkedEncoding = ascii("Transfer-Encoding: chunked\r\n");
+    private static final byte[] hex = ascii("0123456789abcdef");
+    private static final byte[] httpVersion = ascii("HTTP/1.1 ");
+    private static final int maxCachedContentTypes = 256;
+
+    private static final StatusLine[] statusLines = new StatusLine[600];
+    private static final ConcurrentHashMap<String, byte[]> contentTypes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Charset, ConcurrentHashMap<String, byte[]>> contentTypesByCharset = new ConcurrentHashMap<>();
+
+    static {
+        status(100, "Continue");
+        status(101, "Switching Protocols");
+        status(200, "OK");
+        status(201, "Created");
+        status(202, "Accepted");
+        status(204, "No Content");
+        status(206, "Partial Content");
+        status(301, "Moved Permanently");
+        status(302, "Found");
+        status(304, "Not Modified");
+        status(400, "Bad Request");
+        status(401, "Unauthorized");
+        status(403, "Forbidden");
+        status(404, "Not Found");
+        status(405, "Method Not Allowed");
+        status(413, "Payload Too Large");
+        status(416, "Range Not Satisfiable");
+        status(500, "Internal Server Error");
+        status(503, "Service Unavailable");
+    }
+
+    private static class StatusLine {
+        final String text;
+        final byte[] bytes;
+
+        StatusLine(int code, String text) {
+            this.text = text;
+            this.bytes = ascii("HTTP/1.1 " + code + ' ' + text + "\r\n");
+        }
+    }
+
+    private HttpResponseWriter() {
+    }
+
+    private static void status(int code, String text) {
+        statusLines[code] = new StatusLine(code, text);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(HeaderReader.ascii);
+    }
+
+    /**
+     * @param contentLength the body length, or -1 for a chunked body
+     * @return the number of bytes {@link #writeHead} will write
+     */
+    public static int headLength(int statusCode, String statusTxt, String contentType, KeyValueList headers, long contentLength, Charset charset) {
+        final byte[] cached = cachedStatusLine(statusCode, statusTxt);
+        int length = cached != null ? cached.length : httpVersion.length + digits(statusCode) + 1 + statusTxt.length() + 2;
+        length += contentTypeLine(contentType, charset).length;
+        if (headers != null) {
+            for (KeyValueList.Entry header : headers) {
+                length += header.name.length() + header.value.length() + 4;
+            }
+        }
+        if (contentLength < 0) {
+            return length + chunkedEncoding.length + 2;
+        }
+        return length + contentLengthName.length + digits(contentLength) + 4;
+    }
+
+    /**
+     * Writes the status line, Content-Type, the headers and Content-Length, followed by the blank line. A negative
+     * content length writes Transfer-Encoding: chunked instead of Content-Length.
+     */
+    public static void writeHead(ByteBuffer bb, int statusCode, String statusTxt, String contentType, KeyValueList headers, long contentLength, Charset charset) {
+        final byte[] cached = cachedStatusLine(statusCode, statusTxt);
+        if (cached != null) {
+            bb.put(cached);
+        } else {
+            bb.put(httpVersion);
+            writeNumber(bb, statusCode);
+            bb.put((byte) ' ');
+            writeAscii(bb, statusTxt);
+            bb.put(crlf);
+        }
+        bb.put(contentTypeLine(contentType, charset));
+        if (headers != null) {
+            for (KeyValueList.Entry header : headers) {
+                writeAscii(bb, header.name);
+                bb.put(separator);
+                writeAscii(bb, header.value);
+                bb.put(crlf);
+            }
+        }
+        if (contentLength < 0) {
+            bb.put(chunkedEncoding);
+        } else {
+            bb.put(contentLengthName);
+            writeNumber(bb, contentLength);
+            bb.put(crlf);
+        }
+        bb.put(crlf);
+    }
+
+    /**
+     * @return the number of bytes {@link #writeChunkHead} will write
+     */
+    static int chunkHeadLength(int length) {
+        int digits = 1;
+        while ((length >>>= 4) != 0) {
+            digits++;
+        }
+        return digits + 2;
+    }
+
+    /**
+     * Writes the chunk size in hex followed by CRLF.
+     */
+    static void writeChunkHead(ByteBuffer bb, int length) {
+        final int end = bb.position() + chunkHeadLength(length) - 2;
+        for (int i = end - 1; i >= bb.position(); i--) {
+            bb.put(i, hex[length & 0xf]);
+            length >>>= 4;
+        }
+        bb.position(end);
+        bb.put(crlf);
+    }
+
+    /**
+     * Writes the CRLF that ends a chunk.
+     */
+    static void writeChunkEnd(ByteBuffer bb) {
+        bb.put(crlf);
+    }
+
+    private static byte[] cachedStatusLine(int statusCode, String statusTxt) {
+        if (statusCode >= 0 && statusCode < statusLines.length) {
+            final StatusLine line = statusLines[statusCode];
+            if (line != null && (line.text == statusTxt || line.text.equals(statusTxt))) {
+                return line.bytes;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] contentTypeLine(String contentType, Charset charset) {
+        final ConcurrentHashMap<String, byte[]> cache = charset == null
+                ? contentTypes
+                : contentTypesByCharset.computeIfAbsent(charset, c -> new ConcurrentHashMap<>());
+        byte[] line = cache.get(contentType);
+        if (line == null) {
+            String txt = "Content-Type: " + contentType;
+            if (charset != null) {
+                txt += "; charset=" + charset.name();
+            }
+            line = ascii(txt + "\r\n");
+            //content types normally come from a small fixed set, so stop caching if callers build them per request
+            if (cache.size() < maxCachedContentTypes) {
+                cache.put(contentType, line);
+            }
+        }
+        return line;
+    }
+
+    static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Writes a non negative number as ascii digits.
+     */
+    static void writeNumber(ByteBuffer bb, long value) {
+        final int end = bb.position() + digits(value);
+        for (int i = end - 1; i >= bb.position(); i--) {
+            bb.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        bb.position(end);
+    }
+
+    private static void writeAscii(ByteBuffer bb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            bb.put(c < 128 ? (byte) c : (byte) '?');
+        }
+    }
+}
@@ -18,6 +18,17 @@ public interface IoBufferPool {
 
     void endWebSocketWrite(ByteBuffer bb);
 
+    /**
+     * Buffer for encoding an http response. Called while holding the connection's write lock.
+     */
+    default ByteBuffer beginHttpWrite(int minSize) {
+        return beginWebSocketWrite(minSize);
+    }
+
+    default void endHttpWrite(ByteBuffer bb) {
+        endWebSocketWrite(bb);
+    }
+
     interface Factory {
         IoBufferPool createFor(SocketChannel channel, NioFiber fiber);
     }
@@ -9,6 +9,9 @@ public interface MimeType {
 
     String getContentType();
 
+    /**
+     * @param bytes contents of the file, or null if it is too large to be read into memory
+     */
     Charset getCharset(Path finalResource, byte[] bytes);
 
     class Text implements MimeType {
@@ -22,11 +22,15 @@ public class NioReader<T> implements NioChannelHandler {
     private State current;
 
     public NioReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<T> fact, SessionDispatcherFactory<T> dispatcherFact, IoBufferPool bufferFactory) {
+        this(channel, fiber, controls, handler, readBufferSizeInBytes, maxReadLoops, fact, dispatcherFact, bufferFactory, HttpRequestHandler.Default.defaultMaxBodySize);
+    }
+
+    public NioReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<T> fact, SessionDispatcherFactory<T> dispatcherFact, IoBufferPool bufferFactory, int maxBodySize) {
         this.channel = channel;
         this.readBufferSizeInBytes = readBufferSizeInBytes;
         this.maxReadLoops = maxReadLoops;
         this.bufferFactory = bufferFactory;
-        this.headerReader = new HeaderReader<>(channel, fiber, controls, handler, fact, dispatcherFact, bufferFactory);
+        this.headerReader = new HeaderReader<>(channel, fiber, controls, handler, fact, dispatcherFact, bufferFactory, maxBodySize);
         this.current = headerReader.start();
     }
 
@@ -1,5 +1,6 @@
 package org.jetlang.web;
 
+import org.jetlang.fibers.NioChannelHandler;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
 import org.jetlang.fibers.NioFiberImpl;
@@ -7,10 +8,13 @@ import org.jetlang.fibers.NioFiberImpl;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 
 import static org.jetlang.web.WebSocketConnectionImpl.findSize;
 
@@ -21,8 +25,15 @@ public class NioWriter {
     private final Object writeLock;
     private final IoBufferPool ioBufferPool;
     private NioFiberImpl.BufferedWrite<SocketChannel> bufferedWrite;
+    //file transfers, shared buffers and the writes queued behind them
+    private FileWrite fileWrite;
     private boolean closed = false;
+    //run once no more than drainMark bytes are buffered
+    private Runnable onDrain;
+    private long drainMark;
     private final SocketAddress remoteAddress;
+    //bodies at least this large are written from the caller's array with a gathering write instead of copied
+    static final int gatheringWriteThreshold = 64 * 1024;
 
     public NioWriter(Object lock, SocketChannel channel, NioFiber fiber, IoBufferPool buffer) {
         this.channel = channel;
@@ -50,11 +61,45 @@ public class NioWriter {
 
     public int getTotalBytesBuffered() {
         synchronized (writeLock) {
-            if (bufferedWrite != null) {
-                return bufferedWrite.getBuffer().remaining();
+            return (int) Math.min(Integer.MAX_VALUE, bufferedBytes());
+        }
+    }
+
+    private long bufferedBytes() {
+        long total = fileWrite != null ? fileWrite.pending : 0;
+        if (bufferedWrite != null) {
+            total += bufferedWrite.getBuffer().remaining();
+        }
+        return total;
+    }
+
+    /**
+     * Runs the callback on the nio fiber once no more than the given number of bytes are buffered for the socket,
+     * or once the connection is closed. Runs it at once on the calling thread if that is already the case.
+     * Only one callback waits at a time, so a later call replaces an earlier one.
+     */
+    public void whenBufferedAtMost(long bytes, Runnable callback) {
+        synchronized (writeLock) {
+            if (!closed && bufferedBytes() > bytes) {
+                onDrain = callback;
+                drainMark = bytes;
+                return;
             }
         }
-        return 0;
+        callback.run();
+    }
+
+    //called without the write lock held, so the callback can send or hand off freely
+    private void drained() {
+        final Runnable callback;
+        synchronized (writeLock) {
+            if (onDrain == null || !(closed || !channel.isOpen() || bufferedBytes() <= drainMark)) {
+                return;
+            }
+            callback = onDrain;
+            onDrain = null;
+        }
+        callback.run();
     }
 
     private SendResult doSend(ByteBuffer bb) {
@@ -62,6 +107,12 @@ public class NioWriter {
             bb.position(bb.position() + bb.remaining());
             return SendResult.Closed;
         }
+        if (fileWrite != null) {
+            int toBuffer = bb.remaining();
+            ByteBuffer copy = ByteBuffer.allocate(toBuffer);
+            copy.put(bb).flip();
+            return fileWrite.add(copy, toBuffer);
+        }
         if (bufferedWrite != null) {
             if (channel.isOpen() && channel.isRegistered()) {
                 int toBuffer = bb.remaining();
@@ -86,11 +137,16 @@ public class NioWriter {
             @Override
             public <T extends SelectableChannel & WritableByteChannel> void onFailure(IOException e, T t, ByteBuffer byteBuffer) {
                 attemptCloseOnNioFiber();
+                dropFileWrite();
             }
         }, new NioFiberImpl.OnBuffer() {
             @Override
             public <T extends SelectableChannel & WritableByteChannel> void onBufferEnd(T t) {
                 bufferedWrite = null;
+                //a file queued while the buffer drained starts once it is empty
+                if (fileWrite != null) {
+                    registerFileWrite();
+                }
             }
 
             @Override
@@ -99,9 +155,18 @@ public class NioWriter {
         }) {
             @Override
             public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+                final Result result;
                 synchronized (writeLock) {
-                    return super.onSelect(nioFiber, controls, key);
+                    result = super.onSelect(nioFiber, controls, key);
                 }
+                drained();
+                return result;
+            }
+
+            @Override
+            public void onEnd() {
+                super.onEnd();
+                drained();
             }
         };
         int remaining = bb.remaining();
@@ -112,12 +177,339 @@ public class NioWriter {
             } else {
                 synchronized (writeLock) {
                     bufferedWrite = null;
+                    dropFileWrite();
                 }
+                drained();
             }
         });
         return new SendResult.Buffered(remaining, totalBuffered);
     }
 
+    /**
+     * Encodes the response head into a pooled buffer. Small bodies are copied in after the head, and large ones
+     * are written along with it in a gathering write.
+     */
+    public SendResult sendResponse(int statusCode, String statusTxt, String contentType, KeyValueList headers, byte[] content, Charset charset) {
+        final int headLength = HttpResponseWriter.headLength(statusCode, statusTxt, contentType, headers, content.length, charset);
+        final boolean gather = content.length >= gatheringWriteThreshold;
+        synchronized (writeLock) {
+            ByteBuffer bb = ioBufferPool.beginHttpWrite(gather ? headLength : headLength + content.length);
+            HttpResponseWriter.writeHead(bb, statusCode, statusTxt, contentType, headers, content.length, charset);
+            if (!gather) {
+                bb.put(content);
+            }
+            bb.flip();
+            SendResult sendResult = gather ? doSend(bb, ByteBuffer.wrap(content)) : doSend(bb);
+            ioBufferPool.endHttpWrite(bb);
+            return sendResult;
+        }
+    }
+
+    /**
+     * Sends the head of a response whose body follows in chunks.
+     */
+    public SendResult sendChunkedHead(int statusCode, String statusTxt, String contentType, KeyValueList headers, Charset charset) {
+        final int headLength = HttpResponseWriter.headLength(statusCode, statusTxt, contentType, headers, -1, charset);
+        synchronized (writeLock) {
+            ByteBuffer bb = ioBufferPool.beginHttpWrite(headLength);
+            HttpResponseWriter.writeHead(bb, statusCode, statusTxt, contentType, headers, -1, charset);
+            bb.flip();
+            SendResult sendResult = doSend(bb);
+            ioBufferPool.endHttpWrite(bb);
+            return sendResult;
+        }
+    }
+
+    /**
+     * Sends the bytes as one chunk of a chunked body. An empty chunk ends the body.
+     */
+    public SendResult sendChunk(byte[] content, int offset, int length) {
+        final int headLength = HttpResponseWriter.chunkHeadLength(length);
+        final boolean gather = length >= gatheringWriteThreshold;
+        synchronized (writeLock) {
+            ByteBuffer bb = ioBufferPool.beginHttpWrite(gather ? headLength : headLength + length + 2);
+            HttpResponseWriter.writeChunkHead(bb, length);
+            if (!gather) {
+                bb.put(content, offset, length);
+                HttpResponseWriter.writeChunkEnd(bb);
+            }
+            bb.flip();
+            SendResult sendResult = gather ? doSend(bb, ByteBuffer.wrap(content, offset, length)) : doSend(bb);
+            ioBufferPool.endHttpWrite(bb);
+            if (gather) {
+                bb = ioBufferPool.beginHttpWrite(2);
+                HttpResponseWriter.writeChunkEnd(bb);
+                bb.flip();
+                sendResult = doSend(bb);
+                ioBufferPool.endHttpWrite(bb);
+            }
+            return sendResult;
+        }
+    }
+
+    private SendResult doSend(ByteBuffer head, ByteBuffer body) {
+        if (closed || fileWrite != null || bufferedWrite != null) {
+            doSend(head);
+            return doSend(body);
+        }
+        final ByteBuffer[] buffers = {head, body};
+        try {
+            while (body.hasRemaining() && channel.write(buffers) > 0) {
+            }
+        } catch (IOException e) {
+            attemptCloseOnNioFiber();
+            head.position(head.limit());
+            body.position(body.limit());
+            return new SendResult.FailedWithError(e);
+        }
+        if (!body.hasRemaining()) {
+            return SendResult.SUCCESS;
+        }
+        //buffers whatever is left of the head and then the body
+        doSend(head);
+        return doSend(body);
+    }
+
+    /**
+     * Sends the head followed by a region of the file with {@link FileChannel#transferTo}, so the file is never
+     * copied onto the heap. Whatever the socket does not take now is sent as it becomes writable, and later sends
+     * are queued behind it. The file is closed once it has been sent or the connection fails.
+     */
+    public SendResult sendFile(ByteBuffer head, FileChannel file, long position, long count) {
+        synchronized (writeLock) {
+            if (closed) {
+                head.position(head.limit());
+                closeQuietly(file);
+                return SendResult.Closed;
+            }
+            if (fileWrite != null || bufferedWrite != null) {
+                final boolean start = fileWrite == null;
+                if (start) {
+                    fileWrite = new FileWrite();
+                }
+                final int toBuffer = head.remaining();
+                ByteBuffer copy = ByteBuffer.allocate(toBuffer);
+                copy.put(head).flip();
+                fileWrite.add(copy, toBuffer);
+                return fileWrite.add(new FileRegion(file, position, count), count);
+            }
+            final FileRegion region = new FileRegion(file, position, count);
+            try {
+                NioFiberImpl.writeAll(channel, head);
+                if (!head.hasRemaining()) {
+                    region.transfer(channel);
+                }
+            } catch (IOException e) {
+                attemptCloseOnNioFiber();
+                head.position(head.limit());
+                closeQuietly(file);
+                return new SendResult.FailedWithError(e);
+            }
+            if (!head.hasRemaining() && region.done()) {
+                closeQuietly(file);
+                return SendResult.SUCCESS;
+            }
+            fileWrite = new FileWrite();
+            if (head.hasRemaining()) {
+                final int toBuffer = head.remaining();
+                ByteBuffer copy = ByteBuffer.allocate(toBuffer);
+                copy.put(head).flip();
+                fileWrite.add(copy, toBuffer);
+            }
+            final SendResult result = fileWrite.add(region, region.remaining);
+            registerFileWrite();
+            return result;
+        }
+    }
+
+    /**
+     * Sends a buffer shared with other connections, such as a broadcast frame. The buffer itself is never
+     * modified. Whatever the socket does not take now is queued as a duplicate rather than copied.
+     */
+    public SendResult sendShared(ByteBuffer shared) {
+        final ByteBuffer bb = shared.duplicate();
+        synchronized (writeLock) {
+            if (closed) {
+                return SendResult.Closed;
+            }
+            if (fileWrite != null || bufferedWrite != null) {
+                //a queue started behind a buffered write is registered once that write drains
+                if (fileWrite == null) {
+                    fileWrite = new FileWrite();
+                }
+                return fileWrite.add(bb, bb.remaining());
+            }
+            try {
+                NioFiberImpl.writeAll(channel, bb);
+            } catch (IOException e) {
+                attemptCloseOnNioFiber();
+                return new SendResult.FailedWithError(e);
+            }
+            if (!bb.hasRemaining()) {
+                return SendResult.SUCCESS;
+            }
+            fileWrite = new FileWrite();
+            final SendResult result = fileWrite.add(bb, bb.remaining());
+            registerFileWrite();
+            return result;
+        }
+    }
+
+    private void registerFileWrite() {
+        final FileWrite toRegister = fileWrite;
+        fiber.execute((c) -> {
+            if (c.isRegistered(channel)) {
+                c.addHandler(toRegister);
+            } else {
+                synchronized (writeLock) {
+                    toRegister.closeFiles();
+                    if (fileWrite == toRegister) {
+                        fileWrite = null;
+                    }
+                }
+                drained();
+            }
+        });
+    }
+
+    private void dropFileWrite() {
+        if (fileWrite != null) {
+            fileWrite.closeFiles();
+            fileWrite = null;
+        }
+    }
+
+    private static void closeQuietly(FileChannel file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+
+        }
+    }
+
+    private static class FileRegion {
+        private final FileChannel file;
+        private long position;
+        private long remaining;
+
+        FileRegion(FileChannel file, long position, long count) {
+            this.file = file;
+            this.position = position;
+            this.remaining = count;
+        }
+
+        /**
+         * @return bytes transferred before the socket stopped taking more
+         * @throws IOException if the file ends before the region does
+         */
+        long transfer(SocketChannel channel) throws IOException {
+            long total = 0;
+            while (remaining > 0) {
+                final long sent = file.transferTo(position, remaining, channel);
+                if (sent <= 0) {
+                    if (position >= file.size()) {
+                        throw new IOException("File ended " + remaining + " bytes before the region sent");
+                    }
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+                total += sent;
+            }
+            return total;
+        }
+
+        boolean done() {
+            return remaining == 0;
+        }
+    }
+
+    private class FileWrite implements NioChannelHandler {
+        //ByteBuffer or FileRegion
+        private final ArrayDeque<Object> queue = new ArrayDeque<>();
+        private long pending;
+
+        SendResult add(Object item, long size) {
+            queue.add(item);
+            pending += size;
+            return new SendResult.Buffered((int) Math.min(Integer.MAX_VALUE, size), (int) Math.min(Integer.MAX_VALUE, pending));
+        }
+
+        @Override
+        public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+            final Result result = write();
+            drained();
+            return result;
+        }
+
+        private Result write() {
+            synchronized (writeLock) {
+                try {
+                    while (!queue.isEmpty()) {
+                        final Object next = queue.peek();
+                        if (next instanceof ByteBuffer) {
+                            final ByteBuffer bb = (ByteBuffer) next;
+                            final int before = bb.remaining();
+                            NioFiberImpl.writeAll(channel, bb);
+                            pending -= before - bb.remaining();
+                            if (bb.hasRemaining()) {
+                                return Result.Continue;
+                            }
+                        } else {
+                            final FileRegion region = (FileRegion) next;
+                            pending -= region.transfer(channel);
+                            if (!region.done()) {
+                                return Result.Continue;
+                            }
+                            closeQuietly(region.file);
+                        }
+                        queue.poll();
+                    }
+                } catch (IOException e) {
+                    closeFiles();
+                    attemptCloseOnNioFiber();
+                    fileWrite = null;
+                    return Result.CloseSocket;
+                }
+                fileWrite = null;
+                return Result.RemoveHandler;
+            }
+        }
+
+        void closeFiles() {
+            for (Object item : queue) {
+                if (item instanceof FileRegion) {
+                    closeQuietly(((FileRegion) item).file);
+                }
+            }
+            queue.clear();
+            pending = 0;
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return channel;
+        }
+
+        @Override
+        public int getInterestSet() {
+            return SelectionKey.OP_WRITE;
+        }
+
+        @Override
+        public void onEnd() {
+            synchronized (writeLock) {
+                closeFiles();
+            }
+            drained();
+        }
+
+        @Override
+        public void onSelectorEnd() {
+            onEnd();
+        }
+    }
+
     private void attemptCloseOnNioFiber() {
         if (!closed) {
             fiber.execute((c) -> c.close(channel));
@@ -141,6 +533,22 @@ public class NioWriter {
         return remoteAddress;
     }
 
+    /**
+     * Sends a data message compressed with permessage-deflate when the codec takes it, with RSV1 marking it as
+     * compressed. Compression happens under the write lock so messages are compressed in the order they are sent.
+     */
+    public SendResult sendWsMsg(byte opCode, byte[] bytes, int offset, int length, byte[] maskBytes, PerMessageDeflate.Codec deflate) {
+        if (deflate == null) {
+            return sendWsMsg(opCode, bytes, offset, length, maskBytes);
+        }
+        synchronized (writeLock) {
+            if (deflate.deflate(bytes, offset, length)) {
+                return sendWsMsg((byte) (opCode | 0x40), deflate.getDeflated(), 0, deflate.getDeflatedLength(), maskBytes);
+            }
+            return sendWsMsg(opCode, bytes, offset, length, maskBytes);
+        }
+    }
+
     public SendResult sendWsMsg(byte opCode, byte[] bytes, int offset, int length, byte[] maskBytes) {
         byte header = 0;
         header |= 1 << 7;
@@ -1,5 +1,7 @@
 package org.jetlang.web;
 
+import java.util.ArrayList;
+
 public interface PathMatcher<T> {
 
     boolean handles(HttpRequest request, T sessionState);
@@ -8,10 +10,149 @@ public interface PathMatcher<T> {
         return new PathEq<>(s);
     }
 
-    class PathEq<T> implements PathMatcher<T> {
+    /**
+     * Matches paths that start with the prefix.
+     */
+    static <S> PathMatcher<S> pathPrefix(String prefix) {
+        return new Route<>(null, prefix, true);
+    }
+
+    /**
+     * Matches a path pattern such as /users/{id}/orders. Each {name} matches one whole segment, and the matched
+     * values are set as the request's path params.
+     */
+    static <S> PathMatcher<S> path(String pattern) {
+        return new Route<>(null, pattern, false);
+    }
+
+    /**
+     * Matches a path pattern for one request method.
+     */
+    static <S> PathMatcher<S> path(String method, String pattern) {
+        return new Route<>(method, pattern, false);
+    }
+
+    /**
+     * Path pattern that {@link HandlerLocator.List} compiles into a {@link RadixRouter} instead of testing one by
+     * one.
+     */
+    class Route<T> implements PathMatcher<T> {
+        final String method;
+        //static text, or the param name where params[i] is set
+        final String[] parts;
+        final boolean[] params;
+        final boolean prefix;
+        final int paramCount;
+
+        /**
+         * @param method request method to match, or null for any
+         * @param prefix true to match any path that starts with the pattern
+         */
+        public Route(String method, String pattern, boolean prefix) {
+            this(method, parse(pattern), prefix);
+        }
+
+        Route(String method, ArrayList<String> parsed, boolean prefix) {
+            this.method = method;
+            this.prefix = prefix;
+            this.parts = new String[parsed.size()];
+            this.params = new boolean[parsed.size()];
+            int count = 0;
+            for (int i = 0; i < parts.length; i++) {
+                final String part = parsed.get(i);
+                if (part.startsWith("{")) {
+                    parts[i] = part.substring(1);
+                    params[i] = true;
+                    count++;
+                } else {
+                    parts[i] = part;
+                }
+            }
+            this.paramCount = count;
+        }
+
+        //static parts as text and params as "{name"
+        private static ArrayList<String> parse(String pattern) {
+            final ArrayList<String> parts = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = pattern.indexOf('{', start)) >= 0) {
+                final int close = pattern.indexOf('}', open);
+                if (close < 0 || open == 0 || pattern.charAt(open - 1) != '/'
+                        || (close + 1 < pattern.length() && pattern.charAt(close + 1) != '/')) {
+                    throw new IllegalArgumentException("Params must be whole path segments: " + pattern);
+                }
+                parts.add(pattern.substring(start, open));
+                parts.add(pattern.substring(open, close));
+                start = close + 1;
+            }
+            parts.add(pattern.substring(start));
+            return parts;
+        }
+
+        static ArrayList<String> literal(String path) {
+            final ArrayList<String> parts = new ArrayList<>(1);
+            parts.add(path);
+            return parts;
+        }
+
+        boolean methodMatches(HttpRequest request) {
+            return method == null || method.equals(request.getMethod());
+        }
+
+        @Override
+        public boolean handles(HttpRequest request, T sessionState) {
+            if (!methodMatches(request)) {
+                return false;
+            }
+            final String path = request.getPath();
+            final int[] found = new int[paramCount * 2];
+            int pos = 0;
+            int param = 0;
+            for (int i = 0; i < parts.length; i++) {
+                if (params[i]) {
+                    int end = path.indexOf('/', pos);
+                    end = end < 0 ? path.length() : end;
+                    if (end == pos) {
+                        return false;
+                    }
+                    found[param++] = pos;
+                    found[param++] = end;
+                    pos = end;
+                } else {
+                    if (!path.startsWith(parts[i], pos)) {
+                        return false;
+                    }
+                    pos += parts[i].length();
+                }
+            }
+            if (!prefix && pos != path.length()) {
+                return false;
+            }
+            if (paramCount > 0) {
+                request.setPathParams(pathParams(path, found));
+            }
+            return true;
+        }
+
+        KeyValueList pathParams(String path, int[] found) {
+            final KeyValueList values = new KeyValueList(paramCount, true);
+            int param = 0;
+            for (int i = 0; i < parts.length; i++) {
+                if (params[i]) {
+                    values.add(parts[i], path.substring(found[param], found[param + 1]));
+                    param += 2;
+                }
+            }
+            return values;
+        }
+    }
+
+    class PathEq<T> extends Route<T> {
         private String path;
 
         public PathEq(String path) {
+            super(null, literal(path), false);
             this.path = path;
         }
 
@@ -0,0 +1,384 @@
+package org.jetlang.web;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Settings for the permessage-deflate WebSocket extension (RFC 7692), and its negotiation from either end of the
+ * handshake. Each negotiated connection gets its own {@link Codec}.
+ * <p>
+ * The JDK deflater always uses a 15 bit window. When the peer asks for a smaller one, context takeover is dropped
+ * for outgoing messages and only messages that fit the window are compressed, so no back reference can reach
+ * further than the peer allows.
+ */
+public class PerMessageDeflate {
+
+    public static final String extensionName = "permessage-deflate";
+    private static final byte[] tail = {0, 0, (byte) 0xff, (byte) 0xff};
+
+    private int threshold = 256;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private boolean serverNoContextTakeover;
+    private boolean clientNoContextTakeover;
+    private int serverMaxWindowBits = 15;
+    private int clientMaxWindowBits = 15;
+    private int maxMessageSize = 64 * 1024 * 1024;
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Messages smaller than this are sent uncompressed.
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Deflate level from 1 to 9, or -1 for the default.
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public boolean isServerNoContextTakeover() {
+        return serverNoContextTakeover;
+    }
+
+    /**
+     * Compresses each server message on its own, trading ratio for less state carried between messages.
+     */
+    public void setServerNoContextTakeover(boolean serverNoContextTakeover) {
+        this.serverNoContextTakeover = serverNoContextTakeover;
+    }
+
+    public boolean isClientNoContextTakeover() {
+        return clientNoContextTakeover;
+    }
+
+    /**
+     * Asks the client to compress each message on its own.
+     */
+    public void setClientNoContextTakeover(boolean clientNoContextTakeover) {
+        this.clientNoContextTakeover = clientNoContextTakeover;
+    }
+
+    public int getServerMaxWindowBits() {
+        return serverMaxWindowBits;
+    }
+
+    /**
+     * Largest window, from 8 to 15, the server may compress with.
+     */
+    public void setServerMaxWindowBits(int serverMaxWindowBits) {
+        this.serverMaxWindowBits = checkWindowBits(serverMaxWindowBits);
+    }
+
+    public int getClientMaxWindowBits() {
+        return clientMaxWindowBits;
+    }
+
+    /**
+     * Largest window, from 8 to 15, the client may compress with.
+     */
+    public void setClientMaxWindowBits(int clientMaxWindowBits) {
+        this.clientMaxWindowBits = checkWindowBits(clientMaxWindowBits);
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * Compressed messages that inflate beyond this close the connection.
+     */
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    private static int checkWindowBits(int bits) {
+        if (bits < 8 || bits > 15) {
+            throw new IllegalArgumentException("Window bits must be from 8 to 15: " + bits);
+        }
+        return bits;
+    }
+
+    /**
+     * @return the Sec-WebSocket-Extensions value a client sends
+     */
+    public String offer() {
+        final StringBuilder offer = new StringBuilder(extensionName).append("; client_max_window_bits");
+        if (clientMaxWindowBits < 15) {
+            offer.append('=').append(clientMaxWindowBits);
+        }
+        if (serverMaxWindowBits < 15) {
+            offer.append("; server_max_window_bits=").append(serverMaxWindowBits);
+        }
+        if (serverNoContextTakeover) {
+            offer.append("; server_no_context_takeover");
+        }
+        if (clientNoContextTakeover) {
+            offer.append("; client_no_context_takeover");
+        }
+        return offer.toString();
+    }
+
+    /**
+     * Accepts the first valid permessage-deflate offer from a client.
+     *
+     * @return the codec for the server end, with the header to reply with, or null if nothing was offered
+     */
+    public Codec negotiate(String extensions) {
+        if (extensions == null) {
+            return null;
+        }
+        for (String extension : extensions.split(",")) {
+            final Params offered = Params.parse(extension);
+            if (offered == null) {
+                continue;
+            }
+            final int serverBits = Math.min(serverMaxWindowBits, offered.serverMaxWindowBits);
+            final boolean serverReset = serverNoContextTakeover || offered.serverNoContextTakeover;
+            final boolean clientReset = clientNoContextTakeover || offered.clientNoContextTakeover;
+            final StringBuilder response = new StringBuilder(extensionName);
+            if (serverReset) {
+                response.append("; server_no_context_takeover");
+            }
+            if (clientReset) {
+                response.append("; client_no_context_takeover");
+            }
+            if (serverBits < 15) {
+                response.append("; server_max_window_bits=").append(serverBits);
+            }
+            //a client that did not offer client_max_window_bits cannot be asked to limit its window
+            if (offered.clientMaxWindowBits > 0 && Math.min(clientMaxWindowBits, offered.clientMaxWindowBits) < 15) {
+                response.append("; client_max_window_bits=").append(Math.min(clientMaxWindowBits, offered.clientMaxWindowBits));
+            }
+            return new Codec(this, serverReset, serverBits, response.toString());
+        }
+        return null;
+    }
+
+    /**
+     * Applies the server's reply to the offer.
+     *
+     * @return the codec for the client end, or null if the server did not accept the extension
+     */
+    public Codec accept(String extensions) {
+        if (extensions == null) {
+            return null;
+        }
+        final Params accepted = Params.parse(extensions);
+        if (accepted == null) {
+            return null;
+        }
+        final int clientBits = Math.min(clientMaxWindowBits, accepted.clientMaxWindowBits > 0 ? accepted.clientMaxWindowBits : 15);
+        return new Codec(this, clientNoContextTakeover || accepted.clientNoContextTakeover, clientBits, extensions);
+    }
+
+    private static class Params {
+        boolean serverNoContextTakeover;
+        boolean clientNoContextTakeover;
+        int serverMaxWindowBits = 15;
+        //0 when absent, 15 when present without a value
+        int clientMaxWindowBits;
+
+        /**
+         * @return null if the extension is not permessage-deflate or its parameters are invalid
+         */
+        static Params parse(String extension) {
+            final String[] parts = extension.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(extensionName)) {
+                return null;
+            }
+            final Params params = new Params();
+            boolean serverBits = false;
+            for (int i = 1; i < parts.length; i++) {
+                final String part = parts[i].trim();
+                final int eq = part.indexOf('=');
+                final String name = (eq < 0 ? part : part.substring(0, eq)).trim().toLowerCase();
+                final String value = eq < 0 ? null : part.substring(eq + 1).trim().replace("\"", "");
+                switch (name) {
+                    case "server_no_context_takeover":
+                        if (params.serverNoContextTakeover || value != null) {
+                            return null;
+                        }
+                        params.serverNoContextTakeover = true;
+                        break;
+                    case "client_no_context_takeover":
+                        if (params.clientNoContextTakeover || value != null) {
+                            return null;
+                        }
+                        params.clientNoContextTakeover = true;
+                        break;
+                    case "server_max_window_bits":
+                        if (serverBits || (params.serverMaxWindowBits = windowBits(value)) < 0) {
+                            return null;
+                        }
+                        serverBits = true;
+                        break;
+                    case "client_max_window_bits":
+                        if (params.clientMaxWindowBits != 0) {
+                            return null;
+                        }
+                        params.clientMaxWindowBits = value == null ? 15 : windowBits(value);
+                        if (params.clientMaxWindowBits < 0) {
+                            return null;
+                        }
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            return params;
+        }
+
+        private static int windowBits(String value) {
+            if (value == null || value.length() == 0 || value.length() > 2) {
+                return -1;
+            }
+            try {
+                final int bits = Integer.parseInt(value);
+                return bits >= 8 && bits <= 15 ? bits : -1;
+            } catch (NumberFormatException invalid) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Compresses outgoing and inflates incoming messages for one connection. Outgoing messages must be compressed
+     * in the order they are sent, so callers hold the connection's write lock.
+     */
+    public static class Codec {
+        private final String header;
+        private final int threshold;
+        private final int maxMessageSize;
+        private final boolean resetAfterMessage;
+        //messages longer than the negotiated window are sent uncompressed
+        private final int maxCompressedLength;
+        private final Deflater deflater;
+        private final Inflater inflater = new Inflater(true);
+        private byte[] deflated = new byte[1024];
+        private int deflatedLength;
+        private byte[] inflated = new byte[1024];
+        private boolean closed;
+
+        Codec(PerMessageDeflate settings, boolean noContextTakeover, int windowBits, String header) {
+            this.header = header;
+            this.threshold = settings.threshold;
+            this.maxMessageSize = settings.maxMessageSize;
+            this.resetAfterMessage = noContextTakeover || windowBits < 15;
+            this.maxCompressedLength = windowBits < 15 ? 1 << windowBits : Integer.MAX_VALUE;
+            this.deflater = new Deflater(settings.level, true);
+        }
+
+        /**
+         * @return the negotiated Sec-WebSocket-Extensions value
+         */
+        public String getHeader() {
+            return header;
+        }
+
+        /**
+         * Compresses the message into {@link #getDeflated()}.
+         *
+         * @return false if the message should be sent uncompressed
+         */
+        public synchronized boolean deflate(byte[] bytes, int offset, int length) {
+            if (closed || length < threshold || length > maxCompressedLength) {
+                return false;
+            }
+            deflater.setInput(bytes, offset, length);
+            int size = 0;
+            while (true) {
+                if (size == deflated.length) {
+                    deflated = Arrays.copyOf(deflated, deflated.length * 2);
+                }
+                final int available = deflated.length - size;
+                final int written = deflater.deflate(deflated, size, available, Deflater.SYNC_FLUSH);
+                size += written;
+                if (written < available) {
+                    break;
+                }
+            }
+            //the empty stored block that ends a sync flush is implied by the extension
+            deflatedLength = size - tail.length;
+            if (resetAfterMessage) {
+                deflater.reset();
+                //nothing is carried over, so a message that did not shrink can go out as it is
+                return deflatedLength < length;
+            }
+            return true;
+        }
+
+        public byte[] getDeflated() {
+            return deflated;
+        }
+
+        public int getDeflatedLength() {
+            return deflatedLength;
+        }
+
+        /**
+         * Inflates a complete message into {@link #getInflated()}.
+         *
+         * @return the inflated length
+         * @throws DataFormatException if the message is corrupt or inflates beyond the maximum message size
+         */
+        public synchronized int inflate(byte[] bytes, int length) throws DataFormatException {
+            if (closed) {
+                throw new DataFormatException("Connection closed");
+            }
+            int size = inflate(bytes, 0, length, 0);
+            if (!inflater.finished()) {
+                size = inflate(tail, 0, tail.length, size);
+            }
+            if (inflater.finished()) {
+                //a final block ends the peer's stream, and its next message starts a new one
+                inflater.reset();
+            }
+            return size;
+        }
+
+        private int inflate(byte[] bytes, int offset, int length, int size) throws DataFormatException {
+            inflater.setInput(bytes, offset, length);
+            while (!inflater.needsInput() && !inflater.finished()) {
+                if (size == inflated.length) {
+                    if (size >= maxMessageSize) {
+                        throw new DataFormatException("Inflated message exceeds " + maxMessageSize + " bytes");
+                    }
+                    inflated = Arrays.copyOf(inflated, (int) Math.min(maxMessageSize, inflated.length * 2L));
+                }
+                final int written = inflater.inflate(inflated, size, inflated.length - size);
+                if (written == 0 && inflater.needsDictionary()) {
+                    throw new DataFormatException("Preset dictionaries are not supported");
+                }
+                size += written;
+            }
+            return size;
+        }
+
+        public byte[] getInflated() {
+            return inflated;
+        }
+
+        /**
+         * Frees the native zlib memory.
+         */
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                deflater.end();
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.jetlang.web;
+
+import java.util.Arrays;
+
+/**
+ * Finds the handler for a path by walking a radix tree of registered routes, so the cost of a lookup depends on
+ * the length of the path rather than the number of routes. Static text is matched a run of characters at a time
+ * and each param matches one segment.
+ * <p>
+ * When several routes match a request, the one registered first wins, the same as testing them in order.
+ */
+public class RadixRouter<T> implements HandlerLocator<T> {
+
+    private final Node<T> root = new Node<>("", 0);
+    private int routeCount;
+    private int maxParams;
+
+    private static class Node<T> {
+        String label;
+        //lowest route index in this subtree, used to stop searching once a better match is found
+        final int minIndex;
+        Node<T>[] children;
+        Node<T> param;
+        Entry<T>[] exact;
+        Entry<T>[] prefix;
+
+        Node(String label, int minIndex) {
+            this.label = label;
+            this.minIndex = minIndex;
+        }
+
+        Node<T> child(char c) {
+            if (children != null) {
+                for (Node<T> child : children) {
+                    if (child.label.charAt(0) == c) {
+                        return child;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void addChild(Node<T> child) {
+            children = children == null ? new Node[]{child} : append(children, child);
+        }
+
+        void replaceChild(Node<T> old, Node<T> replacement) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == old) {
+                    children[i] = replacement;
+                }
+            }
+        }
+    }
+
+    private static class Entry<T> {
+        final PathMatcher.Route<T> route;
+        final Handler<T> handler;
+        final int index;
+
+        Entry(PathMatcher.Route<T> route, Handler<T> handler, int index) {
+            this.route = route;
+            this.handler = handler;
+            this.index = index;
+        }
+    }
+
+    private static <E> E[] append(E[] array, E value) {
+        final E[] added = Arrays.copyOf(array, array.length + 1);
+        added[array.length] = value;
+        return added;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void add(PathMatcher.Route<T> route, Handler<T> handler) {
+        final int index = routeCount++;
+        Node<T> node = root;
+        for (int i = 0; i < route.parts.length; i++) {
+            if (route.params[i]) {
+                if (node.param == null) {
+                    node.param = new Node<>("", index);
+                }
+                node = node.param;
+            } else {
+                node = insert(node, route.parts[i], index);
+            }
+        }
+        final Entry<T> entry = new Entry<>(route, handler, index);
+        if (route.prefix) {
+            node.prefix = node.prefix == null ? new Entry[]{entry} : append(node.prefix, entry);
+        } else {
+            node.exact = node.exact == null ? new Entry[]{entry} : append(node.exact, entry);
+        }
+        maxParams = Math.max(maxParams, route.paramCount);
+    }
+
+    /**
+     * @return the node where the text ends, splitting an existing node if the text ends inside its label
+     */
+    private static <T> Node<T> insert(Node<T> node, String text, int index) {
+        int i = 0;
+        while (i < text.length()) {
+            Node<T> child = node.child(text.charAt(i));
+            if (child == null) {
+                child = new Node<>(text.substring(i), index);
+                node.addChild(child);
+                return child;
+            }
+            final String label = child.label;
+            int common = 1;
+            while (common < label.length() && i + common < text.length() && label.charAt(common) == text.charAt(i + common)) {
+                common++;
+            }
+            if (common < label.length()) {
+                final Node<T> split = new Node<>(label.substring(0, common), child.minIndex);
+                child.label = label.substring(common);
+                split.addChild(child);
+                node.replaceChild(child, split);
+                child = split;
+            }
+            i += common;
+            node = child;
+        }
+        return node;
+    }
+
+    @Override
+    public Handler<T> find(HttpRequest headers, T sessionState) {
+        final String path = headers.getPath();
+        if (path == null) {
+            return null;
+        }
+        final Match<T> match = new Match<>(path, headers, maxParams);
+        match.search(root, 0);
+        if (match.best == null) {
+            return null;
+        }
+        if (match.best.route.paramCount > 0) {
+            headers.setPathParams(match.best.route.pathParams(path, match.bestParams));
+        }
+        return match.best.handler;
+    }
+
+    private static class Match<T> {
+        private final String path;
+        private final HttpRequest request;
+        //start and end of each param on the current branch
+        private final int[] params;
+        private int paramDepth;
+        Entry<T> best;
+        int[] bestParams;
+
+        Match(String path, HttpRequest request, int maxParams) {
+            this.path = path;
+            this.request = request;
+            this.params = new int[maxParams * 2];
+        }
+
+        void search(Node<T> node, int pos) {
+            if (best != null && node.minIndex >= best.index) {
+                return;
+            }
+            consider(node.prefix);
+            if (pos == path.length()) {
+                consider(node.exact);
+                return;
+            }
+            final Node<T> child = node.child(path.charAt(pos));
+            if (child != null && path.startsWith(child.label, pos)) {
+                search(child, pos + child.label.length());
+            }
+            if (node.param != null) {
+                int end = path.indexOf('/', pos);
+                end = end < 0 ? path.length() : end;
+                if (end > pos) {
+                    params[paramDepth++] = pos;
+                    params[paramDepth++] = end;
+                    search(node.param, end);
+                    paramDepth -= 2;
+                }
+            }
+        }
+
+        private void consider(Entry<T>[] entries) {
+            if (entries == null) {
+                return;
+            }
+            for (Entry<T> entry : entries) {
+                if ((best == null || entry.index < best.index) && entry.route.methodMatches(request)) {
+                    best = entry;
+                    bestParams = Arrays.copyOf(params, paramDepth);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.jetlang.web;
+
+import java.nio.charset.Charset;
+
+/**
+ * Request line and header fields of one request, kept as offsets into a copy of the raw bytes. Strings are only
+ * created for the parts that are asked for.
+ */
+class RequestHead {
+
+    private static final Charset ascii = HeaderReader.ascii;
+    private static final byte[] contentLengthName = "content-length".getBytes(ascii);
+
+    private final byte[] bytes;
+    private int methodEnd;
+    private int uriStart;
+    private int uriEnd;
+    private int versionStart;
+    private int versionEnd;
+    //name start, name end, value start and value end of each field
+    private int[] fields = new int[32];
+    private int fieldCount;
+    private int contentLength;
+
+    private RequestHead(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Finds the blank line that ends a request head. Bare LF line endings are accepted.
+     *
+     * @param headStart first byte of the head
+     * @param from      first byte not scanned by an earlier call
+     * @return the index after the blank line, or -1 if the head is not complete
+     */
+    static int findEnd(byte[] array, int headStart, int from, int limit) {
+        for (int i = Math.max(from, headStart); i < limit; i++) {
+            if (array[i] == '\n') {
+                if (i - 1 >= headStart && array[i - 1] == '\n') {
+                    return i + 1;
+                }
+                if (i - 2 >= headStart && array[i - 1] == '\r' && array[i - 2] == '\n') {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies and parses a complete head found by {@link #findEnd}.
+     */
+    static RequestHead parse(byte[] array, int offset, int length) {
+        final byte[] copy = new byte[length];
+        System.arraycopy(array, offset, copy, 0, length);
+        final RequestHead head = new RequestHead(copy);
+        int lineStart = 0;
+        int lineEnd = lineEnd(copy, 0);
+        head.parseRequestLine(lineEnd);
+        lineStart = nextLine(copy, lineEnd);
+        while (lineStart < length) {
+            lineEnd = lineEnd(copy, lineStart);
+            if (lineEnd == lineStart) {
+                break;
+            }
+            head.parseField(lineStart, lineEnd);
+            lineStart = nextLine(copy, lineEnd);
+        }
+        return head;
+    }
+
+    private static int lineEnd(byte[] bytes, int from) {
+        int i = from;
+        while (bytes[i] != '\n') {
+            i++;
+        }
+        return i > from && bytes[i - 1] == '\r' ? i - 1 : i;
+    }
+
+    private static int nextLine(byte[] bytes, int lineEnd) {
+        return bytes[lineEnd] == '\r' ? lineEnd + 2 : lineEnd + 1;
+    }
+
+    private void parseRequestLine(int end) {
+        methodEnd = indexOf(0, end, ' ');
+        uriStart = methodEnd + 1;
+        uriEnd = indexOf(uriStart, end, ' ');
+        versionStart = uriEnd + 1;
+        versionEnd = end;
+    }
+
+    private void parseField(int start, int end) {
+        final int colon = indexOf(start, end, ':');
+        int valueStart = colon + 1;
+        while (valueStart < end && isWhitespace(bytes[valueStart])) {
+            valueStart++;
+        }
+        int valueEnd = end;
+        while (valueEnd > valueStart && isWhitespace(bytes[valueEnd - 1])) {
+            valueEnd--;
+        }
+        if (fieldCount * 4 == fields.length) {
+            final int[] grown = new int[fields.length * 2];
+            System.arraycopy(fields, 0, grown, 0, fields.length);
+            fields = grown;
+        }
+        final int i = fieldCount * 4;
+        fields[i] = start;
+        fields[i + 1] = colon;
+        fields[i + 2] = valueStart;
+        fields[i + 3] = valueEnd;
+        fieldCount++;
+        if (nameEquals(i, contentLengthName)) {
+            contentLength = parseInt(valueStart, valueEnd);
+        }
+    }
+
+    private int indexOf(int from, int end, char c) {
+        for (int i = from; i < end; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        throw new RuntimeException(c + " not found in " + new String(bytes, from, end - from, ascii));
+    }
+
+    private int parseInt(int start, int end) {
+        if (start == end) {
+            throw new NumberFormatException("Empty Content-Length");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || (value = value * 10 + digit) > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Invalid Content-Length: " + new String(bytes, start, end - start, ascii));
+            }
+        }
+        return (int) value;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * @param lowerCaseName ascii name in lower case
+     */
+    private boolean nameEquals(int field, byte[] lowerCaseName) {
+        final int start = fields[field];
+        if (fields[field + 1] - start != lowerCaseName.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCaseName.length; i++) {
+            byte b = bytes[start + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCaseName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean nameEquals(int field, String name) {
+        final int start = fields[field];
+        if (fields[field + 1] - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            final char a = (char) bytes[start + i];
+            final char b = name.charAt(i);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getContentLength() {
+        return contentLength;
+    }
+
+    String method() {
+        return new String(bytes, 0, methodEnd, ascii);
+    }
+
+    String uri() {
+        return new String(bytes, uriStart, uriEnd - uriStart, ascii);
+    }
+
+    String protocolVersion() {
+        return new String(bytes, versionStart, versionEnd - versionStart, ascii);
+    }
+
+    /**
+     * @return the value of the first field with the name, ignoring case, or null
+     */
+    String get(String name) {
+        for (int i = 0; i < fieldCount * 4; i += 4) {
+            if (nameEquals(i, name)) {
+                return value(i);
+            }
+        }
+        return null;
+    }
+
+    private String value(int field) {
+        return new String(bytes, fields[field + 2], fields[field + 3] - fields[field + 2], ascii);
+    }
+
+    KeyValueList headers() {
+        final KeyValueList list = new KeyValueList(fieldCount, false);
+        for (int i = 0; i < fieldCount * 4; i += 4) {
+            list.add(new String(bytes, fields[i], fields[i + 1] - fields[i], ascii), value(i));
+        }
+        return list;
+    }
+}
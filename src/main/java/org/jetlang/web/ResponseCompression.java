@@ -0,0 +1,165 @@
+package org.jetlang.web;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Settings for compressing response bodies, and negotiation of gzip or deflate from Accept-Encoding.
+ * Deflaters are kept per thread and reused.
+ */
+public class ResponseCompression {
+
+    public static final String gzip = "gzip";
+    public static final String deflate = "deflate";
+
+    private static final byte[] gzipHeader = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final ThreadLocal<Deflater> rawDeflater = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Deflater> zlibDeflater = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, false));
+
+    private int minSize = 1024;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private long maxPrecompressedFileSize = 16 * 1024 * 1024;
+    private final List<String> compressibleTypes = new ArrayList<>(Arrays.asList(
+            "text/", "application/json", "application/javascript", "application/xml", "application/xhtml+xml", "image/svg+xml"));
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Bodies smaller than this are sent as is.
+     */
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Deflate level from 1 to 9, or -1 for the default.
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public long getMaxPrecompressedFileSize() {
+        return maxPrecompressedFileSize;
+    }
+
+    /**
+     * Static files up to this size have their compressed forms cached, even when they are too large to cache as is.
+     */
+    public void setMaxPrecompressedFileSize(long maxPrecompressedFileSize) {
+        this.maxPrecompressedFileSize = maxPrecompressedFileSize;
+    }
+
+    /**
+     * Content types that start with the prefix are compressed.
+     */
+    public void addCompressibleType(String prefix) {
+        compressibleTypes.add(prefix);
+    }
+
+    public boolean isCompressible(String contentType, long length) {
+        if (length < minSize || contentType == null) {
+            return false;
+        }
+        for (String type : compressibleTypes) {
+            if (contentType.startsWith(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return gzip or deflate, preferring gzip, or null if the request accepts neither
+     */
+    public String negotiate(HttpRequest request) {
+        final String accept = request.get("Accept-Encoding");
+        if (accept == null) {
+            return null;
+        }
+        float gzipQ = -1;
+        float deflateQ = -1;
+        float anyQ = 0;
+        for (String coding : accept.split(",")) {
+            final int semi = coding.indexOf(';');
+            final String name = (semi < 0 ? coding : coding.substring(0, semi)).trim();
+            final float q = semi < 0 ? 1 : quality(coding.substring(semi + 1));
+            if (name.equalsIgnoreCase(gzip) || name.equalsIgnoreCase("x-gzip")) {
+                gzipQ = q;
+            } else if (name.equalsIgnoreCase(deflate)) {
+                deflateQ = q;
+            } else if (name.equals("*")) {
+                anyQ = q;
+            }
+        }
+        if ((gzipQ < 0 ? anyQ : gzipQ) > 0) {
+            return gzip;
+        }
+        if ((deflateQ < 0 ? anyQ : deflateQ) > 0) {
+            return deflate;
+        }
+        return null;
+    }
+
+    private static float quality(String params) {
+        final int q = params.indexOf("q=");
+        if (q < 0) {
+            return 1;
+        }
+        try {
+            return Float.parseFloat(params.substring(q + 2).trim());
+        } catch (NumberFormatException invalid) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param encoding gzip or deflate
+     */
+    public byte[] compress(byte[] content, int offset, int length, String encoding) {
+        final boolean isGzip = gzip.equals(encoding);
+        final Deflater deflater = isGzip ? rawDeflater.get() : zlibDeflater.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(content, offset, length);
+        deflater.finish();
+        byte[] out = new byte[Math.max(64, length / 3)];
+        int size = 0;
+        if (isGzip) {
+            System.arraycopy(gzipHeader, 0, out, 0, gzipHeader.length);
+            size = gzipHeader.length;
+        }
+        while (!deflater.finished()) {
+            if (size == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            size += deflater.deflate(out, size, out.length - size);
+        }
+        if (isGzip) {
+            final CRC32 crc = new CRC32();
+            crc.update(content, offset, length);
+            if (size + 8 > out.length) {
+                out = Arrays.copyOf(out, size + 8);
+            }
+            size = writeIntLE(out, size, (int) crc.getValue());
+            size = writeIntLE(out, size, length);
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    private static int writeIntLE(byte[] out, int pos, int value) {
+        out[pos] = (byte) value;
+        out[pos + 1] = (byte) (value >>> 8);
+        out[pos + 2] = (byte) (value >>> 16);
+        out[pos + 3] = (byte) (value >>> 24);
+        return pos + 4;
+    }
+}
@@ -0,0 +1,479 @@
+package org.jetlang.web;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Sends files with ETag and Last-Modified validators, answering If-None-Match and If-Modified-Since with 304 and
+ * single byte ranges with 206.
+ * <p>
+ * Files up to the cached file size are kept in a least recently used cache bounded by total bytes. An entry is
+ * checked against the file's modified time and size before use, unless the file is under a directory passed to
+ * {@link #watch}, in which case changes reported by the file system remove it instead. Larger files are sent with
+ * {@link HttpResponse#sendFile} and are not read onto the heap.
+ */
+public class StaticFiles implements Closeable {
+
+    public static final int defaultMaxCachedFileSize = 256 * 1024;
+    public static final long defaultMaxCacheBytes = 32 * 1024 * 1024;
+
+    private static final byte[] empty = new byte[0];
+    //marks an encoding that does not make the file smaller
+    private static final Variant noGain = new Variant(empty, null);
+
+    private final long maxCacheBytes;
+    private final int maxCachedFileSize;
+    //guarded by this
+    private final LinkedHashMap<Path, CachedFile> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private WatchService watcher;
+    private volatile Path[] watched = new Path[0];
+    private volatile ResponseCompression compression;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    public StaticFiles() {
+        this(defaultMaxCacheBytes, defaultMaxCachedFileSize);
+    }
+
+    /**
+     * @param maxCacheBytes     total size of cached files
+     * @param maxCachedFileSize files larger than this are sent from disk on every request
+     */
+    public StaticFiles(long maxCacheBytes, int maxCachedFileSize) {
+        this.maxCacheBytes = maxCacheBytes;
+        this.maxCachedFileSize = maxCachedFileSize;
+    }
+
+    /**
+     * Compresses files for requests that accept gzip or deflate and caches the compressed forms. Responses wrapped
+     * by a {@link CompressingResponse} use its settings instead. Null, the default, sends files as they are.
+     */
+    public void setCompression(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    private static class CachedFile {
+        final long modifiedMs;
+        final long size;
+        final String etag;
+        final String lastModified;
+        //null when the file is too large to cache
+        final byte[] bytes;
+        //validators and Accept-Ranges, shared by every full response
+        final KeyValueList headers = new KeyValueList(3, false);
+        //gzip and deflate forms, guarded by StaticFiles
+        final Variant[] variants = new Variant[2];
+        //bytes held by this entry, guarded by StaticFiles
+        long cost;
+
+        CachedFile(long modifiedMs, long size, byte[] bytes) {
+            this.modifiedMs = modifiedMs;
+            this.size = size;
+            this.bytes = bytes;
+            this.cost = bytes != null ? bytes.length : 0;
+            this.etag = "\"" + Long.toHexString(modifiedMs) + '-' + Long.toHexString(size) + '"';
+            this.lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(modifiedMs), ZoneOffset.UTC));
+            headers.add("ETag", etag);
+            headers.add("Last-Modified", lastModified);
+            headers.add("Accept-Ranges", "bytes");
+        }
+
+        String etag(String encoding) {
+            return etag.substring(0, etag.length() - 1) + '-' + encoding + '"';
+        }
+    }
+
+    private static class Variant {
+        final byte[] bytes;
+        final KeyValueList headers = new KeyValueList(4, false);
+
+        Variant(byte[] bytes, String etag) {
+            this.bytes = bytes;
+            this.headers.add("ETag", etag);
+        }
+    }
+
+    private static int variantIndex(String encoding) {
+        return ResponseCompression.gzip.equals(encoding) ? 0 : 1;
+    }
+
+    public SendResult send(HttpRequest request, HttpResponse response, Path file, MimeType type) throws IOException {
+        final Path key = file.toAbsolutePath().normalize();
+        ResponseCompression compression = this.compression;
+        String encoding = null;
+        if (response instanceof CompressingResponse) {
+            //compressed forms are cached here, so the decorator must not compress again
+            final CompressingResponse compressing = (CompressingResponse) response;
+            compression = compressing.getCompression();
+            encoding = compressing.getEncoding();
+            response = compressing.getTarget();
+        } else if (compression != null) {
+            encoding = compression.negotiate(request);
+        }
+        final CachedFile entry = find(key);
+        final String contentType = type.getContentType();
+        if (encoding != null && (!compression.isCompressible(contentType, entry.size)
+                || entry.size > Math.max(maxCachedFileSize, compression.getMaxPrecompressedFileSize()))) {
+            encoding = null;
+        }
+        Variant variant = null;
+        if (encoding != null) {
+            synchronized (this) {
+                variant = entry.variants[variantIndex(encoding)];
+            }
+        }
+        final String etag = encoding != null && variant != noGain ? entry.etag(encoding) : entry.etag;
+        if (isNotModified(request, entry, etag)) {
+            notModified.increment();
+            final String head = "HTTP/1.1 304 Not Modified\r\nETag: " + etag + "\r\nLast-Modified: " + entry.lastModified + "\r\n\r\n";
+            return response.send(ByteBuffer.wrap(head.getBytes(HeaderReader.ascii)));
+        }
+        final Charset charset = type.getCharset(key, entry.bytes);
+        final String range = request.get("Range");
+        if (range != null && ifRangeMatches(request, entry)) {
+            final long[] bounds = parseRange(range, entry.size);
+            if (bounds != null && bounds.length == 0) {
+                KeyValueList headers = new KeyValueList(1, false);
+                headers.add("Content-Range", "bytes */" + entry.size);
+                return response.sendResponse(416, "Range Not Satisfiable", contentType, headers, empty, charset);
+            }
+            if (bounds != null) {
+                final long start = bounds[0];
+                final long length = bounds[1] - start + 1;
+                KeyValueList headers = new KeyValueList(4, false);
+                for (KeyValueList.Entry h : entry.headers) {
+                    headers.add(h.name, h.value);
+                }
+                headers.add("Content-Range", "bytes " + start + '-' + bounds[1] + '/' + entry.size);
+                if (entry.bytes != null) {
+                    return response.sendResponse(206, "Partial Content", contentType, headers,
+                            Arrays.copyOfRange(entry.bytes, (int) start, (int) (start + length)), charset);
+                }
+                return sendFromDisk(response, key, 206, "Partial Content", contentType, headers, start, length, charset);
+            }
+        }
+        if (encoding != null) {
+            if (variant == null) {
+                variant = compress(key, entry, encoding, compression);
+            }
+            if (variant != null && variant != noGain) {
+                return response.sendResponse(200, "OK", contentType, variant.headers, variant.bytes, charset);
+            }
+        }
+        if (entry.bytes != null) {
+            return response.sendResponse(200, "OK", contentType, entry.headers, entry.bytes, charset);
+        }
+        return sendFromDisk(response, key, 200, "OK", contentType, entry.headers, 0, entry.size, charset);
+    }
+
+    private static SendResult sendFromDisk(HttpResponse response, Path file, int status, String statusTxt, String contentType,
+                                           KeyValueList headers, long start, long length, Charset charset) throws IOException {
+        final ByteBuffer head = ByteBuffer.allocate(HttpResponseWriter.headLength(status, statusTxt, contentType, headers, length, charset));
+        HttpResponseWriter.writeHead(head, status, statusTxt, contentType, headers, length, charset);
+        head.flip();
+        return response.sendFile(head, FileChannel.open(file, StandardOpenOption.READ), start, length);
+    }
+
+    /**
+     * @return the compressed form, or null if the file changed since it was checked
+     */
+    private Variant compress(Path key, CachedFile entry, String encoding, ResponseCompression compression) throws IOException {
+        final byte[] raw = entry.bytes != null ? entry.bytes : Files.readAllBytes(key);
+        if (raw.length != entry.size) {
+            return null;
+        }
+        final byte[] compressed = compression.compress(raw, 0, raw.length, encoding);
+        final Variant variant;
+        if (compressed.length < raw.length) {
+            variant = new Variant(compressed, entry.etag(encoding));
+            variant.headers.add("Last-Modified", entry.lastModified);
+            variant.headers.add("Content-Encoding", encoding);
+            variant.headers.add("Vary", "Accept-Encoding");
+        } else {
+            variant = noGain;
+        }
+        synchronized (this) {
+            final int index = variantIndex(encoding);
+            if (entry.variants[index] != null) {
+                return entry.variants[index];
+            }
+            entry.variants[index] = variant;
+            entry.cost += variant.bytes.length;
+            final CachedFile current = cache.get(key);
+            if (current == entry) {
+                cachedBytes += variant.bytes.length;
+            } else if (current == null) {
+                //files too large to cache as is are kept for their compressed forms
+                cache.put(key, entry);
+                cachedBytes += entry.cost;
+            }
+            evict();
+        }
+        return variant;
+    }
+
+    private CachedFile find(Path file) throws IOException {
+        CachedFile entry;
+        synchronized (this) {
+            entry = cache.get(file);
+        }
+        if (entry != null && isWatched(file)) {
+            hits.increment();
+            return entry;
+        }
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        final long modifiedMs = attributes.lastModifiedTime().toMillis();
+        if (entry != null && entry.modifiedMs == modifiedMs && entry.size == attributes.size()) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        if (attributes.size() > maxCachedFileSize) {
+            remove(file);
+            return new CachedFile(modifiedMs, attributes.size(), null);
+        }
+        final byte[] bytes = Files.readAllBytes(file);
+        entry = new CachedFile(modifiedMs, bytes.length, bytes);
+        synchronized (this) {
+            final CachedFile old = cache.put(file, entry);
+            if (old != null) {
+                cachedBytes -= old.cost;
+            }
+            cachedBytes += entry.cost;
+            evict();
+        }
+        return entry;
+    }
+
+    //guarded by this
+    private void evict() {
+        final Iterator<CachedFile> eldest = cache.values().iterator();
+        while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().cost;
+            eldest.remove();
+        }
+    }
+
+    private synchronized void remove(Path file) {
+        final CachedFile old = cache.remove(file);
+        if (old != null) {
+            cachedBytes -= old.cost;
+        }
+    }
+
+    //removes the file, or everything under it if it was a directory
+    private synchronized void invalidate(Path path) {
+        final Iterator<Map.Entry<Path, CachedFile>> all = cache.entrySet().iterator();
+        while (all.hasNext()) {
+            final Map.Entry<Path, CachedFile> next = all.next();
+            if (next.getKey().startsWith(path)) {
+                cachedBytes -= next.getValue().cost;
+                all.remove();
+            }
+        }
+    }
+
+    private synchronized void invalidateAll() {
+        cache.clear();
+        cachedBytes = 0;
+    }
+
+    private boolean isWatched(Path file) {
+        for (Path dir : watched) {
+            if (file.startsWith(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNotModified(HttpRequest request, CachedFile entry, String etag) {
+        final String ifNoneMatch = request.get("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        final String ifModifiedSince = request.get("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            final Instant since = parseDate(ifModifiedSince);
+            return since != null && entry.modifiedMs / 1000 <= since.getEpochSecond();
+        }
+        return false;
+    }
+
+    private static boolean ifRangeMatches(HttpRequest request, CachedFile entry) {
+        final String ifRange = request.get("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(entry.etag);
+        }
+        final Instant date = parseDate(ifRange);
+        return date != null && entry.modifiedMs / 1000 == date.getEpochSecond();
+    }
+
+    private static Instant parseDate(String date) {
+        try {
+            return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException invalid) {
+            return null;
+        }
+    }
+
+    //weak comparison, as required for If-None-Match
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return first and last byte of a single range, an empty array if no byte of the range is in the file, or null
+     * to ignore the header
+     */
+    static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        final int dash = range.indexOf('-', 6);
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            final String first = range.substring(6, dash).trim();
+            final String last = range.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                final long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return new long[0];
+                }
+                return new long[]{Math.max(0, size - suffix), size - 1};
+            }
+            final long start = Long.parseLong(first);
+            final long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size) {
+                return new long[0];
+            }
+            return start <= end ? new long[]{start, end} : null;
+        } catch (NumberFormatException invalid) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes cached files under the directory when the file system reports a change, so cache hits there no
+     * longer check the file's modified time. Subdirectories are watched as well.
+     */
+    public synchronized void watch(Path dir) throws IOException {
+        final Path real = dir.toRealPath();
+        if (watcher == null) {
+            watcher = real.getFileSystem().newWatchService();
+            final WatchService service = watcher;
+            final Thread thread = new Thread(() -> runWatcher(service), "StaticFiles-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        register(watcher, real);
+        final Path[] added = Arrays.copyOf(watched, watched.length + 1);
+        added[watched.length] = real;
+        watched = added;
+    }
+
+    private static void register(WatchService service, Path dir) throws IOException {
+        try (Stream<Path> all = Files.walk(dir)) {
+            final Iterator<Path> it = all.filter(Files::isDirectory).iterator();
+            while (it.hasNext()) {
+                it.next().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private void runWatcher(WatchService service) {
+        try {
+            while (true) {
+                final WatchKey key = service.take();
+                final Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        invalidateAll();
+                        continue;
+                    }
+                    final Path changed = dir.resolve((Path) event.context());
+                    invalidate(changed);
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        try {
+                            register(service, changed);
+                        } catch (IOException removed) {
+                            //deleted before it could be watched
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException stopped) {
+            //closed
+        }
+    }
+
+    public long getCacheHitCount() {
+        return hits.sum();
+    }
+
+    public long getCacheMissCount() {
+        return misses.sum();
+    }
+
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        watched = new Path[0];
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+}
@@ -2,21 +2,33 @@ package org.jetlang.web;
 
 import org.jetlang.fibers.Fiber;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 
 public class StaticHtml<T> implements HttpHandler<T> {
     private final Path resource;
-    private final Charset charset;
+    private final MimeType mimeType;
+    private final StaticFiles files;
 
     public StaticHtml(Path resource, Charset charset) {
+        this(resource, charset, new StaticFiles());
+    }
+
+    public StaticHtml(Path resource, Charset charset, StaticFiles files) {
         this.resource = resource;
-        this.charset = charset;
+        this.mimeType = new MimeType.Text("text/html", charset);
+        this.files = files;
     }
 
     @Override
     public void handle(Fiber dispatchFiber, HttpRequest headers, HttpResponse writer, T sessionState) {
-        SendResult ok = writer.sendResponse(200, "OK", "text/html", resource, charset);
+        SendResult ok;
+        try {
+            ok = files.send(headers, writer, resource, mimeType);
+        } catch (IOException failed) {
+            ok = new SendResult.FailedWithError(failed);
+        }
         if (ok instanceof SendResult.FailedWithError) {
             SendResult.FailedWithError failed = (SendResult.FailedWithError) ok;
             throw new RuntimeException(failed.getFailed());
@@ -0,0 +1,44 @@
+package org.jetlang.web;
+
+/**
+ * Handles a request whose body is passed on in parts as it arrives instead of being read into memory first.
+ * Content-Length and chunked bodies are both delivered decoded. Everything is called on the read fiber, so slow
+ * work should be handed off.
+ */
+public interface StreamingHttpHandler<T> extends Handler<T> {
+
+    @Override
+    default NioReader.State start(SessionDispatcherFactory.SessionDispatcher<T> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<T> headerReader, NioWriter writer, T sessionState) {
+        return headerReader.readBody(headers, onRequest(headers, response, sessionState), getMaxBodySize(), headerReader::start);
+    }
+
+    /**
+     * Larger bodies are answered with 413 and the connection is closed.
+     */
+    default long getMaxBodySize() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Called once the head of the request arrives.
+     *
+     * @return the listener for the body
+     */
+    BodyListener onRequest(HttpRequest headers, HttpResponse response, T sessionState);
+
+    interface BodyListener {
+
+        /**
+         * The bytes belong to the read buffer and are only valid during the call.
+         */
+        void onBody(byte[] data, int offset, int length);
+
+        void onComplete();
+
+        /**
+         * Called if the connection closes or the body is rejected before it completes.
+         */
+        default void onClosed() {
+        }
+    }
+}
@@ -17,8 +17,14 @@ public class WebDispatcher<S> implements NioAcceptorHandler.ClientFactory {
     private final SessionFactory<S> factory;
     private final SessionDispatcherFactory<S> dispatcherFact;
     private final IoBufferPool.Factory bufferFactory;
+    private final int maxBodySize;
 
     public WebDispatcher(NioFiber readFiber, HttpRequestHandler<S> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<S> factory, SessionDispatcherFactory<S> dispatcherFact, IoBufferPool.Factory bufferFactory) {
+        this(readFiber, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcherFact, bufferFactory, HttpRequestHandler.Default.defaultMaxBodySize);
+    }
+
+    public WebDispatcher(NioFiber readFiber, HttpRequestHandler<S> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<S> factory, SessionDispatcherFactory<S> dispatcherFact, IoBufferPool.Factory bufferFactory, int maxBodySize) {
+        this.maxBodySize = maxBodySize;
         this.readFiber = readFiber;
         this.handler = handler;
         this.readBufferSizeInBytes = readBufferSizeInBytes;
@@ -36,6 +42,6 @@ public class WebDispatcher<S> implements NioAcceptorHandler.ClientFactory {
     }
 
     protected NioChannelHandler createHandler(SelectionKey key, SocketChannel channel, NioFiber fiber, NioControls controls) {
-        return new NioReader<S>(channel, fiber, controls, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcherFact, bufferFactory.createFor(channel, fiber));
+        return new NioReader<S>(channel, fiber, controls, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcherFact, bufferFactory.createFor(channel, fiber), maxBodySize);
     }
 }
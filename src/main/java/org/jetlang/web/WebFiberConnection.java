@@ -16,6 +16,10 @@ public class WebFiberConnection implements WebSocketConnection {
         this.connection = connection;
     }
 
+    WebSocketConnection getConnection() {
+        return connection;
+    }
+
     @Override
     public HttpRequest getRequest() {
         return connection.getRequest();
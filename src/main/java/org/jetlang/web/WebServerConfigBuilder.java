@@ -37,6 +37,9 @@ public class WebServerConfigBuilder<S> {
         }
     };
     private IoBufferPool.Factory bufferPool = new IoBufferPool.Default();
+    private ResponseCompression compression;
+    private int maxBodySize = HttpRequestHandler.Default.defaultMaxBodySize;
+    private PerMessageDeflate perMessageDeflate;
 
     public IoBufferPool.Factory getBufferPool() {
         return bufferPool;
@@ -46,6 +49,41 @@ public class WebServerConfigBuilder<S> {
         this.bufferPool = bufferPool;
     }
 
+    public ResponseCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Compresses responses for requests that accept gzip or deflate. Null, the default, turns compression off.
+     */
+    public void setCompression(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    public int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * Request bodies larger than this are answered with 413 instead of being read into memory. Handlers that
+     * stream bodies set their own limit.
+     */
+    public void setMaxBodySize(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public PerMessageDeflate getPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    /**
+     * Accepts the permessage-deflate extension on websockets added after this call. Null, the default, leaves
+     * websocket messages uncompressed.
+     */
+    public void setPerMessageDeflate(PerMessageDeflate perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+    }
+
     public WebServerConfigBuilder(SessionFactory<S> factory) {
         this.factory = factory;
     }
@@ -112,8 +150,9 @@ public class WebServerConfigBuilder<S> {
     }
 
     public <T> WebServerConfigBuilder<S> add(PathMatcher<S> path, WebSocketHandler<S, T> handler, WebSocketSecurity<S> security) {
+        final PerMessageDeflate deflate = perMessageDeflate;
         events.add((map) -> {
-            map.add(path, new WebSocketRequestHandler<>(websocketCharset, handler, security));
+            map.add(path, new WebSocketRequestHandler<>(websocketCharset, handler, security, deflate));
         });
         return this;
     }
@@ -148,11 +187,15 @@ public class WebServerConfigBuilder<S> {
         for (Consumer<HandlerLocator.List<S>> event : events) {
             event.accept(all);
         }
-        HttpRequestHandler<S> handler = decorator.decorate(createHandler(all));
-        return new WebDispatcher<>(readFiber, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcher, bufferPool);
+        HttpRequestHandler<S> handler = createHandler(all);
+        if (compression != null) {
+            handler = new CompressingResponse.Handler<>(handler, compression);
+        }
+        handler = decorator.decorate(handler);
+        return new WebDispatcher<>(readFiber, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcher, bufferPool, maxBodySize);
     }
 
     protected HttpRequestHandler<S> createHandler(final HandlerLocator.List<S> handlerMap) {
-        return new HttpRequestHandler.Default<>(handlerMap, defaultHandler, exceptionHandler);
+        return new HttpRequestHandler.Default<>(handlerMap, defaultHandler, exceptionHandler, maxBodySize);
     }
 }
@@ -0,0 +1,165 @@
+package org.jetlang.web;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the same message to many websocket connections. Each message is framed once into a read only buffer,
+ * and every member is written a duplicate of it, so members that are buffering queue a reference to the shared
+ * frame instead of a copy. The shared frame is uncompressed, so members that negotiated permessage-deflate are
+ * sent it as is. Connections that mask their frames are sent the encoded payload through their own connection
+ * instead.
+ * <p>
+ * Members can be added and removed from any thread. Members found closed while sending are removed.
+ */
+public class WebSocketBroadcastGroup {
+
+    private static final Charset utf8 = Charset.forName("UTF-8");
+
+    private final ConcurrentHashMap<WebSocketConnection, Member> members = new ConcurrentHashMap<>();
+    private final LongAdder broadcasts = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder buffered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private int directFrameThreshold = 16 * 1024;
+
+    private static class Member {
+        final WebSocketConnection connection;
+        //null when the member cannot be sent the shared frame
+        final NioWriter writer;
+
+        Member(WebSocketConnection connection) {
+            this.connection = connection;
+            WebSocketConnection target = connection;
+            while (target instanceof WebFiberConnection) {
+                target = ((WebFiberConnection) target).getConnection();
+            }
+            this.writer = target instanceof WebSocketConnectionImpl ? ((WebSocketConnectionImpl) target).getSharedFrameWriter() : null;
+        }
+    }
+
+    /**
+     * @return false if the connection is already a member
+     */
+    public boolean add(WebSocketConnection connection) {
+        return members.putIfAbsent(connection, new Member(connection)) == null;
+    }
+
+    public boolean remove(WebSocketConnection connection) {
+        return members.remove(connection) != null;
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public int getDirectFrameThreshold() {
+        return directFrameThreshold;
+    }
+
+    /**
+     * Frames of at least this many bytes are built in a direct buffer. Smaller frames use a heap buffer, which is
+     * much cheaper to allocate than the copy the socket makes of it on each write.
+     */
+    public void setDirectFrameThreshold(int directFrameThreshold) {
+        this.directFrameThreshold = directFrameThreshold;
+    }
+
+    /**
+     * @return the number of members the message was sent or buffered to
+     */
+    public int send(String msg) {
+        final byte[] bytes = msg.getBytes(utf8);
+        return sendText(bytes, 0, bytes.length);
+    }
+
+    public int sendText(byte[] bytes, int offset, int length) {
+        return broadcast(WebSocketConnectionImpl.OPCODE_TEXT, bytes, offset, length);
+    }
+
+    public int sendBinary(byte[] bytes, int offset, int length) {
+        return broadcast(WebSocketConnectionImpl.OPCODE_BINARY, bytes, offset, length);
+    }
+
+    private int broadcast(byte opCode, byte[] bytes, int offset, int length) {
+        broadcasts.increment();
+        ByteBuffer frame = null;
+        int sent = 0;
+        for (Member member : members.values()) {
+            final SendResult result;
+            if (member.writer != null) {
+                if (frame == null) {
+                    frame = frame(opCode, bytes, offset, length);
+                }
+                result = member.writer.sendShared(frame);
+            } else if (opCode == WebSocketConnectionImpl.OPCODE_TEXT) {
+                result = member.connection.sendText(bytes, offset, length);
+            } else {
+                result = member.connection.sendBinary(bytes, offset, length);
+            }
+            switch (result.getType()) {
+                case Buffered:
+                    buffered.increment();
+                    //fall through
+                case Success:
+                    delivered.increment();
+                    bytesSent.add(length);
+                    sent++;
+                    break;
+                default:
+                    failed.increment();
+                    members.remove(member.connection, member);
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Encodes an unmasked, unfragmented frame.
+     */
+    private ByteBuffer frame(byte opCode, byte[] bytes, int offset, int length) {
+        final WebSocketConnectionImpl.SizeType size = WebSocketConnectionImpl.findSize(length);
+        final int frameLength = 1 + size.bytes + length;
+        final ByteBuffer bb = frameLength < directFrameThreshold ? ByteBuffer.allocate(frameLength) : NioReader.bufferAllocateDirect(frameLength);
+        bb.put((byte) (0x80 | opCode));
+        size.write(bb, length, false);
+        bb.put(bytes, offset, length);
+        bb.flip();
+        return bb.asReadOnlyBuffer();
+    }
+
+    public long getBroadcastCount() {
+        return broadcasts.sum();
+    }
+
+    /**
+     * @return messages sent or buffered to a member
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return deliveries the member's socket could not take at once
+     */
+    public long getBufferedCount() {
+        return buffered.sum();
+    }
+
+    /**
+     * @return deliveries to closed or failed members, which are then removed
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return payload bytes delivered, summed over members
+     */
+    public long getBytesSentCount() {
+        return bytesSent.sum();
+    }
+}
@@ -139,7 +139,9 @@ public class WebSocketClient<S, T> {
         @Override
         public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<S> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<S> reader, NioWriter writer, S sessionState) {
             byte[] mask = new byte[]{randomByte(), randomByte(), randomByte(), randomByte()};
-            WebSocketConnectionImpl connection = new WebSocketConnectionImpl(writer, mask, reader.getReadFiber(), headers);
+            final PerMessageDeflate perMessageDeflate = config.getPerMessageDeflate();
+            final PerMessageDeflate.Codec deflate = perMessageDeflate != null ? perMessageDeflate.accept(headers.get("Sec-WebSocket-Extensions")) : null;
+            WebSocketConnectionImpl connection = new WebSocketConnectionImpl(writer, mask, reader.getReadFiber(), headers, deflate);
             state = new Connected(connection, newChannel);
             WebSocketReader<S, T> wsReader = new WebSocketReader<S, T>(connection, headers, utf8, dispatcher.createOnNewSession(this.handler, headers, sessionState), () -> WebSocketClient.this.reconnectOnClose(new CountDownLatch(1)), sessionState);
             latch.countDown();
@@ -353,6 +355,10 @@ public class WebSocketClient<S, T> {
             request.add("Cookie", builder.toString());
         }
         request.add("Sec-WebSocket-Key", secKey());
+        final PerMessageDeflate perMessageDeflate = config.getPerMessageDeflate();
+        if (perMessageDeflate != null) {
+            request.add("Sec-WebSocket-Extensions", perMessageDeflate.offer());
+        }
         addHeadersToHandshake(request);
         return request.toByteBuffer(ascii);
     }
@@ -406,5 +412,12 @@ public class WebSocketClient<S, T> {
         public TimeUnit getConnectTimeoutUnit() {
             return TimeUnit.SECONDS;
         }
+
+        /**
+         * @return settings to offer permessage-deflate with, or null to never compress
+         */
+        public PerMessageDeflate getPerMessageDeflate() {
+            return null;
+        }
     }
 }
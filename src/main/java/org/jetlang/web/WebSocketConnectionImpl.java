@@ -27,12 +27,19 @@ public class WebSocketConnectionImpl implements WebSocketConnection {
     private static final SizeType[] sizes = SizeType.values();
     private boolean closed;
     private final List<Disposable> disposables = new ArrayList<>();
+    //null unless permessage-deflate was negotiated
+    final PerMessageDeflate.Codec deflate;
 
     public WebSocketConnectionImpl(NioWriter writer, byte[] maskingBytes, NioFiber readFiber, HttpRequest request) {
+        this(writer, maskingBytes, readFiber, request, null);
+    }
+
+    public WebSocketConnectionImpl(NioWriter writer, byte[] maskingBytes, NioFiber readFiber, HttpRequest request, PerMessageDeflate.Codec deflate) {
         this.writer = writer;
         this.maskingBytes = maskingBytes;
         this.readFiber = readFiber;
         this.request = request;
+        this.deflate = deflate;
     }
 
     @Override
@@ -53,7 +60,7 @@ public class WebSocketConnectionImpl implements WebSocketConnection {
 
     @Override
     public SendResult sendText(byte[] bytes, int offset, int length) {
-        return send(OPCODE_TEXT, bytes, offset, length);
+        return writer.sendWsMsg(OPCODE_TEXT, bytes, offset, length, maskingBytes, deflate);
     }
 
     @Override
@@ -72,6 +79,9 @@ public class WebSocketConnectionImpl implements WebSocketConnection {
             //clone to prevent concurrent mod
             new ArrayList<>(disposables).forEach(Disposable::dispose);
         }
+        if (deflate != null) {
+            deflate.close();
+        }
     }
 
 
@@ -118,7 +128,17 @@ public class WebSocketConnectionImpl implements WebSocketConnection {
 
     @Override
     public SendResult sendBinary(byte[] buffer, int offset, int length) {
-        return send(OPCODE_BINARY, buffer, offset, length);
+        return writer.sendWsMsg(OPCODE_BINARY, buffer, offset, length, maskingBytes, deflate);
+    }
+
+    /**
+     * An uncompressed frame, sent with RSV1 clear, is valid on a permessage-deflate connection and leaves the
+     * compression context alone, so compressing ends can take shared frames too.
+     *
+     * @return the writer to send shared broadcast frames with, or null if this end masks its frames
+     */
+    NioWriter getSharedFrameWriter() {
+        return maskingBytes.length == 0 ? writer : null;
     }
 
     private SendResult send(byte opCode, byte[] bytes, int offset, int length) {
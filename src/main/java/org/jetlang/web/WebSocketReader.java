@@ -5,6 +5,7 @@ import org.jetlang.remote.core.StringDecoder;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.zip.DataFormatException;
 
 public class WebSocketReader<S, T> {
 
@@ -37,21 +38,24 @@ public class WebSocketReader<S, T> {
             boolean rsv1 = ((b & 0x40) != 0);
             boolean rsv2 = ((b & 0x20) != 0);
             boolean rsv3 = ((b & 0x10) != 0);
-            if (rsv1 || rsv2 || rsv3) {
+            byte opcode = (byte) (b & 0x0F);
+            //with permessage-deflate, RSV1 marks the first frame of a compressed data message
+            final boolean compressed = rsv1 && connection.deflate != null
+                    && (opcode == WebSocketConnectionImpl.OPCODE_TEXT || opcode == WebSocketConnectionImpl.OPCODE_BINARY);
+            if ((rsv1 && !compressed) || rsv2 || rsv3) {
                 return closeOnError("Reserve bits are not supported.");
             }
-            byte opcode = (byte) (b & 0x0F);
             switch (opcode) {
                 case WebSocketConnectionImpl.OPCODE_TEXT:
-                    return textFrame.init(ContentType.Text, fin, false);
+                    return textFrame.init(ContentType.Text, fin, false, compressed);
                 case WebSocketConnectionImpl.OPCODE_BINARY:
-                    return textFrame.init(ContentType.Binary, fin, false);
+                    return textFrame.init(ContentType.Binary, fin, false, compressed);
                 case WebSocketConnectionImpl.OPCODE_PING:
-                    return textFrame.init(ContentType.PING, fin, false);
+                    return textFrame.init(ContentType.PING, fin, false, false);
                 case WebSocketConnectionImpl.OPCODE_PONG:
-                    return textFrame.init(ContentType.PONG, fin, false);
+                    return textFrame.init(ContentType.PONG, fin, false, false);
                 case WebSocketConnectionImpl.OPCODE_CONT:
-                    return textFrame.init(null, fin, true);
+                    return textFrame.init(null, fin, true, false);
                 case WebSocketConnectionImpl.OPCODE_CLOSE:
                     connection.sendClose();
                     return createClose();
@@ -129,14 +133,16 @@ public class WebSocketReader<S, T> {
         private ContentType t;
         private boolean fin;
         private boolean isFragment;
+        private boolean compressed;
 
-        private NioReader.State init(ContentType t, boolean fin, boolean isFragment) {
+        private NioReader.State init(ContentType t, boolean fin, boolean isFragment, boolean compressed) {
             if (t != null && !fin && !t.canBeFragmented) {
                 return closeOnError(t + " cannot be fragmented.");
             }
             this.t = t;
             this.fin = fin;
             this.isFragment = isFragment;
+            this.compressed = compressed;
             return this;
         }
 
@@ -146,7 +152,7 @@ public class WebSocketReader<S, T> {
             final int size = (byte) (0x7F & b);
             final boolean frameMasked = (b & 0x80) != 0;
             if (size >= 0 && size <= 125) {
-                return bodyReadinit(size, t, fin, isFragment, frameMasked);
+                return bodyReadinit(size, t, fin, isFragment, frameMasked, compressed);
             }
             if (t != null && !t.canBeFragmented) {
                 return closeOnError(t + " Max Size of 125.");
@@ -161,7 +167,7 @@ public class WebSocketReader<S, T> {
                     @Override
                     public NioReader.State processBytes(ByteBuffer bb) {
                         int size = ((bb.get() & 0xFF) << 8) + (bb.get() & 0xFF);
-                        return bodyReadinit(size, t, fin, isFragment, frameMasked);
+                        return bodyReadinit(size, t, fin, isFragment, frameMasked, compressed);
                     }
                 };
             }
@@ -174,7 +180,7 @@ public class WebSocketReader<S, T> {
 
                     @Override
                     public NioReader.State processBytes(ByteBuffer bb) {
-                        return bodyReadinit((int) bb.getLong(), t, fin, isFragment, frameMasked);
+                        return bodyReadinit((int) bb.getLong(), t, fin, isFragment, frameMasked, compressed);
                     }
                 };
             }
@@ -188,14 +194,14 @@ public class WebSocketReader<S, T> {
         }
     }
 
-    private NioReader.State bodyReadinit(int size, ContentType t, boolean fin, boolean isFragment, boolean frameMasked) {
+    private NioReader.State bodyReadinit(int size, ContentType t, boolean fin, boolean isFragment, boolean frameMasked, boolean compressed) {
         if (isFragment || !fin) {
-            return fragment.init(size, t, fin, isFragment, frameMasked);
+            return fragment.init(size, t, fin, isFragment, frameMasked, compressed);
         }
         if (fragment.expectingFragment() && t.canBeFragmented) {
             return closeOnError(t + " receiving when expecting fragment.");
         }
-        return bodyRead.init(size, t, fin, isFragment, frameMasked);
+        return bodyRead.init(size, t, fin, isFragment, frameMasked, compressed);
     }
 
 
@@ -206,13 +212,15 @@ public class WebSocketReader<S, T> {
         private byte[] result = new byte[0];
         private boolean fin;
         private boolean frameMasked;
+        private boolean compressed;
 
-        NioReader.State init(int size, ContentType t, boolean fin, boolean isFragment, boolean frameMasked) {
+        NioReader.State init(int size, ContentType t, boolean fin, boolean isFragment, boolean frameMasked, boolean compressed) {
             this.fin = fin;
             this.frameMasked = frameMasked;
             if (!isFragment) {
                 this.t = t;
                 this.totalSize = 0;
+                this.compressed = compressed;
             } else if (this.t == null) {
                 return closeOnError("ContentType not specified for fragment.");
             }
@@ -256,8 +264,19 @@ public class WebSocketReader<S, T> {
         }
 
         boolean invoke() {
+            byte[] message = result;
+            int size = totalSize;
+            if (compressed) {
+                try {
+                    size = connection.deflate.inflate(result, totalSize);
+                    message = connection.deflate.getInflated();
+                } catch (DataFormatException invalid) {
+                    handler.onError(connection, state, "Invalid compressed message: " + invalid.getMessage());
+                    return false;
+                }
+            }
             try {
-                return t.onComplete(handler, connection, state, result, totalSize, charset);
+                return t.onComplete(handler, connection, state, message, size, charset);
             } catch (Exception failed) {
                 handler.onException(connection, state, failed);
                 return true;
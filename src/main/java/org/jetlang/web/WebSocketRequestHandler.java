@@ -11,11 +11,20 @@ public class WebSocketRequestHandler<S, T> implements Handler<S> {
     private final Charset local;
     private final WebSocketHandler<S, T> handler;
     private final WebSocketSecurity<S> security;
+    private final PerMessageDeflate perMessageDeflate;
 
     public WebSocketRequestHandler(Charset local, WebSocketHandler<S, T> handler, WebSocketSecurity<S> security) {
+        this(local, handler, security, null);
+    }
+
+    /**
+     * @param perMessageDeflate accepts permessage-deflate when clients offer it, or null to never compress
+     */
+    public WebSocketRequestHandler(Charset local, WebSocketHandler<S, T> handler, WebSocketSecurity<S> security, PerMessageDeflate perMessageDeflate) {
         this.local = local;
         this.handler = handler;
         this.security = security;
+        this.perMessageDeflate = perMessageDeflate;
     }
 
     @Override
@@ -23,8 +32,14 @@ public class WebSocketRequestHandler<S, T> implements Handler<S> {
         if (security.passes(headerReader.getReadFiber(), headers, sessionState)) {
             final String key = headers.get("Sec-WebSocket-Key") + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
             final String reply = DatatypeConverter.printBase64Binary(msgDigest.digest(key.getBytes(headerReader.ascii)));
-            response.sendWebsocketHandshake(reply, null);
-            WebSocketConnectionImpl connection = new WebSocketConnectionImpl(writer, new byte[0], headerReader.getReadFiber(), headers);
+            final PerMessageDeflate.Codec deflate = perMessageDeflate != null ? perMessageDeflate.negotiate(headers.get("Sec-WebSocket-Extensions")) : null;
+            KeyValueList extensions = null;
+            if (deflate != null) {
+                extensions = new KeyValueList(1, false);
+                extensions.add("Sec-WebSocket-Extensions", deflate.getHeader());
+            }
+            response.sendWebsocketHandshake(reply, extensions);
+            WebSocketConnectionImpl connection = new WebSocketConnectionImpl(writer, new byte[0], headerReader.getReadFiber(), headers, deflate);
             WebSocketReader<S, T> reader = new WebSocketReader<S, T>(connection, headers, local, dispatcher.createOnNewSession(handler, headers, sessionState), () -> {
             }, sessionState);
             return reader.start();
@@ -15,8 +15,12 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -410,6 +414,127 @@ public abstract class IntegrationBase {
     }
 
 
+    @Test
+    public void sessionListenerRequestReply() throws IOException {
+        final EventAssert<String> channelRequest = new EventAssert<String>(1);
+        NewSessionHandler sessionCallback = wrap(new NewFiberSessionHandler() {
+            public void onNewSession(ClientPublisher pub, final JetlangFiberSession session) {
+                session.setSessionListener(new SessionListener<Object>() {
+                    @Override
+                    public void onRequest(int reqId, String reqTopic, Object req) {
+                        session.reply(reqId, reqTopic, "direct:" + req);
+                    }
+                });
+                Callback<SessionRequest> onRequest = new Callback<SessionRequest>() {
+                    public void onMessage(SessionRequest sessionRequest) {
+                        channelRequest.receiveMessage((String) sessionRequest.getRequest());
+                    }
+                };
+                session.getSessionRequestChannel().subscribe(session.getFiber(), onRequest);
+            }
+        });
+
+        Acceptor acceptor = createAcceptor(sessionCallback);
+
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        EventAssert<String> reply = new EventAssert<String>(1);
+        JetlangClient client = createClient();
+        client.start();
+
+        CallbackList<TimeoutControls> timeout = CallbackList.create();
+        client.request("reqTopic", "requestObject", new SynchronousDisposingExecutor(),
+                reply.createCallback(), timeout, 1000, TimeUnit.MILLISECONDS);
+
+        reply.assertEvent();
+        assertEquals("direct:requestObject", reply.takeFromReceived());
+        channelRequest.assertEvent();
+        assertEquals(0, timeout.received.size());
+        close(client);
+        acceptor.stop();
+    }
+
+    /**
+     * False for clients that ignore the session resume setting and start a new session on every connect.
+     */
+    protected boolean resumesSessions() {
+        return true;
+    }
+
+    @Test
+    public void sessionResumeAfterDisconnect() throws IOException, InterruptedException {
+        sessionConfig.setResumeWindowSize(100);
+        clientConfig.setSessionResume(true);
+        clientConfig.setReconnectDelayInMs(200);
+        final EventAssert<JetlangSession> sessions = new EventAssert<JetlangSession>(1);
+        final EventAssert<SessionTopic> subscriptions = EventAssert.create(1);
+        NewSessionHandler sessionCallback = wrap(new NewFiberSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangFiberSession session) {
+                subscriptions.subscribe(session.getSubscriptionRequestChannel());
+                sessions.receiveMessage(session);
+            }
+        });
+        final List<Socket> sockets = Collections.synchronizedList(new ArrayList<Socket>());
+        conn = new SocketConnector("localhost", 8081) {
+            @Override
+            public Socket connect() throws IOException {
+                Socket socket = super.connect();
+                sockets.add(socket);
+                return socket;
+            }
+
+            @Override
+            public SocketChannel openChannel(Endpoint endpoint) throws IOException {
+                SocketChannel channel = super.openChannel(endpoint);
+                sockets.add(channel.socket());
+                return channel;
+            }
+        };
+
+        Acceptor acceptor = createAcceptor(sessionCallback);
+
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        EventAssert<Object> msgReceived = new EventAssert<Object>(0);
+        JetlangClient client = createClient();
+        EventAssert<ConnectEvent> connects = EventAssert.expect(2, client.getConnectChannel());
+        EventAssert<CloseEvent> closes = EventAssert.expect(1, client.getCloseChannel());
+        client.subscribe("topic", msgReceived.asSubscribable());
+        client.start();
+
+        sessions.assertEvent();
+        subscriptions.assertEvent();
+        JetlangSession session = sessions.received.take();
+        subscriptions.received.take();
+        session.publish("topic", "beforeDisconnect");
+        assertEquals("beforeDisconnect", msgReceived.received.poll(10, TimeUnit.SECONDS));
+
+        sockets.get(0).close();
+        closes.assertEvent();
+        //published before the client reconnects, so it only arrives if the session is resumed
+        session.publish("topic", "whileDisconnected");
+        connects.assertEvent();
+        if (resumesSessions()) {
+            assertEquals("whileDisconnected", msgReceived.received.poll(10, TimeUnit.SECONDS));
+        } else {
+            //the client falls back to a new session and subscribes again
+            session = sessions.received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(session);
+            assertNotNull(subscriptions.received.poll(10, TimeUnit.SECONDS));
+        }
+        session.publish("topic", "afterReconnect");
+        assertEquals("afterReconnect", msgReceived.received.poll(10, TimeUnit.SECONDS));
+        final int expectedSessions = resumesSessions() ? 1 : 2;
+        assertEquals(expectedSessions, sessions.receiveCount.get());
+        assertEquals(expectedSessions, subscriptions.receiveCount.get());
+        assertTrue(msgReceived.received.toString(), msgReceived.received.isEmpty());
+
+        close(client);
+        acceptor.stop();
+    }
+
     @Test
     public void regression() throws IOException, InterruptedException {
         final EventAssert<SessionTopic> subscriptionReceived = new EventAssert<SessionTopic>(1);
@@ -474,7 +599,46 @@ public abstract class IntegrationBase {
         service.shutdownNow();
     }
 
-    private JetlangClient createClient() {
+    @Test
+    public void batchedMessageDelivery() throws IOException, InterruptedException {
+        final int total = 500;
+        final CountDownLatch received = new CountDownLatch(total);
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+        NewFiberSessionHandler handlerFactory = new NewFiberSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangFiberSession session) {
+                Callback<List<SessionMessage<?>>> onBatch = new Callback<List<SessionMessage<?>>>() {
+                    public void onMessage(List<SessionMessage<?>> batch) {
+                        for (SessionMessage<?> msg : batch) {
+                            messages.add((String) msg.getMessage());
+                            received.countDown();
+                        }
+                    }
+                };
+                session.getSessionMessageBatchChannel().subscribe(session.getFiber(), onBatch);
+            }
+        };
+
+        Acceptor acceptor = createAcceptor(wrap(handlerFactory));
+
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        JetlangClient client = createClient();
+        EventAssert<ConnectEvent> clientConnect = EventAssert.expect(1, client.getConnectChannel());
+        client.start();
+        clientConnect.assertEvent();
+        for (int i = 0; i < total; i++) {
+            client.publish("toServer", String.valueOf(i));
+        }
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < total; i++) {
+            assertEquals(String.valueOf(i), messages.get(i));
+        }
+        close(client);
+        acceptor.stop();
+    }
+
+    protected JetlangClient createClient() {
         return new JetlangTcpClient(conn, new ThreadFiber(), clientConfig, new JavaSerializer(), new ErrorHandler.SysOut());
     }
 
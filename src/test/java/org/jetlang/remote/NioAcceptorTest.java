@@ -0,0 +1,95 @@
+package org.jetlang.remote;
+
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.fibers.ThreadFiber;
+import org.jetlang.remote.acceptor.JetlangNioSession;
+import org.jetlang.remote.acceptor.JetlangSessionConfig;
+import org.jetlang.remote.acceptor.NioAcceptorHandler;
+import org.jetlang.remote.acceptor.NioJetlangRemotingClientFactory;
+import org.jetlang.remote.acceptor.NioJetlangSendFiber;
+import org.jetlang.remote.client.JetlangClientConfig;
+import org.jetlang.remote.client.JetlangTcpClient;
+import org.jetlang.remote.client.SocketConnector;
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.JavaSerializer;
+import org.jetlang.remote.core.TopicReader;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class NioAcceptorTest {
+
+    private final NioFiberImpl nioFiber = new NioFiberImpl();
+    private final ThreadFiber sendFiber = new ThreadFiber();
+    private final ServerSocketChannel serverChannel;
+    private final LinkedBlockingQueue<Object> unknown = new LinkedBlockingQueue<>();
+
+    public NioAcceptorTest() throws IOException {
+        serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        serverChannel.configureBlocking(false);
+        final Charset charset = Charset.forName("US-ASCII");
+        final JavaSerializer serializer = new JavaSerializer();
+        NioJetlangSendFiber<Object> sender = new NioJetlangSendFiber<>(sendFiber, nioFiber, serializer.getWriter(), charset, new NioFiberImpl.NoOpBuffer());
+        NioJetlangRemotingClientFactory.Handler<Object, Object> sessions = new NioJetlangRemotingClientFactory.Handler<Object, Object>() {
+            @Override
+            public void onNewSession(JetlangNioSession<Object, Object> session) {
+                session.getSubscriptionRequestChannel().subscribe(new SynchronousDisposingExecutor(), (topic) -> topic.publish("subscribed"));
+            }
+
+            @Override
+            public void onUnhandledReplyMsg(SelectionKey key, SocketChannel channel, String dataTopicVal, Object readObject) {
+                unknown.add(dataTopicVal);
+            }
+
+            @Override
+            public void onUnknownMessage(SelectionKey key, SocketChannel channel, int read) {
+                unknown.add(read);
+            }
+
+            @Override
+            public void onHandlerException(Exception failed) {
+                unknown.add(failed);
+            }
+        };
+        NioJetlangRemotingClientFactory<Object, Object> factory = new NioJetlangRemotingClientFactory<>(serializer, new JetlangSessionConfig(), sessions, sender, new TopicReader.Cached(charset));
+        nioFiber.addHandler(new NioAcceptorHandler(serverChannel, factory, () -> {
+        }));
+        nioFiber.start();
+        sendFiber.start();
+    }
+
+    @After
+    public void shutdown() throws IOException {
+        nioFiber.dispose();
+        sendFiber.dispose();
+        serverChannel.close();
+    }
+
+    @Test
+    public void resumeRequestStartsFreshSession() throws InterruptedException {
+        JetlangClientConfig config = new JetlangClientConfig();
+        config.setSessionResume(true);
+        final int port = serverChannel.socket().getLocalPort();
+        JetlangTcpClient<Object, Object> client = new JetlangTcpClient<>(new SocketConnector("localhost", port), new ThreadFiber(), config, new JavaSerializer(), new ErrorHandler.SysOut());
+        LinkedBlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        client.subscribe("topic", new SynchronousDisposingExecutor(), received::add);
+        client.start();
+        try {
+            assertEquals("subscribed", received.poll(10, TimeUnit.SECONDS));
+            assertEquals(null, unknown.poll());
+        } finally {
+            client.close(true).await(1, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.jetlang.remote;
+
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.remote.client.CloseEvent;
+import org.jetlang.remote.client.ConnectEvent;
+import org.jetlang.remote.client.DeadMessageEvent;
+import org.jetlang.remote.client.JetlangClient;
+import org.jetlang.remote.client.JetlangClientConfig;
+import org.jetlang.remote.client.NioJetlangTcpClient;
+import org.jetlang.remote.client.SocketConnector;
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.JavaSerializer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the integration tests with the nio client. All clients in a test share one nio fiber.
+ */
+public class NioClientTest extends FiberForAllSessionsTest {
+    NioFiberImpl clientFiber = new NioFiberImpl();
+
+    public NioClientTest() {
+        clientFiber.start();
+    }
+
+    @After
+    public void shutdown() {
+        clientFiber.dispose();
+        super.shutdown();
+    }
+
+    @Override
+    protected JetlangClient createClient() {
+        return new NioJetlangTcpClient(conn, clientFiber, clientConfig, new JavaSerializer(), new ErrorHandler.SysOut());
+    }
+
+    /**
+     * Session resume is not supported by the nio client.
+     */
+    @Override
+    protected boolean resumesSessions() {
+        return false;
+    }
+
+    @Test
+    public void serverThatStopsReadingClosesTheConnection() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            JetlangClientConfig config = new JetlangClientConfig();
+            config.setMaxPendingWriteBytes(1024 * 1024);
+            config.setHeartbeatIntervalInMs(0);
+            NioJetlangTcpClient<Object, Object> client = new NioJetlangTcpClient<>(new SocketConnector("localhost", server.getLocalPort()), clientFiber, config, new JavaSerializer(), new ErrorHandler.SysOut());
+            LinkedBlockingQueue<CloseEvent> closes = new LinkedBlockingQueue<>();
+            LinkedBlockingQueue<DeadMessageEvent<Object>> dead = new LinkedBlockingQueue<>();
+            client.getCloseChannel().subscribe(new SynchronousDisposingExecutor(), closes::add);
+            client.getDeadMessageChannel().subscribe(new SynchronousDisposingExecutor(), dead::add);
+            client.start();
+            //accepted but never read
+            try (Socket ignored = server.accept()) {
+                final byte[] msg = new byte[64 * 1024];
+                //the socket buffers take a few mb before the client has to buffer
+                for (int i = 0; i < 1000 && closes.isEmpty(); i++) {
+                    client.publish("topic", msg);
+                    Thread.sleep(1);
+                }
+                CloseEvent close = closes.poll(10, TimeUnit.SECONDS);
+                assertNotNull(close);
+                assertTrue(close instanceof CloseEvent.WriteException);
+                assertEquals(IOException.class, ((CloseEvent.WriteException) close).getException().getClass());
+                assertNotNull(dead.poll(10, TimeUnit.SECONDS));
+            } finally {
+                client.close(false);
+            }
+        }
+    }
+
+    @Test
+    public void futuresFailWhenConnectionIsLost() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            clientConfig.setReconnectDelayInMs(0);
+            NioJetlangTcpClient<Object, Object> client = new NioJetlangTcpClient<>(new SocketConnector("localhost", server.getLocalPort()), clientFiber, clientConfig, new JavaSerializer(), new ErrorHandler.SysOut());
+            EventAssert<ConnectEvent> connected = EventAssert.expect(1, client.getConnectChannel());
+            client.start();
+            try (Socket accepted = server.accept()) {
+                connected.assertEvent();
+                CompletableFuture<Object> unanswered = client.request("topic", "req", 0, TimeUnit.SECONDS);
+                //the request is read before the connection is dropped without a reply
+                assertTrue(accepted.getInputStream().read() >= 0);
+                accepted.close();
+                try {
+                    unanswered.get(10, TimeUnit.SECONDS);
+                    fail("should fail");
+                } catch (ExecutionException expected) {
+                    assertTrue(expected.getCause() instanceof IOException);
+                }
+            } finally {
+                client.close(false);
+            }
+        }
+    }
+}
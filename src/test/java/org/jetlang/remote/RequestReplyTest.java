@@ -10,14 +10,22 @@ import org.jetlang.remote.core.JavaSerializer;
 import org.junit.After;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RequestReplyTest {
     ExecutorService service = Executors.newCachedThreadPool();
@@ -85,9 +93,131 @@ public class RequestReplyTest {
         acceptor.stop();
     }
 
+    @Test
+    public void requestAllCompletesFutures() throws Exception {
+        NewSessionHandler sessionCallback = new NewSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangSession jetlangSession) {
+                Callback<SessionRequest> onRequest = new Callback<SessionRequest>() {
+                    public void onMessage(SessionRequest sessionRequest) {
+                        if (sessionRequest.getTopic().equals("echo")) {
+                            sessionRequest.reply(sessionRequest.getRequest() + "!");
+                        }
+                    }
+                };
+                jetlangSession.getSessionRequestChannel().subscribe(new SynchronousDisposingExecutor(), onRequest);
+            }
+        };
+
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        ExecutorService replies = Executors.newSingleThreadExecutor();
+        clientConfig.setReplyExecutor(replies);
+        JetlangTcpClient<Object, Object> client = createClient();
+        EventAssert<ConnectEvent> connected = EventAssert.expect(1, client.getConnectChannel());
+        client.start();
+        connected.assertEvent();
+
+        List<String> reqs = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            reqs.add(String.valueOf(i));
+        }
+        List<CompletableFuture<Object>> futures = client.requestAll("echo", reqs, 5, TimeUnit.SECONDS);
+        for (int i = 0; i < reqs.size(); i++) {
+            assertEquals(i + "!", futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(reqs.size(), client.getLatencyStats().getRequestReply().snapshot().getCount());
+
+        CompletableFuture<Object> ignored = client.request("ignored", "req", 50, TimeUnit.MILLISECONDS);
+        try {
+            ignored.get(5, TimeUnit.SECONDS);
+            fail("should time out");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+        close(client);
+        acceptor.stop();
+        replies.shutdown();
+    }
+
+    @Test
+    public void futuresFailWhenConnectionIsLost() throws Exception {
+        NewSessionHandler sessionCallback = new NewSessionHandler() {
+            public void onNewSession(ClientPublisher pub, final JetlangSession jetlangSession) {
+                Callback<SessionRequest> onRequest = new Callback<SessionRequest>() {
+                    public void onMessage(SessionRequest sessionRequest) {
+                        if (sessionRequest.getTopic().equals("drop")) {
+                            jetlangSession.disconnect();
+                        }
+                    }
+                };
+                jetlangSession.getSessionRequestChannel().subscribe(new SynchronousDisposingExecutor(), onRequest);
+            }
+        };
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        clientConfig.setReconnectDelayInMs(100);
+        JetlangTcpClient<Object, Object> client = createClient();
+        EventAssert<ConnectEvent> connected = EventAssert.expect(1, client.getConnectChannel());
+        client.start();
+        connected.assertEvent();
+
+        CompletableFuture<Object> dropped = client.request("drop", "req", 0, TimeUnit.SECONDS);
+        assertFailsWith(IOException.class, dropped);
+
+        connected = EventAssert.expect(1, client.getConnectChannel());
+        connected.assertEvent();
+        CompletableFuture<Object> unanswered = client.request("ignored", "req", 0, TimeUnit.SECONDS);
+        close(client);
+        assertFailsWith(IOException.class, unanswered);
+        acceptor.stop();
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> expected, CompletableFuture<Object> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("should fail");
+        } catch (ExecutionException failed) {
+            assertTrue(failed.getCause().toString(), expected.isInstance(failed.getCause()));
+        }
+    }
+
+    @Test
+    public void journaledMessagesSentOnConnect() throws Exception {
+        final EventAssert<SessionMessage<Object>> received = new EventAssert<SessionMessage<Object>>(3);
+        NewSessionHandler sessionCallback = new NewSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangSession jetlangSession) {
+                received.subscribe(jetlangSession.getSessionMessageChannel());
+            }
+        };
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        File dir = Files.createTempDirectory("journal").toFile();
+        OutboundJournal journal = new OutboundJournal(dir, 1024 * 64, 0, 0);
+        clientConfig.setInitialConnectDelayInMs(100);
+        JetlangTcpClient<Object, Object> client = new JetlangTcpClient<Object, Object>(conn, new ThreadFiber(), clientConfig, new JavaSerializer(), new ErrorHandler.SysOut(), journal);
+        for (int i = 0; i < 3; i++) {
+            client.publish("topic", "msg" + i);
+        }
+        client.start();
+        received.assertEvent();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("msg" + i, received.takeFromReceived().getMessage());
+        }
+        assertEquals(3, journal.getReplayedCount());
+        assertTrue(journal.isEmpty());
+        close(client);
+        acceptor.stop();
+        dir.delete();
+    }
 
-    private JetlangClient createClient() {
-        return new JetlangTcpClient(conn, new ThreadFiber(), clientConfig, new JavaSerializer(), new ErrorHandler.SysOut());
+    private JetlangTcpClient<Object, Object> createClient() {
+        return new JetlangTcpClient<Object, Object>(conn, new ThreadFiber(), clientConfig, new JavaSerializer(), new ErrorHandler.SysOut());
     }
 
     private Acceptor createAcceptor(NewSessionHandler newSession) throws IOException {
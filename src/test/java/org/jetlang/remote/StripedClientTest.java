@@ -0,0 +1,189 @@
+package org.jetlang.remote;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.ThreadFiber;
+import org.jetlang.remote.acceptor.*;
+import org.jetlang.remote.client.*;
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.JavaSerializer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StripedClientTest {
+    ExecutorService service = Executors.newCachedThreadPool();
+    JetlangClientConfig clientConfig = new JetlangClientConfig();
+    //set once the acceptor has bound a free port
+    SocketConnector conn;
+
+    @After
+    public void shutdown() {
+        service.shutdownNow();
+    }
+
+    @Test
+    public void topicsKeepOrderAcrossStripes() throws Exception {
+        final int topics = 8;
+        final int perTopic = 200;
+        final CountDownLatch allReceived = new CountDownLatch(topics * perTopic);
+        final List<JetlangSession> sessions = new CopyOnWriteArrayList<JetlangSession>();
+        final Map<String, List<Object>> received = new HashMap<String, List<Object>>();
+        NewSessionHandler sessionCallback = new NewSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangSession session) {
+                sessions.add(session);
+                Callback<SessionMessage<Object>> onMsg = new Callback<SessionMessage<Object>>() {
+                    public void onMessage(SessionMessage<Object> msg) {
+                        synchronized (received) {
+                            List<Object> list = received.get(msg.getTopic());
+                            if (list == null) {
+                                received.put(msg.getTopic(), list = new ArrayList<Object>());
+                            }
+                            list.add(msg.getMessage());
+                        }
+                        allReceived.countDown();
+                    }
+                };
+                session.getSessionMessageChannel().subscribe(new SynchronousDisposingExecutor(), onMsg);
+            }
+        };
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        new Thread(acceptor).start();
+
+        StripedJetlangTcpClient<Object, Object> client = createClient();
+        EventAssert<ConnectEvent> connected = EventAssert.expect(1, client.getConnectChannel());
+        client.start();
+        connected.assertEvent();
+        awaitSessions(sessions, 3);
+        for (int i = 0; i < perTopic; i++) {
+            for (int t = 0; t < topics; t++) {
+                client.publish("topic" + t, i);
+            }
+        }
+        assertTrue(allReceived.await(10, TimeUnit.SECONDS));
+        for (int t = 0; t < topics; t++) {
+            List<Object> msgs = received.get("topic" + t);
+            for (int i = 0; i < perTopic; i++) {
+                assertEquals(i, msgs.get(i));
+            }
+        }
+        assertTrue(client.close(true).await(1, TimeUnit.SECONDS));
+        acceptor.stop();
+    }
+
+    @Test
+    public void stripesReconnectTogether() throws Exception {
+        final List<JetlangSession> sessions = new CopyOnWriteArrayList<JetlangSession>();
+        NewSessionHandler sessionCallback = new NewSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangSession session) {
+                sessions.add(session);
+            }
+        };
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        new Thread(acceptor).start();
+
+        clientConfig.setReconnectDelayInMs(50);
+        StripedJetlangTcpClient<Object, Object> client = createClient();
+        EventAssert<ConnectEvent> connected = EventAssert.expect(2, client.getConnectChannel());
+        EventAssert<CloseEvent> closed = EventAssert.expect(1, client.getCloseChannel());
+        client.start();
+        while (connected.latch.getCount() > 1) {
+            Thread.sleep(1);
+        }
+        sessions.get(0).disconnect();
+        closed.assertEvent();
+        connected.assertEvent();
+        awaitSessions(sessions, 6);
+        assertEquals(3, client.getStripes().get(1).getReconnectCount() + client.getStripes().get(2).getReconnectCount()
+                + client.getStripes().get(0).getReconnectCount());
+        assertTrue(client.close(true).await(1, TimeUnit.SECONDS));
+        acceptor.stop();
+    }
+
+    @Test
+    public void sendThreadWritesKeepTopicOrder() throws Exception {
+        final EventAssert<Object> received = new EventAssert<Object>(2);
+        NewSessionHandler sessionCallback = new NewSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangSession session) {
+                Callback<SessionMessage<Object>> onMsg = new Callback<SessionMessage<Object>>() {
+                    public void onMessage(SessionMessage<Object> msg) {
+                        received.receiveMessage(msg.getMessage());
+                    }
+                };
+                session.getSessionMessageChannel().subscribe(new SynchronousDisposingExecutor(), onMsg);
+            }
+        };
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        new Thread(acceptor).start();
+
+        final StripedJetlangTcpClient<Object, Object> client = createClient();
+        EventAssert<ConnectEvent> connected = EventAssert.expect(1, client.getConnectChannel());
+        client.start();
+        connected.assertEvent();
+        String topic = "topic";
+        for (int i = 0; client.getStripe(topic) == client.getStripes().get(0); i++) {
+            topic = "topic" + i;
+        }
+
+        //a busy first stripe must not hold back writes on a topic it does not carry
+        final CountDownLatch release = new CountDownLatch(1);
+        client.getStripes().get(0).execOnSendThread(new Callback<SocketWriter<Object>>() {
+            public void onMessage(SocketWriter<Object> writer) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        final String target = topic;
+        client.execOnSendThread(target, new Callback<SocketWriter<Object>>() {
+            public void onMessage(SocketWriter<Object> writer) {
+                writer.send(target, "first");
+            }
+        });
+        client.publish(target, "second");
+        release.countDown();
+        received.assertEvent();
+        assertEquals("first", received.takeFromReceived());
+        assertEquals("second", received.takeFromReceived());
+        assertTrue(client.close(true).await(1, TimeUnit.SECONDS));
+        acceptor.stop();
+    }
+
+    private static void awaitSessions(List<JetlangSession> sessions, int expected) throws InterruptedException {
+        for (int i = 0; i < 1000 && sessions.size() < expected; i++) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, sessions.size());
+    }
+
+    private StripedJetlangTcpClient<Object, Object> createClient() {
+        return new StripedJetlangTcpClient<Object, Object>(conn, Arrays.asList(new ThreadFiber(), new ThreadFiber(), new ThreadFiber()),
+                clientConfig, new JavaSerializer.Factory(), new ErrorHandler.SysOut());
+    }
+
+    private Acceptor createAcceptor(NewSessionHandler newSession) throws IOException {
+        JetlangClientHandler handler = new JetlangClientHandler(new JavaSerializer.Factory(), newSession,
+                service, new JetlangSessionConfig(), new JetlangClientHandler.FiberFactory.ThreadFiberFactory(),
+                new ErrorHandler.SysOut());
+        final ServerSocket socket = new ServerSocket(0);
+        conn = new SocketConnector("localhost", socket.getLocalPort());
+        return new Acceptor(socket, new Acceptor.ErrorHandler.SysOut(), handler);
+    }
+}
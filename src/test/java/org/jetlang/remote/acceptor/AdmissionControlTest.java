@@ -0,0 +1,100 @@
+package org.jetlang.remote.acceptor;
+
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.JavaSerializer;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdmissionControlTest {
+
+    private final AdmissionControl admission = new AdmissionControl();
+    private final InetAddress first = InetAddress.getLoopbackAddress();
+
+    @Test
+    public void acceptRateLimitedByTokenBucket() throws Exception {
+        admission.setAcceptRate(10, 2);
+        long now = 0;
+        assertEquals(0, admission.delayBeforeAccept(now));
+        assertTrue(admission.admit(new TestChannel(), first, now));
+        assertTrue(admission.admit(new TestChannel(), first, now));
+        long delay = admission.delayBeforeAccept(now);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), delay);
+        assertEquals(1, admission.getDeferredForRateLimitCount());
+        assertEquals(0, admission.delayBeforeAccept(now + delay));
+        assertEquals(2, admission.getAdmittedCount());
+    }
+
+    @Test
+    public void connectionLimitReleasedWhenClosed() {
+        admission.setMaxConnections(1);
+        TestChannel channel = new TestChannel();
+        assertTrue(admission.admit(channel, first, 0));
+        assertTrue(admission.delayBeforeAccept(0) > 0);
+        assertEquals(1, admission.getDeferredForConnectionLimitCount());
+        channel.open = false;
+        //closed connections hold their slot until released
+        assertTrue(admission.delayBeforeAccept(0) > 0);
+        admission.release(channel);
+        admission.release(channel);
+        assertEquals(0, admission.delayBeforeAccept(0));
+        assertEquals(0, admission.getConnectionCount());
+    }
+
+    @Test
+    public void perAddressLimitRejects() throws Exception {
+        admission.setMaxConnectionsPerAddress(1);
+        InetAddress second = InetAddress.getByAddress(new byte[]{10, 0, 0, 2});
+        TestChannel channel = new TestChannel();
+        assertTrue(admission.admit(channel, first, 0));
+        assertFalse(admission.admit(new TestChannel(), first, 0));
+        assertTrue(admission.admit(new TestChannel(), second, 0));
+        assertEquals(1, admission.getRejectedForAddressLimitCount());
+        admission.release(channel);
+        assertTrue(admission.admit(new TestChannel(), first, 0));
+    }
+
+    @Test
+    public void acceptorReleasesWhenSessionCloses() throws Exception {
+        admission.setMaxConnections(1);
+        JetlangClientHandler<Object, Object> handler = new JetlangClientHandler<Object, Object>(new JavaSerializer.Factory(), (publisher, session) -> {
+        }, Executors.newCachedThreadPool(), new JetlangSessionConfig(), new JetlangClientHandler.FiberFactory.ThreadFiberFactory(), new ErrorHandler.SysOut());
+        ServerSocket port = new ServerSocket(0);
+        Acceptor acceptor = new Acceptor(port, new Acceptor.ErrorHandler.SysOut(), handler, admission);
+        new Thread(acceptor).start();
+        try {
+            Socket client = new Socket("localhost", port.getLocalPort());
+            awaitConnectionCount(1);
+            client.close();
+            awaitConnectionCount(0);
+        } finally {
+            acceptor.stop();
+        }
+    }
+
+    private void awaitConnectionCount(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && admission.getConnectionCount() != count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, admission.getConnectionCount());
+    }
+
+    private static class TestChannel implements Channel {
+        boolean open = true;
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        public void close() {
+            open = false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConflatingSubscriptionTest {
+
+    @Test
+    public void onlyLatestDeliveredWhileBehind() {
+        final QueuedExecutor executor = new QueuedExecutor();
+        final List<String> received = new ArrayList<String>();
+        Callback<String> cb = new Callback<String>() {
+            @Override
+            public void onMessage(String message) {
+                received.add(message);
+            }
+        };
+        ConflatingSubscription<String> sub = new ConflatingSubscription<String>(executor, cb);
+        sub.onMessage("1");
+        sub.onMessage("2");
+        sub.onMessage("3");
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        sub.onMessage("4");
+        executor.runAll();
+        assertEquals(Arrays.asList("3", "4"), received);
+        assertEquals(2, sub.getConflatedCount());
+    }
+
+    private static class QueuedExecutor implements DisposingExecutor {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        void runAll() {
+            List<Runnable> toRun = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (Runnable runnable : toRun) {
+                runnable.run();
+            }
+        }
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void add(Disposable disposable) {
+        }
+
+        public boolean remove(Disposable disposable) {
+            return true;
+        }
+
+        public int size() {
+            return 0;
+        }
+    }
+}
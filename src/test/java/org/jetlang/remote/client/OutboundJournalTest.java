@@ -0,0 +1,99 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.remote.core.ByteArrayBuffer;
+import org.jetlang.remote.core.SocketMessageStreamWriter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class OutboundJournalTest {
+
+    private final File dir;
+
+    public OutboundJournalTest() throws IOException {
+        dir = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void delete() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void framesRecoveredAfterReopen() throws IOException {
+        OutboundJournal journal = new OutboundJournal(dir, 64, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            byte[] frame = ("frame" + i).getBytes();
+            assertTrue(journal.append(frame, 0, frame.length, 1000));
+        }
+        assertFalse(journal.append(new byte[100], 0, 100, 1000));
+
+        OutboundJournal reopened = new OutboundJournal(dir, 64, 0, 0);
+        assertEquals(5, reopened.getPendingCount());
+        CapturingOut out = new CapturingOut();
+        assertEquals(5, reopened.drainTo(out, 1000));
+        assertEquals("frame0frame1frame2frame3frame4", out.written.toString());
+        assertTrue(reopened.isEmpty());
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void emptiedSegmentsIgnoredOnReopen() throws IOException {
+        Files.write(new File(dir, "0000000000000000007.journal").toPath(), new byte[64]);
+        OutboundJournal journal = new OutboundJournal(dir, 64, 0, 0);
+        assertTrue(journal.isEmpty());
+        assertEquals(0, dir.listFiles().length);
+        byte[] frame = "frame".getBytes();
+        assertTrue(journal.append(frame, 0, frame.length, 1000));
+        assertEquals("0000000000000000008.journal", dir.listFiles()[0].getName());
+    }
+
+    @Test
+    public void oldFramesDropped() throws IOException {
+        OutboundJournal journal = new OutboundJournal(dir, 64, 128, 100);
+        byte[] frame = new byte[40];
+        for (int i = 0; i < 4; i++) {
+            journal.append(frame, 0, frame.length, i * 10);
+        }
+        //size limit keeps the two newest segments
+        assertEquals(2, journal.getPendingCount());
+        assertEquals(2, journal.getDroppedCount());
+        journal.append(frame, 0, frame.length, 145);
+        CapturingOut out = new CapturingOut();
+        assertEquals(1, journal.drainTo(out, 145));
+        assertEquals(4, journal.getDroppedCount());
+    }
+
+    private static class CapturingOut extends ByteArrayBuffer implements SocketMessageStreamWriter.Out {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        public ByteArrayBuffer getBuffer() {
+            return this;
+        }
+
+        public void flush() throws IOException {
+            flushTo(written);
+        }
+
+        public void write(int byteToWrite) {
+            appendIntAsByte(byteToWrite);
+        }
+
+        public void writeBytes(byte[] bytes) {
+            append(bytes);
+        }
+
+        public boolean close() {
+            return true;
+        }
+    }
+}
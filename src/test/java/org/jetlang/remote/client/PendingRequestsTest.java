@@ -0,0 +1,60 @@
+package org.jetlang.remote.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PendingRequestsTest {
+
+    @Test
+    public void putAndRemoveAcrossResize() {
+        PendingRequests<String> requests = new PendingRequests<String>(10, 0);
+        for (int i = -500; i < 500; i++) {
+            requests.put(i, String.valueOf(i), 0);
+        }
+        assertEquals(1000, requests.size());
+        for (int i = -500; i < 500; i += 2) {
+            assertEquals(String.valueOf(i), requests.remove(i));
+        }
+        assertNull(requests.remove(-500));
+        assertEquals(500, requests.size());
+        for (int i = -499; i < 500; i += 2) {
+            assertEquals(String.valueOf(i), requests.get(i));
+        }
+        assertNull(requests.get(0));
+        assertFalse(requests.hasDeadlines());
+    }
+
+    @Test
+    public void expiresOnlyPassedDeadlines() {
+        PendingRequests<String> requests = new PendingRequests<String>(10, 1000);
+        requests.put(1, "short", 1050);
+        requests.put(2, "long", 1000 + 10 * 1000);
+        requests.put(3, "replied", 1050);
+        requests.put(4, "none", 0);
+        requests.remove(3);
+        assertTrue(requests.hasDeadlines());
+
+        List<String> expired = new ArrayList<String>();
+        requests.expire(1040, expired);
+        assertTrue(expired.isEmpty());
+        requests.expire(1060, expired);
+        assertEquals("[short]", expired.toString());
+
+        //more than a full rotation later
+        expired.clear();
+        requests.expire(1000 + 20 * 1000, expired);
+        assertEquals("[long]", expired.toString());
+
+        //expired requests stay until removed so late replies can still be matched
+        assertEquals("short", requests.get(1));
+        assertEquals(3, requests.size());
+        expired.clear();
+        requests.expire(1000 + 30 * 1000, expired);
+        assertTrue(expired.isEmpty());
+        assertFalse(requests.hasDeadlines());
+    }
+}
@@ -0,0 +1,73 @@
+package org.jetlang.remote.client;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+
+public class SocketConnectorTest {
+
+    private ServerSocket live;
+    //bound but not listening, so the port refuses connections and cannot be taken by another test
+    private Socket refusing;
+    private SocketConnector.Endpoint down;
+    private SocketConnector.Endpoint up;
+
+    @Before
+    public void bind() throws IOException {
+        refusing = new Socket();
+        refusing.bind(new InetSocketAddress("localhost", 0));
+        down = new SocketConnector.Endpoint("localhost", refusing.getLocalPort());
+        live = new ServerSocket(0);
+        up = new SocketConnector.Endpoint("localhost", live.getLocalPort());
+    }
+
+    @After
+    public void close() throws IOException {
+        live.close();
+        refusing.close();
+    }
+
+    @Test
+    public void failsOverToNextEndpoint() throws IOException {
+        SocketConnector connector = new SocketConnector(down, up);
+        Socket socket = connector.connect();
+        assertEquals(up.getPort(), socket.getPort());
+        socket.close();
+        assertEquals(2, connector.getConnectAttemptCount());
+        assertEquals(1, connector.getConnectFailureCount());
+
+        connector.setPolicy(SocketConnector.Policy.LeastRecentFailure);
+        assertSame(up, connector.endpointsInOrder().get(0));
+    }
+
+    @Test
+    public void raceConnectUsesReachableEndpoint() throws IOException {
+        SocketConnector connector = new SocketConnector(down, up);
+        connector.setParallelConnectDelayInMs(50);
+        Socket socket = connector.connect();
+        assertTrue(socket.isConnected());
+        assertEquals(up.getPort(), socket.getPort());
+        assertEquals(connector.getReadTimeoutInMs(), socket.getSoTimeout());
+        //a plain socket, so reads and writes do not share the lock of a channel's socket
+        assertNull(socket.getChannel());
+        socket.close();
+    }
+
+    @Test
+    public void backoffDoublesUpToMax() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 350, 0);
+        assertEquals(100, backoff.next());
+        assertEquals(200, backoff.next());
+        assertEquals(350, backoff.next());
+        assertEquals(350, backoff.next());
+        backoff.reset();
+        assertEquals(100, backoff.next());
+    }
+}
@@ -0,0 +1,48 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LazyChannelTest {
+
+    private final CloseableChannel.Group group = new CloseableChannel.Group();
+    private final LazyChannel<String> channel = new LazyChannel<String>(group);
+    private final List<String> received = new ArrayList<String>();
+    private final Callback<String> onMsg = new Callback<String>() {
+        public void onMessage(String message) {
+            received.add(message);
+        }
+    };
+
+    @Test
+    public void materializesOnFirstSubscribe() {
+        channel.publish("dropped");
+        assertFalse(channel.isMaterialized());
+
+        channel.subscribe(new SynchronousDisposingExecutor(), onMsg);
+        assertTrue(channel.isMaterialized());
+        channel.publish("delivered");
+        assertEquals(1, received.size());
+        assertEquals("delivered", received.get(0));
+    }
+
+    @Test
+    public void closedWithGroup() {
+        channel.subscribe(new SynchronousDisposingExecutor(), onMsg);
+        group.closeAndClear();
+        channel.publish("after close");
+        assertTrue(received.isEmpty());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void subscribeAfterGroupClosedFails() {
+        group.closeAndClear();
+        channel.subscribe(new SynchronousDisposingExecutor(), onMsg);
+    }
+}
@@ -0,0 +1,27 @@
+package org.jetlang.remote.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplayBufferTest {
+
+    @Test
+    public void replayWithinWindow() {
+        ReplayBuffer buffer = new ReplayBuffer(3);
+        assertTrue(buffer.canReplayFrom(0));
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, buffer.add(new byte[]{(byte) i}));
+        }
+        assertEquals(5, buffer.getLastSequence());
+        assertFalse(buffer.canReplayFrom(1));
+        assertTrue(buffer.canReplayFrom(2));
+        assertTrue(buffer.canReplayFrom(5));
+        assertFalse(buffer.canReplayFrom(6));
+
+        assertNull(buffer.get(2));
+        assertEquals(3, buffer.get(3)[0]);
+        assertEquals(5, buffer.get(5)[0]);
+        assertNull(buffer.get(6));
+    }
+}
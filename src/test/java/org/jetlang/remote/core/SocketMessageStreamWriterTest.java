@@ -0,0 +1,159 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.core.Callback;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class SocketMessageStreamWriterTest {
+
+    private final Charset charset = Charset.forName("US-ASCII");
+    private final List<Runnable> queued = new ArrayList<Runnable>();
+    private final Executor sendFiber = new Executor() {
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+    };
+    private final CountingStream socket = new CountingStream();
+    private final SocketWriteStats stats = new SocketWriteStats();
+    private final Callback<IOException> failOnError = new Callback<IOException>() {
+        public void onMessage(IOException e) {
+            throw new RuntimeException(e);
+        }
+    };
+
+    @Test
+    public void adaptiveWritesOnceWhenQueueDrains() throws IOException {
+        SocketMessageStreamWriter<String> writer = create(1024 * 64, TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 20; i++) {
+            writer.write("topic", "msg");
+        }
+        writer.writeByteAsInt(MsgTypes.Heartbeat);
+        assertEquals(0, socket.writes);
+        assertEquals(1, queued.size());
+
+        runQueued();
+        assertEquals(1, socket.writes);
+        assertEquals(1, stats.getSyscallCount());
+        assertEquals(socket.data.size(), stats.getBytesWritten());
+        assertEquals(stats.getBytesWritten(), stats.getAverageBytesPerSyscall(), 0);
+    }
+
+    @Test
+    public void adaptiveWritesWhenByteThresholdReached() throws IOException {
+        SocketMessageStreamWriter<String> writer = create(10, TimeUnit.SECONDS.toNanos(10));
+        writer.write("topic", "msg");
+        assertEquals(1, socket.writes);
+        runQueued();
+        assertEquals(1, socket.writes);
+    }
+
+    @Test
+    public void adaptiveWritesWhenDelayExceeded() throws IOException {
+        SocketMessageStreamWriter<String> writer = create(1024 * 64, 0);
+        writer.write("topic", "msg");
+        assertEquals(0, socket.writes);
+        writer.write("topic", "msg");
+        assertEquals(1, socket.writes);
+    }
+
+    @Test
+    public void flushBufferedWritesImmediately() throws IOException {
+        SocketMessageStreamWriter<String> writer = create(1024 * 64, TimeUnit.SECONDS.toNanos(10));
+        writer.writeByteAsInt(MsgTypes.Disconnect);
+        writer.flushBuffered();
+        assertEquals(1, socket.writes);
+        runQueued();
+        assertEquals(1, socket.writes);
+    }
+
+    @Test
+    public void adaptiveMatchesUnbufferedBytes() throws IOException {
+        CountingStream direct = new CountingStream();
+        SocketMessageStreamWriter<String> unbuffered = new SocketMessageStreamWriter<String>(direct, charset, new StringWriter());
+        SocketMessageStreamWriter<String> adaptive = create(1024 * 64, TimeUnit.SECONDS.toNanos(10));
+        for (SocketMessageStreamWriter<String> w : new SocketMessageStreamWriter[]{unbuffered, adaptive}) {
+            w.write("a", "1");
+            w.writeByteAsInt(MsgTypes.Heartbeat);
+            w.writeRequest(3, "b", "2");
+            w.writeSubscription(MsgTypes.Subscription, "c", charset);
+        }
+        runQueued();
+        assertEquals(4, direct.writes);
+        assertEquals(1, socket.writes);
+        assertEquals(new String(direct.data.toByteArray(), charset), new String(socket.data.toByteArray(), charset));
+    }
+
+    @Test
+    public void bufferedMessagesWrittenWithOneFlush() throws IOException {
+        CountingStream direct = new CountingStream();
+        SocketMessageStreamWriter<String> unbuffered = new SocketMessageStreamWriter<String>(direct, charset, new StringWriter());
+        SocketMessageStreamWriter<String> batched = new SocketMessageStreamWriter<String>(socket, charset, new StringWriter());
+        for (int i = 0; i < 20; i++) {
+            unbuffered.write("topic", String.valueOf(i));
+            batched.bufferMessage("topic", String.valueOf(i));
+        }
+        batched.bufferRequest(7, "req", "r");
+        unbuffered.writeRequest(7, "req", "r");
+        assertEquals(0, socket.writes);
+        batched.flush();
+        assertEquals(1, socket.writes);
+        assertEquals(new String(direct.data.toByteArray(), charset), new String(socket.data.toByteArray(), charset));
+    }
+
+    private SocketMessageStreamWriter<String> create(int maxBytes, long maxDelayNanos) throws IOException {
+        SocketMessageStreamWriter.AdaptiveStream out = new SocketMessageStreamWriter.AdaptiveStream(new ByteArrayBuffer(), socket, sendFiber, maxBytes, maxDelayNanos, failOnError, stats);
+        return new SocketMessageStreamWriter<String>(out, charset, new StringWriter());
+    }
+
+    private void runQueued() {
+        List<Runnable> copy = new ArrayList<Runnable>(queued);
+        queued.clear();
+        for (Runnable runnable : copy) {
+            runnable.run();
+        }
+    }
+
+    private static class StringWriter implements ObjectByteWriter<String> {
+        public void write(String topic, String msg, ByteMessageWriter writer) {
+            byte[] bytes = msg.getBytes();
+            writer.writeObjectAsBytes(bytes, 0, bytes.length);
+        }
+    }
+
+    private static class CountingStream implements ClosableOutputStream {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int writes;
+
+        private final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                writes++;
+                data.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writes++;
+                data.write(b, off, len);
+            }
+        };
+
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        public boolean close() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.jetlang.remote.example;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.ThreadFiber;
+import org.jetlang.remote.acceptor.JetlangStreamSession;
+import org.jetlang.remote.acceptor.MessageStreamWriter;
+import org.jetlang.remote.core.ErrorHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures retained heap per acceptor session. Idle sessions have no subscribers so their event channels
+ * are never materialized. Subscribed sessions subscribe to every event channel, which is what every session
+ * paid for when channels were allocated eagerly.
+ * <p>
+ * Run with a fixed heap (e.g. -Xms1g -Xmx1g) for stable numbers.
+ */
+public class SessionFootprintMain {
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = 100000;
+        if (args.length >= 1) {
+            sessions = Integer.parseInt(args[0]);
+        }
+        Fiber sendFiber = new ThreadFiber();
+        ErrorHandler errorHandler = new ErrorHandler.SysOut();
+        System.out.println("sessions = " + sessions);
+        for (int i = 0; i < 3; i++) {
+            measure("idle", sessions, false, sendFiber, errorHandler);
+            measure("subscribed", sessions, true, sendFiber, errorHandler);
+        }
+    }
+
+    private static void measure(String name, int count, boolean subscribe, Fiber sendFiber, ErrorHandler errorHandler) throws InterruptedException {
+        SynchronousDisposingExecutor executor = new SynchronousDisposingExecutor();
+        Callback<Object> noop = new Callback<Object>() {
+            public void onMessage(Object message) {
+            }
+        };
+        List<JetlangStreamSession<Object, Object>> held = new ArrayList<JetlangStreamSession<Object, Object>>(count);
+        long before = usedMemory();
+        for (int i = 0; i < count; i++) {
+            JetlangStreamSession<Object, Object> session = new JetlangStreamSession<Object, Object>(i, (MessageStreamWriter<Object>) null, sendFiber, errorHandler);
+            if (subscribe) {
+                subscribeAll(session, executor, noop);
+            }
+            held.add(session);
+        }
+        long after = usedMemory();
+        System.out.println(name + " bytes/session = " + (after - before) / count);
+        held.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void subscribeAll(JetlangStreamSession<Object, Object> session, SynchronousDisposingExecutor executor, Callback noop) {
+        session.getSubscriptionRequestChannel().subscribe(executor, noop);
+        session.getUnsubscribeChannel().subscribe(executor, noop);
+        session.getLogoutChannel().subscribe(executor, noop);
+        session.getHeartbeatChannel().subscribe(executor, noop);
+        session.getSessionMessageChannel().subscribe(executor, noop);
+        session.getReadTimeoutChannel().subscribe(executor, noop);
+        session.getSessionCloseChannel().subscribe(executor, noop);
+        session.getSessionRequestChannel().subscribe(executor, noop);
+        session.getSessionMessageBatchChannel().subscribe(executor, noop);
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
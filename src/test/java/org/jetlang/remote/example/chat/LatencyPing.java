@@ -10,6 +10,7 @@ import org.jetlang.remote.client.JetlangTcpClient;
 import org.jetlang.remote.client.SocketConnector;
 import org.jetlang.remote.core.ByteMessageWriter;
 import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.LatencyHistogram;
 import org.jetlang.remote.core.ObjectByteReader;
 import org.jetlang.remote.core.ObjectByteWriter;
 import org.jetlang.remote.core.Serializer;
@@ -47,21 +48,14 @@ public class LatencyPing {
         tcpClient.getCloseChannel().subscribe(executor, Client.<CloseEvent>print("Closed"));
         tcpClient.start();
 
+        final LatencyHistogram histogram = new LatencyHistogram();
         Callback<Long> onMsg = new Callback<Long>() {
             int count = 0;
-            long latency = 0;
-            long min = Long.MAX_VALUE;
-            long max = 0;
             public void onMessage(Long message) {
-                long duration = System.nanoTime() - message;
-                min = Math.min(duration, min);
-                max = Math.max(duration, max);
+                histogram.record(System.nanoTime() - message);
                 count++;
-                latency+= duration;
                 if(count == iteration){
-                    System.out.println("Min: " + min + " Max: " + max);
-                    System.out.println("Count: " + count);
-                    System.out.println("AvgNanos: " + (latency/count));
+                    System.out.println("Latency: " + histogram.snapshot());
                     latch.countDown();
                 }
             }
@@ -9,7 +9,9 @@ import org.jetlang.web.AuthenticatedUser;
 import org.jetlang.web.BasicAuthSecurity;
 import org.jetlang.web.HandlerLocator;
 import org.jetlang.web.HttpRequest;
+import org.jetlang.web.PerMessageDeflate;
 import org.jetlang.web.Permissions;
+import org.jetlang.web.ResponseCompression;
 import org.jetlang.web.RoundRobinClientFactory;
 import org.jetlang.web.SendResult;
 import org.jetlang.web.SessionDispatcherFactory;
@@ -139,6 +141,8 @@ public class WebServerEchoMain {
         //Each tcp connection will be given a pool fiber which will serialize incoming http or web requests.
         PoolFiberFactory poolFiberFactory = new PoolFiberFactory(executorService);
         config.setDispatcher(new SessionDispatcherFactory.FiberSessionFactory<MyConnectionState>(poolFiberFactory, true, true));
+        config.setCompression(new ResponseCompression());
+        config.setPerMessageDeflate(new PerMessageDeflate());
 
         config.add(pathEq("/websockets/echo"), handler);
         final URL resource = Thread.currentThread().getContextClassLoader().getResource("web");
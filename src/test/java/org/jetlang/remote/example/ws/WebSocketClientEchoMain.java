@@ -2,6 +2,7 @@ package org.jetlang.remote.example.ws;
 
 import org.jetlang.fibers.NioFiberImpl;
 import org.jetlang.web.HttpRequest;
+import org.jetlang.web.PerMessageDeflate;
 import org.jetlang.web.SessionFactory;
 import org.jetlang.web.WebSocketClient;
 import org.jetlang.web.WebSocketConnection;
@@ -60,7 +61,12 @@ public class WebSocketClientEchoMain {
             }
         };
         WebSocketClient<Map<String, Object>, Void> client = new WebSocketClient<Map<String, Object>, Void>(clientFiber, new URI("ws://localhost:8025/websockets/echo"),
-                new WebSocketClient.Config(), clienthandler, SessionFactory.mapPerClient());
+                new WebSocketClient.Config() {
+                    @Override
+                    public PerMessageDeflate getPerMessageDeflate() {
+                        return new PerMessageDeflate();
+                    }
+                }, clienthandler, SessionFactory.mapPerClient());
         CountDownLatch start = client.start();
         if (!start.await(60, TimeUnit.SECONDS)) {
             client.stop();
@@ -0,0 +1,260 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.NioChannelHandler;
+import org.jetlang.fibers.NioControls;
+import org.jetlang.fibers.NioFiber;
+import org.jetlang.fibers.NioFiberImpl;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedResponseTest {
+
+    private static class Captured implements HttpResponse {
+        final StringBuilder sent = new StringBuilder();
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public SendResult send(ByteBuffer fullResponse) {
+            byte[] bytes = new byte[fullResponse.remaining()];
+            fullResponse.get(bytes);
+            sent.append(new String(bytes, HeaderReader.ascii));
+            return SendResult.SUCCESS;
+        }
+    }
+
+    @Test
+    public void chunkFraming() {
+        Captured captured = new Captured();
+        ChunkedResponse body = captured.startChunked(200, "OK", "text/plain", null, Charset.forName("UTF-8"));
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Type: text/plain; charset=UTF-8\r\nTransfer-Encoding: chunked\r\n\r\n", captured.sent.toString());
+        captured.sent.setLength(0);
+
+        body.write("hello".getBytes(HeaderReader.ascii));
+        body.write(new byte[0]);
+        byte[] large = new byte[300];
+        Arrays.fill(large, (byte) 'x');
+        body.write(large);
+        body.end();
+        char[] xs = new char[300];
+        Arrays.fill(xs, 'x');
+        assertEquals("5\r\nhello\r\n12c\r\n" + new String(xs) + "\r\n0\r\n\r\n", captured.sent.toString());
+    }
+
+    @Test
+    public void writableOnceBufferDrains() throws Exception {
+        NioFiberImpl fiber = new NioFiberImpl();
+        fiber.start();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept()) {
+            accepted.configureBlocking(false);
+            accepted.socket().setSendBufferSize(8 * 1024);
+            client.socket().setReceiveBufferSize(8 * 1024);
+            final CountDownLatch registered = new CountDownLatch(1);
+            fiber.execute((c) -> {
+                c.addHandler(new Idle(accepted));
+                registered.countDown();
+            });
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+            NioWriter writer = new NioWriter(new Object(), accepted, fiber, new IoBufferPool.Default().createFor(accepted, null));
+            ChunkedResponse body = new HttpResponse.Default(writer).startChunked(200, "OK", "application/octet-stream", null, null);
+            body.setWaterMarks(16 * 1024, 64 * 1024);
+            final byte[] chunk = new byte[8 * 1024];
+            int chunks = 0;
+            while (body.isWritable()) {
+                body.write(chunk);
+                chunks++;
+            }
+            assertTrue(writer.getTotalBytesBuffered() <= 64 * 1024 + chunk.length + 16);
+
+            final CountDownLatch writable = new CountDownLatch(1);
+            body.whenWritable(writable::countDown);
+            assertFalse(writable.await(100, TimeUnit.MILLISECONDS));
+
+            final int chunkLength = HttpResponseWriter.chunkHeadLength(chunk.length) + chunk.length + 2;
+            final int headLength = HttpResponseWriter.headLength(200, "OK", "application/octet-stream", null, -1, null);
+            final byte[] received = new byte[headLength + chunks * chunkLength + 5];
+            Thread reader = new Thread(() -> {
+                try {
+                    new DataInputStream(client.socket().getInputStream()).readFully(received);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            reader.start();
+            assertTrue(writable.await(5, TimeUnit.SECONDS));
+            SendResult.Type ended = body.end().getType();
+            assertTrue(ended == SendResult.Type.Success || ended == SendResult.Type.Buffered);
+            reader.join(5000);
+            assertFalse(reader.isAlive());
+            assertEquals("0\r\n\r\n", new String(received, received.length - 5, 5, HeaderReader.ascii));
+        } finally {
+            fiber.dispose();
+        }
+    }
+
+    @Test
+    public void compressedResponsesKeepBackpressure() throws Exception {
+        NioFiberImpl fiber = new NioFiberImpl();
+        fiber.start();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept()) {
+            accepted.configureBlocking(false);
+            accepted.socket().setSendBufferSize(8 * 1024);
+            client.socket().setReceiveBufferSize(8 * 1024);
+            final CountDownLatch registered = new CountDownLatch(1);
+            fiber.execute((c) -> {
+                c.addHandler(new Idle(accepted));
+                registered.countDown();
+            });
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+            NioWriter writer = new NioWriter(new Object(), accepted, fiber, new IoBufferPool.Default().createFor(accepted, null));
+            final HttpResponse[] dispatched = new HttpResponse[1];
+            HttpRequestHandler<Void> target = new HttpRequestHandler<Void>() {
+                @Override
+                public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<Void> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<Void> reader, NioWriter writer, Void sessionState) {
+                    dispatched[0] = response;
+                    return null;
+                }
+
+                @Override
+                public void onException(Throwable processingException, SocketChannel channel) {
+                }
+            };
+            HttpRequest request = new HttpRequest("GET", "/", "HTTP/1.1", null);
+            request.add("Accept-Encoding", "gzip");
+            new CompressingResponse.Handler<>(target, new ResponseCompression()).dispatch(null, request, new HttpResponse.Default(writer), null, writer, null);
+            assertTrue(dispatched[0] instanceof CompressingResponse);
+
+            ChunkedResponse body = dispatched[0].startChunked(200, "OK", "application/octet-stream", null, null);
+            body.setWaterMarks(16 * 1024, 64 * 1024);
+            final byte[] chunk = new byte[8 * 1024];
+            for (int i = 0; i < 1000 && body.isWritable(); i++) {
+                body.write(chunk);
+            }
+            assertFalse(body.isWritable());
+            assertTrue(writer.getTotalBytesBuffered() <= 64 * 1024 + chunk.length + 16);
+            final CountDownLatch writable = new CountDownLatch(1);
+            body.whenWritable(writable::countDown);
+            assertFalse(writable.await(100, TimeUnit.MILLISECONDS));
+        } finally {
+            fiber.dispose();
+        }
+    }
+
+    @Test
+    public void largeChunksQueueBehindFiles() throws Exception {
+        final byte[] content = new byte[512 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.createTempFile("chunked", ".bin");
+        Files.write(file, content);
+        NioFiberImpl fiber = new NioFiberImpl();
+        fiber.start();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept()) {
+            accepted.configureBlocking(false);
+            accepted.socket().setSendBufferSize(8 * 1024);
+            client.socket().setReceiveBufferSize(8 * 1024);
+            final CountDownLatch registered = new CountDownLatch(1);
+            fiber.execute((c) -> {
+                c.addHandler(new Idle(accepted));
+                registered.countDown();
+            });
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+            NioWriter writer = new NioWriter(new Object(), accepted, fiber, new IoBufferPool.Default().createFor(accepted, null));
+            SendResult fileResult = writer.sendFile(ByteBuffer.wrap(new byte[]{'f'}), FileChannel.open(file, StandardOpenOption.READ), 0, content.length);
+            assertEquals(SendResult.Type.Buffered, fileResult.getType());
+            //holds the nio fiber so the socket drains while the rest of the file is still queued
+            final CountDownLatch release = new CountDownLatch(1);
+            fiber.execute((c) -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            byte[] chunk = new byte[NioWriter.gatheringWriteThreshold];
+            Arrays.fill(chunk, (byte) 'c');
+            final int chunkHeadLength = HttpResponseWriter.chunkHeadLength(chunk.length);
+            final byte[] received = new byte[1 + content.length + chunkHeadLength + chunk.length + 2];
+            final DataInputStream in = new DataInputStream(client.socket().getInputStream());
+            final int sent = 1 + content.length - writer.getTotalBytesBuffered();
+            in.readFully(received, 0, sent);
+            //gives the socket time to report the freed space
+            Thread.sleep(200);
+            writer.sendChunk(chunk, 0, chunk.length);
+            release.countDown();
+            in.readFully(received, sent, received.length - sent);
+            assertEquals('f', received[0]);
+            assertArrayEquals(content, Arrays.copyOfRange(received, 1, 1 + content.length));
+            assertArrayEquals(chunk, Arrays.copyOfRange(received, 1 + content.length + chunkHeadLength, received.length - 2));
+        } finally {
+            fiber.dispose();
+            Files.delete(file);
+        }
+    }
+
+    private static class Idle implements NioChannelHandler {
+        private final SocketChannel channel;
+
+        Idle(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+            return Result.Continue;
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return channel;
+        }
+
+        @Override
+        public int getInterestSet() {
+            return SelectionKey.OP_READ;
+        }
+
+        @Override
+        public void onEnd() {
+        }
+
+        @Override
+        public void onSelectorEnd() {
+        }
+    }
+}
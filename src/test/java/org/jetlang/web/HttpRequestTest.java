@@ -101,4 +101,36 @@ public class HttpRequestTest {
 
 
 
+
+    @Test
+    public void parseHeadSplitAcrossReads() {
+        byte[] bytes = "GET /path?a=1 HTTP/1.1\r\nHost: localhost\r\ncontent-length:  3 \r\nX-Empty:\r\n\r\nabc".getBytes(HeaderReader.ascii);
+        int headLength = bytes.length - 3;
+        for (int split = 1; split < headLength; split++) {
+            assertEquals(-1, RequestHead.findEnd(bytes, 0, 0, split));
+            int resumeAt = Math.max(0, split - 3);
+            assertEquals(headLength, RequestHead.findEnd(bytes, 0, resumeAt, bytes.length));
+        }
+        HttpRequest request = new HttpRequest(null, RequestHead.parse(bytes, 0, headLength));
+        assertEquals(3, request.contentLength);
+        assertEquals("localhost", request.get("HOST"));
+        assertEquals("", request.get("x-empty"));
+        assertNull(request.get("Missing"));
+        assertEquals("GET", request.getMethod());
+        assertEquals("/path", request.getPath());
+        assertEquals("1", request.getQueryParams().get("a"));
+        assertEquals("HTTP/1.1", request.getProtocolVersion());
+        assertEquals(3, request.getHeaders().size());
+        assertEquals("content-length", request.getHeaders().getHeaders().get(1).name);
+    }
+
+    @Test
+    public void parseHeadWithBareLineFeeds() {
+        byte[] bytes = "POST / HTTP/1.0\nContent-Length: 12\n\n".getBytes(HeaderReader.ascii);
+        assertEquals(bytes.length, RequestHead.findEnd(bytes, 0, 0, bytes.length));
+        HttpRequest request = new HttpRequest(null, RequestHead.parse(bytes, 0, bytes.length));
+        assertEquals(12, request.contentLength);
+        assertEquals("POST", request.getMethod());
+        assertEquals("HTTP/1.0", request.getProtocolVersion());
+    }
 }
@@ -0,0 +1,68 @@
+package org.jetlang.web;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HttpResponseWriterTest {
+
+    private static byte[] expected(String head, byte[] content) {
+        byte[] h = head.getBytes(HeaderReader.ascii);
+        byte[] all = Arrays.copyOf(h, h.length + content.length);
+        System.arraycopy(content, 0, all, h.length, content.length);
+        return all;
+    }
+
+    private static byte[] encode(int statusCode, String statusTxt, String contentType, KeyValueList headers, byte[] content, Charset charset) {
+        int length = HttpResponseWriter.headLength(statusCode, statusTxt, contentType, headers, content.length, charset);
+        ByteBuffer bb = ByteBuffer.allocate(length);
+        HttpResponseWriter.writeHead(bb, statusCode, statusTxt, contentType, headers, content.length, charset);
+        assertEquals(0, bb.remaining());
+        return bb.array();
+    }
+
+    @Test
+    public void writeHead() {
+        KeyValueList headers = new KeyValueList(false);
+        headers.add("ETag", "\"abc\"");
+        assertArrayEquals(expected("HTTP/1.1 200 OK\r\nContent-Type: application/json; charset=UTF-8\r\nETag: \"abc\"\r\nContent-Length: 1234\r\n\r\n", new byte[0]),
+                encode(200, "OK", "application/json", headers, new byte[1234], Charset.forName("UTF-8")));
+        assertArrayEquals(expected("HTTP/1.1 299 Custom\r\nContent-Type: text/plain\r\nContent-Length: 0\r\n\r\n", new byte[0]),
+                encode(299, "Custom", "text/plain", null, new byte[0], null));
+        assertArrayEquals(expected("HTTP/1.1 404 Missing\r\nContent-Type: text/plain\r\nContent-Length: 10\r\n\r\n", new byte[0]),
+                encode(404, "Missing", "text/plain", null, new byte[10], null));
+    }
+
+    @Test
+    public void largeBodyIsWrittenWithHead() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept()) {
+            final byte[] content = new byte[NioWriter.gatheringWriteThreshold + 10];
+            Arrays.fill(content, (byte) 'x');
+            final byte[] expected = expected("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + content.length + "\r\n\r\n", content);
+            final byte[] received = new byte[expected.length];
+            Thread reader = new Thread(() -> {
+                try {
+                    new DataInputStream(client.socket().getInputStream()).readFully(received);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            reader.start();
+            NioWriter writer = new NioWriter(new Object(), accepted, null, new IoBufferPool.Default().createFor(accepted, null));
+            assertEquals(SendResult.SUCCESS, writer.sendResponse(200, "OK", "text/plain", null, content, null));
+            reader.join(5000);
+            assertArrayEquals(expected, received);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.jetlang.web;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PerMessageDeflateTest {
+
+    @Test
+    public void negotiate() {
+        PerMessageDeflate server = new PerMessageDeflate();
+        assertNull(server.negotiate(null));
+        assertNull(server.negotiate("x-webkit-deflate-frame"));
+        assertNull(server.negotiate("permessage-deflate; server_max_window_bits=20"));
+        assertEquals("permessage-deflate", server.negotiate("permessage-deflate; client_max_window_bits").getHeader());
+        assertEquals("permessage-deflate; server_no_context_takeover; server_max_window_bits=10",
+                server.negotiate("permessage-deflate; unknown, permessage-deflate; server_max_window_bits=10; server_no_context_takeover").getHeader());
+
+        server.setClientMaxWindowBits(12);
+        server.setClientNoContextTakeover(true);
+        assertEquals("permessage-deflate; client_no_context_takeover; client_max_window_bits=12",
+                server.negotiate("permessage-deflate; client_max_window_bits").getHeader());
+        assertEquals("permessage-deflate; client_no_context_takeover",
+                server.negotiate("permessage-deflate").getHeader());
+
+        PerMessageDeflate client = new PerMessageDeflate();
+        assertEquals("permessage-deflate; client_max_window_bits", client.offer());
+        assertNull(client.accept(null));
+        assertNull(client.accept("permessage-deflate; bogus"));
+    }
+
+    private static byte[] json(int records) {
+        StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < records; i++) {
+            b.append("{\"id\":").append(i).append(",\"name\":\"instrument\",\"bid\":100.25,\"ask\":100.5},");
+        }
+        return b.append("]").toString().getBytes(HeaderReader.ascii);
+    }
+
+    private static byte[] roundTrip(PerMessageDeflate.Codec sender, PerMessageDeflate.Codec receiver, byte[] message) throws DataFormatException {
+        assertTrue(sender.deflate(message, 0, message.length));
+        assertTrue(sender.getDeflatedLength() < message.length);
+        byte[] frame = Arrays.copyOf(sender.getDeflated(), sender.getDeflatedLength());
+        int size = receiver.inflate(frame, frame.length);
+        return Arrays.copyOf(receiver.getInflated(), size);
+    }
+
+    @Test
+    public void contextIsCarriedBetweenMessages() throws DataFormatException {
+        PerMessageDeflate settings = new PerMessageDeflate();
+        PerMessageDeflate.Codec server = settings.negotiate(settings.offer());
+        PerMessageDeflate.Codec client = settings.accept(server.getHeader());
+        byte[] message = json(100);
+        assertArrayEquals(message, roundTrip(server, client, message));
+        int first = server.getDeflatedLength();
+        assertArrayEquals(message, roundTrip(server, client, message));
+        assertTrue(server.getDeflatedLength() < first);
+        assertArrayEquals(message, roundTrip(client, server, message));
+
+        byte[] small = "{}".getBytes(HeaderReader.ascii);
+        assertFalse(server.deflate(small, 0, small.length));
+    }
+
+    @Test
+    public void smallWindowSendsLargeMessagesUncompressed() throws DataFormatException {
+        PerMessageDeflate settings = new PerMessageDeflate();
+        PerMessageDeflate.Codec server = settings.negotiate("permessage-deflate; server_max_window_bits=9");
+        PerMessageDeflate.Codec client = settings.accept(server.getHeader());
+        byte[] fits = json(5);
+        assertTrue(fits.length <= 512);
+        assertArrayEquals(fits, roundTrip(server, client, fits));
+        byte[] large = json(100);
+        assertFalse(server.deflate(large, 0, large.length));
+    }
+
+    @Test
+    public void inflatesRfcExample() throws DataFormatException {
+        PerMessageDeflate.Codec codec = new PerMessageDeflate().accept("permessage-deflate");
+        byte[] hello = {(byte) 0xf2, 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, 0x07, 0x00};
+        int size = codec.inflate(hello, hello.length);
+        assertEquals("Hello", new String(codec.getInflated(), 0, size, HeaderReader.ascii));
+        //the same message again, referring back to the first
+        byte[] again = {(byte) 0xf2, 0x00, 0x11, 0x00, 0x00};
+        size = codec.inflate(again, again.length);
+        assertEquals("Hello", new String(codec.getInflated(), 0, size, HeaderReader.ascii));
+    }
+}
@@ -0,0 +1,87 @@
+package org.jetlang.web;
+
+import org.junit.Test;
+
+import static org.jetlang.web.PathMatcher.path;
+import static org.jetlang.web.PathMatcher.pathEq;
+import static org.jetlang.web.PathMatcher.pathPrefix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RadixRouterTest {
+
+    private static Handler<Object> handler() {
+        return (HttpHandler<Object>) (dispatchFiber, headers, writer, sessionState) -> {
+        };
+    }
+
+    private static HttpRequest request(String method, String uri) {
+        return new HttpRequest(method, uri, "HTTP/1.1", null);
+    }
+
+    @Test
+    public void routes() {
+        Handler<Object> users = handler();
+        Handler<Object> user = handler();
+        Handler<Object> postOrder = handler();
+        Handler<Object> order = handler();
+        Handler<Object> files = handler();
+        HandlerLocator.List<Object> list = new HandlerLocator.List<>();
+        list.add(pathEq("/users"), users);
+        list.add(path("/users/{id}"), user);
+        list.add(path("POST", "/users/{id}/orders/{order}"), postOrder);
+        list.add(path("/users/{id}/orders/{order}"), order);
+        list.add(pathPrefix("/files/"), files);
+
+        assertSame(users, list.find(request("GET", "/users"), null));
+        assertNull(list.find(request("GET", "/user"), null));
+        assertNull(list.find(request("GET", "/users/"), null));
+
+        HttpRequest req = request("GET", "/users/42");
+        assertSame(user, list.find(req, null));
+        assertEquals("42", req.getPathParam("id"));
+
+        req = request("POST", "/users/7/orders/9");
+        assertSame(postOrder, list.find(req, null));
+        assertEquals("7", req.getPathParam("id"));
+        assertEquals("9", req.getPathParam("order"));
+        assertSame(order, list.find(request("GET", "/users/7/orders/9"), null));
+
+        assertSame(files, list.find(request("GET", "/files/a/b.txt"), null));
+        assertNull(list.find(request("GET", "/files"), null));
+    }
+
+    @Test
+    public void firstRegisteredMatchWins() {
+        Handler<Object> prefix = handler();
+        Handler<Object> param = handler();
+        Handler<Object> custom = handler();
+        Handler<Object> exact = handler();
+        HandlerLocator.List<Object> list = new HandlerLocator.List<>();
+        list.add(pathPrefix("/a/"), prefix);
+        list.add(path("/b/{x}"), param);
+        list.add((request, sessionState) -> request.getPath().startsWith("/b/"), custom);
+        list.add(pathEq("/b/c"), exact);
+        list.add(pathEq("/a/b"), exact);
+
+        assertSame(prefix, list.find(request("GET", "/a/b"), null));
+        assertSame(param, list.find(request("GET", "/b/c"), null));
+        assertSame(custom, list.find(request("GET", "/b/c/d"), null));
+    }
+
+    @Test
+    public void routeMatchesWithoutRouter() {
+        PathMatcher<Object> matcher = path("GET", "/users/{id}/name");
+        HttpRequest req = request("GET", "/users/5/name");
+        assertEquals(true, matcher.handles(req, null));
+        assertEquals("5", req.getPathParam("id"));
+        assertEquals(false, matcher.handles(request("PUT", "/users/5/name"), null));
+        assertEquals(false, matcher.handles(request("GET", "/users//name"), null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void paramMustBeWholeSegment() {
+        path("/files/{name}.json");
+    }
+}
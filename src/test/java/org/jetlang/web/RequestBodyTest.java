@@ -0,0 +1,184 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.Fiber;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBodyTest {
+
+    private final ServerSocketChannel server;
+    private final SocketChannel client;
+    private final SocketChannel accepted;
+    private final List<String> handled = new ArrayList<>();
+    private final StringBuilder streamed = new StringBuilder();
+
+    public RequestBodyTest() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        accepted = server.accept();
+    }
+
+    @After
+    public void close() throws IOException {
+        accepted.close();
+        client.close();
+        server.close();
+    }
+
+    private HeaderReader<Void> reader(int maxBodySize) {
+        return reader(new HttpRequestHandler.Default<>(handlers(), null, null, maxBodySize));
+    }
+
+    private HandlerLocator.List<Void> handlers() {
+        HandlerLocator.List<Void> handlers = new HandlerLocator.List<>();
+        handlers.add(PathMatcher.pathEq("/buffered"), new HttpHandler<Void>() {
+            @Override
+            public void handle(Fiber dispatchFiber, HttpRequest headers, HttpResponse writer, Void sessionState) {
+                handled.add(headers.getMethod() + " " + new String(headers.getContent(), HeaderReader.ascii));
+            }
+        });
+        handlers.add(PathMatcher.pathEq("/streamed"), new StreamingHttpHandler<Void>() {
+            @Override
+            public BodyListener onRequest(HttpRequest headers, HttpResponse response, Void sessionState) {
+                return new BodyListener() {
+                    @Override
+                    public void onBody(byte[] data, int offset, int length) {
+                        streamed.append('[').append(new String(data, offset, length, HeaderReader.ascii)).append(']');
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        handled.add("streamed");
+                    }
+                };
+            }
+        });
+        return handlers;
+    }
+
+    private HeaderReader<Void> reader(HttpRequestHandler<Void> handler) {
+        return reader(handler, HttpRequestHandler.Default.defaultMaxBodySize);
+    }
+
+    private HeaderReader<Void> reader(HttpRequestHandler<Void> handler, int maxBodySize) {
+        return new HeaderReader<>(accepted, null, null, handler, SessionFactory.none(), new SessionDispatcherFactory.OnReadThreadDispatcher<>(), new IoBufferPool.Default().createFor(accepted, null), maxBodySize);
+    }
+
+    //a decorator that does not know about readsBody
+    private static HttpRequestHandler<Void> delegate(HttpRequestHandler<Void> target) {
+        return new HttpRequestHandler<Void>() {
+            @Override
+            public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<Void> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<Void> reader, NioWriter writer, Void sessionState) {
+                return target.dispatch(dispatcher, headers, response, reader, writer, sessionState);
+            }
+
+            @Override
+            public void onException(Throwable processingException, SocketChannel channel) {
+                target.onException(processingException, channel);
+            }
+        };
+    }
+
+    //feeds the bytes a few at a time, compacting between reads like NioReader
+    private static NioReader.State feed(NioReader.State state, String input, int readSize) {
+        ByteBuffer bb = ByteBuffer.allocate(input.length());
+        byte[] bytes = input.getBytes(HeaderReader.ascii);
+        for (int i = 0; i < bytes.length; i += readSize) {
+            bb.put(bytes, i, Math.min(readSize, bytes.length - i));
+            bb.flip();
+            NioReader.State result = state;
+            while (result != null) {
+                result = state.process(bb);
+                if (result != null) {
+                    state = result;
+                }
+            }
+            bb.compact();
+        }
+        return state;
+    }
+
+    @Test
+    public void chunkedBodyIsDecoded() {
+        HeaderReader<Void> reader = reader(1024);
+        String request = "POST /buffered HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n6;name=value\r\n world\r\n0\r\nTrailer: ignored\r\n\r\n"
+                + "GET /buffered HTTP/1.1\r\n\r\n";
+        for (int readSize : new int[]{1, 3, 7, request.length()}) {
+            handled.clear();
+            feed(reader.start(), request, readSize);
+            assertEquals("readSize " + readSize, "[POST hello world, GET ]", handled.toString());
+        }
+    }
+
+    @Test
+    public void bodyIsStreamedAsItArrives() {
+        HeaderReader<Void> reader = reader(4);
+        feed(reader.start(), "PUT /streamed HTTP/1.1\r\nContent-Length: 10\r\n\r\n0123456789GET /buffered HTTP/1.1\r\n\r\n", 50);
+        assertEquals("[0123][456789]", streamed.toString());
+        assertEquals("[streamed, GET ]", handled.toString());
+    }
+
+    @Test
+    public void handlersThatDoNotReadTheBodyGetItWhole() {
+        HeaderReader<Void> reader = reader(new HttpRequestHandler<Void>() {
+            @Override
+            public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<Void> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<Void> reader, NioWriter writer, Void sessionState) {
+                handled.add(headers.getMethod() + " " + new String(headers.getContent(), HeaderReader.ascii));
+                return reader.start();
+            }
+
+            @Override
+            public void onException(Throwable processingException, SocketChannel channel) {
+            }
+        });
+        String body = "GET /smuggled HTTP/1.1\r\n\r\n";
+        feed(reader.start(), "POST /custom HTTP/1.1\r\nContent-Length: " + body.length() + "\r\n\r\n" + body + "GET /next HTTP/1.1\r\n\r\n", 7);
+        assertEquals("[POST " + body + ", GET ]", handled.toString());
+    }
+
+    @Test
+    public void decoratedHandlersReadTheBodyOnce() {
+        HeaderReader<Void> reader = reader(delegate(new HttpRequestHandler.Default<>(handlers(), null, null, 1024)));
+        feed(reader.start(), "POST /buffered HTTP/1.1\r\nContent-Length: 5\r\n\r\nhelloGET /buffered HTTP/1.1\r\n\r\n", 100);
+        assertEquals("[POST hello, GET ]", handled.toString());
+    }
+
+    @Test
+    public void decoratedHandlersKeepTheBodyLimit() {
+        HeaderReader<Void> reader = reader(delegate(new HttpRequestHandler.Default<>(handlers(), null, null, 4)), 4);
+        NioReader.State state = feed(reader.start(), "POST /buffered HTTP/1.1\r\nContent-Length: 10\r\n\r\n0123456789", 100);
+        assertSame(NioReader.CLOSE, state);
+        assertTrue(handled.isEmpty());
+    }
+
+    @Test
+    public void largeBodyIsRejected() throws IOException {
+        HeaderReader<Void> reader = reader(4);
+        NioReader.State state = feed(reader.start(), "POST /buffered HTTP/1.1\r\nContent-Length: 10\r\n\r\n0123456789", 100);
+        assertSame(NioReader.CLOSE, state);
+        assertTrue(handled.isEmpty());
+
+        state = feed(reader.start(), "POST /buffered HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n3\r\ndef\r\n0\r\n\r\n", 100);
+        assertSame(NioReader.CLOSE, state);
+        assertTrue(handled.isEmpty());
+
+        InputStream in = client.socket().getInputStream();
+        byte[] status = new byte["HTTP/1.1 413".length()];
+        assertEquals(status.length, in.read(status));
+        assertEquals("HTTP/1.1 413", new String(status, HeaderReader.ascii));
+    }
+}
@@ -0,0 +1,110 @@
+package org.jetlang.web;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResponseCompressionTest {
+
+    private static HttpRequest accepting(String acceptEncoding) {
+        HttpRequest request = new HttpRequest("GET", "/", "HTTP/1.1", null);
+        if (acceptEncoding != null) {
+            request.add("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+
+    private static byte[] text(int length) {
+        StringBuilder b = new StringBuilder();
+        while (b.length() < length) {
+            b.append("the quick brown fox ");
+        }
+        return b.substring(0, length).getBytes(HeaderReader.ascii);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void negotiate() {
+        ResponseCompression compression = new ResponseCompression();
+        assertNull(compression.negotiate(accepting(null)));
+        assertNull(compression.negotiate(accepting("identity")));
+        assertEquals("gzip", compression.negotiate(accepting("deflate, gzip;q=0.5")));
+        assertEquals("deflate", compression.negotiate(accepting("gzip;q=0, deflate")));
+        assertEquals("gzip", compression.negotiate(accepting("*")));
+        assertNull(compression.negotiate(accepting("gzip;q=0, *;q=0")));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        ResponseCompression compression = new ResponseCompression();
+        byte[] content = text(10000);
+        byte[] gzipped = compression.compress(content, 0, content.length, ResponseCompression.gzip);
+        assertArrayEquals(content, readAll(new GZIPInputStream(new ByteArrayInputStream(gzipped))));
+        byte[] deflated = compression.compress(content, 0, content.length, ResponseCompression.deflate);
+        assertArrayEquals(content, readAll(new InflaterInputStream(new ByteArrayInputStream(deflated))));
+    }
+
+    private static class Captured implements HttpResponse {
+        String head;
+        byte[] body;
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public SendResult send(ByteBuffer fullResponse) {
+            byte[] bytes = new byte[fullResponse.remaining()];
+            fullResponse.get(bytes);
+            String all = new String(bytes, HeaderReader.ascii);
+            int end = all.indexOf("\r\n\r\n") + 4;
+            head = all.substring(0, end);
+            body = new byte[bytes.length - end];
+            System.arraycopy(bytes, end, body, 0, body.length);
+            return SendResult.SUCCESS;
+        }
+    }
+
+    @Test
+    public void compressesOnlyLargeCompressibleBodies() throws IOException {
+        ResponseCompression compression = new ResponseCompression();
+        Charset utf8 = Charset.forName("UTF-8");
+        byte[] content = text(5000);
+
+        Captured large = new Captured();
+        new CompressingResponse(large, "gzip", compression).sendResponse(200, "OK", "text/html", null, content, utf8);
+        assertEquals(true, large.head.contains("Content-Encoding: gzip\r\n"));
+        assertEquals(true, large.head.contains("Vary: Accept-Encoding\r\n"));
+        assertArrayEquals(content, readAll(new GZIPInputStream(new ByteArrayInputStream(large.body))));
+
+        Captured small = new Captured();
+        new CompressingResponse(small, "gzip", compression).sendResponse(200, "OK", "text/html", null, text(100), utf8);
+        assertEquals(false, small.head.contains("Content-Encoding"));
+
+        Captured binary = new Captured();
+        new CompressingResponse(binary, "gzip", compression).sendResponse(200, "OK", "image/png", null, content, null);
+        assertArrayEquals(content, binary.body);
+    }
+}
@@ -0,0 +1,228 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.NioFiberImpl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StaticFilesTest {
+
+    private final Path dir;
+    private final MimeType text = new MimeType.Text("text/plain", Charset.forName("UTF-8"));
+
+    public StaticFilesTest() throws IOException {
+        dir = Files.createTempDirectory("static");
+    }
+
+    @After
+    public void delete() throws IOException {
+        try (Stream<Path> all = Files.walk(dir)) {
+            all.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static class Captured implements HttpResponse {
+        String sent;
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public SendResult send(ByteBuffer fullResponse) {
+            byte[] bytes = new byte[fullResponse.remaining()];
+            fullResponse.get(bytes);
+            sent = new String(bytes, HeaderReader.ascii);
+            return SendResult.SUCCESS;
+        }
+
+        String header(String name) {
+            for (String line : sent.substring(0, sent.indexOf("\r\n\r\n")).split("\r\n")) {
+                if (line.startsWith(name + ": ")) {
+                    return line.substring(name.length() + 2);
+                }
+            }
+            return null;
+        }
+
+        String body() {
+            return sent.substring(sent.indexOf("\r\n\r\n") + 4);
+        }
+    }
+
+    private static HttpRequest get(String... headers) {
+        HttpRequest request = new HttpRequest("GET", "/file.txt", "HTTP/1.1", null);
+        for (int i = 0; i < headers.length; i += 2) {
+            request.add(headers[i], headers[i + 1]);
+        }
+        return request;
+    }
+
+    @Test
+    public void cachesAndAnswersConditionalRequests() throws IOException {
+        Path file = dir.resolve("file.txt");
+        Files.write(file, "0123456789".getBytes(HeaderReader.ascii));
+        StaticFiles files = new StaticFiles();
+
+        Captured ok = new Captured();
+        files.send(get(), ok, file, text);
+        assertTrue(ok.sent, ok.sent.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertEquals("0123456789", ok.body());
+        String etag = ok.header("ETag");
+
+        Captured notModified = new Captured();
+        files.send(get("If-None-Match", etag), notModified, file, text);
+        assertTrue(notModified.sent.startsWith("HTTP/1.1 304 Not Modified\r\n"));
+        assertEquals("", notModified.body());
+
+        Captured sinceModified = new Captured();
+        files.send(get("If-Modified-Since", ok.header("Last-Modified")), sinceModified, file, text);
+        assertTrue(sinceModified.sent.startsWith("HTTP/1.1 304 Not Modified\r\n"));
+        assertEquals(1, files.getCacheMissCount());
+        assertEquals(2, files.getCacheHitCount());
+
+        Files.write(file, "changed".getBytes(HeaderReader.ascii));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        Captured changed = new Captured();
+        files.send(get("If-None-Match", etag), changed, file, text);
+        assertEquals("changed", changed.body());
+        assertEquals(2, files.getCacheMissCount());
+    }
+
+    @Test
+    public void ranges() throws IOException {
+        Path file = dir.resolve("file.txt");
+        Files.write(file, "0123456789".getBytes(HeaderReader.ascii));
+        for (StaticFiles files : Arrays.asList(new StaticFiles(), new StaticFiles(1024, 0))) {
+            Captured part = new Captured();
+            files.send(get("Range", "bytes=2-4"), part, file, text);
+            assertTrue(part.sent.startsWith("HTTP/1.1 206 Partial Content\r\n"));
+            assertEquals("bytes 2-4/10", part.header("Content-Range"));
+            assertEquals("234", part.body());
+
+            Captured suffix = new Captured();
+            files.send(get("Range", "bytes=-3"), suffix, file, text);
+            assertEquals("789", suffix.body());
+
+            Captured unsatisfiable = new Captured();
+            files.send(get("Range", "bytes=20-"), unsatisfiable, file, text);
+            assertTrue(unsatisfiable.sent.startsWith("HTTP/1.1 416 Range Not Satisfiable\r\n"));
+            assertEquals("bytes */10", unsatisfiable.header("Content-Range"));
+
+            Captured staleRange = new Captured();
+            files.send(get("Range", "bytes=2-4", "If-Range", "\"old\""), staleRange, file, text);
+            assertEquals("0123456789", staleRange.body());
+        }
+    }
+
+    @Test
+    public void cachesCompressedForm() throws IOException {
+        Path file = dir.resolve("file.txt");
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 4000) {
+            content.append("compressible text ");
+        }
+        Files.write(file, content.toString().getBytes(HeaderReader.ascii));
+        StaticFiles files = new StaticFiles();
+        files.setCompression(new ResponseCompression());
+
+        Captured gzipped = new Captured();
+        files.send(get("Accept-Encoding", "gzip"), gzipped, file, text);
+        assertEquals("gzip", gzipped.header("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzipped.header("Vary"));
+        assertTrue(gzipped.body().length() < content.length());
+        long cached = files.getCachedBytes();
+        assertTrue(cached > content.length());
+
+        Captured again = new Captured();
+        files.send(get("Accept-Encoding", "gzip"), again, file, text);
+        assertEquals(gzipped.sent, again.sent);
+        assertEquals(cached, files.getCachedBytes());
+
+        Captured notModified = new Captured();
+        files.send(get("Accept-Encoding", "gzip", "If-None-Match", gzipped.header("ETag")), notModified, file, text);
+        assertTrue(notModified.sent.startsWith("HTTP/1.1 304 Not Modified\r\n"));
+
+        Captured identity = new Captured();
+        files.send(get(), identity, file, text);
+        assertEquals(null, identity.header("Content-Encoding"));
+        assertEquals(content.toString(), identity.body());
+
+        Captured part = new Captured();
+        files.send(get("Accept-Encoding", "gzip", "Range", "bytes=0-3"), part, file, text);
+        assertEquals(null, part.header("Content-Encoding"));
+        assertEquals("comp", part.body());
+    }
+
+    @Test
+    public void fileIsTransferredToSocket() throws Exception {
+        final byte[] content = new byte[1024 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = dir.resolve("large.bin");
+        Files.write(file, content);
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept()) {
+            final byte[] received = new byte[3 + content.length - 10];
+            Thread reader = new Thread(() -> {
+                try {
+                    new DataInputStream(client.socket().getInputStream()).readFully(received);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            reader.start();
+            NioWriter writer = new NioWriter(new Object(), accepted, null, new IoBufferPool.Default().createFor(accepted, null));
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            assertEquals(SendResult.SUCCESS, writer.sendFile(ByteBuffer.wrap(new byte[]{'a', 'b', 'c'}), channel, 10, content.length - 10));
+            reader.join(5000);
+            assertTrue(!channel.isOpen());
+            assertArrayEquals(new byte[]{'a', 'b', 'c'}, Arrays.copyOf(received, 3));
+            assertArrayEquals(Arrays.copyOfRange(content, 10, content.length), Arrays.copyOfRange(received, 3, received.length));
+        }
+    }
+
+    @Test
+    public void truncatedFileFailsTheConnection() throws Exception {
+        Path file = dir.resolve("short.bin");
+        Files.write(file, new byte[100]);
+        NioFiberImpl fiber = new NioFiberImpl();
+        fiber.start();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept()) {
+            NioWriter writer = new NioWriter(new Object(), accepted, fiber, new IoBufferPool.Default().createFor(accepted, fiber));
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            //the file was 200 bytes when it was checked
+            SendResult result = writer.sendFile(ByteBuffer.wrap(new byte[]{'a'}), channel, 0, 200);
+            assertEquals(SendResult.Type.FailedOnError, result.getType());
+            assertTrue(!channel.isOpen());
+            assertEquals(SendResult.Type.Closed, writer.send(ByteBuffer.wrap(new byte[]{'b'})).getType());
+        } finally {
+            fiber.dispose();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.NioChannelHandler;
+import org.jetlang.fibers.NioControls;
+import org.jetlang.fibers.NioFiber;
+import org.jetlang.fibers.NioFiberImpl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WebSocketBroadcastGroupTest {
+
+    private final ServerSocketChannel server;
+    private final List<SocketChannel> channels = new ArrayList<>();
+    private final NioFiberImpl fiber = new NioFiberImpl();
+
+    public WebSocketBroadcastGroupTest() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        fiber.start();
+    }
+
+    @After
+    public void close() throws IOException {
+        fiber.dispose();
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        server.close();
+    }
+
+    private SocketChannel client;
+
+    //returns a server side connection, leaving its client end in the client field
+    private WebSocketConnectionImpl connect(byte[] mask) throws Exception {
+        return connect(mask, null);
+    }
+
+    private WebSocketConnectionImpl connect(byte[] mask, PerMessageDeflate.Codec deflate) throws Exception {
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        channels.add(client);
+        channels.add(accepted);
+        accepted.configureBlocking(false);
+        final CountDownLatch registered = new CountDownLatch(1);
+        fiber.execute((c) -> {
+            c.addHandler(new Idle(accepted));
+            registered.countDown();
+        });
+        assertTrue(registered.await(5, TimeUnit.SECONDS));
+        NioWriter writer = new NioWriter(new Object(), accepted, fiber, new IoBufferPool.Default().createFor(accepted, fiber));
+        return new WebSocketConnectionImpl(writer, mask, fiber, null, deflate);
+    }
+
+    private static byte[] read(SocketChannel client, int length) throws IOException {
+        byte[] received = new byte[length];
+        new DataInputStream(client.socket().getInputStream()).readFully(received);
+        return received;
+    }
+
+    @Test
+    public void framesAreSharedAndMaskedMembersSendThemselves() throws Exception {
+        WebSocketBroadcastGroup group = new WebSocketBroadcastGroup();
+        WebSocketConnectionImpl first = connect(new byte[0]);
+        SocketChannel firstClient = client;
+        WebSocketConnectionImpl masked = connect(new byte[]{1, 2, 3, 4});
+        SocketChannel maskedClient = client;
+        assertTrue(group.add(first));
+        assertFalse(group.add(first));
+        assertTrue(group.add(masked));
+
+        assertEquals(2, group.send("hello"));
+        assertArrayEquals(new byte[]{(byte) 0x81, 5, 'h', 'e', 'l', 'l', 'o'}, read(firstClient, 7));
+        byte[] maskedFrame = read(maskedClient, 11);
+        assertEquals((byte) 0x81, maskedFrame[0]);
+        assertEquals((byte) (0x80 | 5), maskedFrame[1]);
+        assertEquals('h', maskedFrame[6] ^ 1);
+
+        assertTrue(group.remove(masked));
+        firstClient.close();
+        //the first write after the peer closes may still succeed, so send until the failure is seen
+        for (int i = 0; i < 100 && group.size() > 0; i++) {
+            group.send("closed");
+            Thread.sleep(10);
+        }
+        assertEquals(0, group.size());
+        assertEquals(1, group.getFailedCount());
+        assertEquals(group.getBroadcastCount() + 1 - group.getFailedCount(), group.getDeliveredCount());
+    }
+
+    @Test
+    public void compressingMembersAreSentTheUncompressedFrame() throws Exception {
+        WebSocketBroadcastGroup group = new WebSocketBroadcastGroup();
+        PerMessageDeflate settings = new PerMessageDeflate();
+        WebSocketConnectionImpl compressing = connect(new byte[0], settings.negotiate(settings.offer()));
+        group.add(compressing);
+        final byte[] payload = new byte[1024];
+        assertEquals(1, group.sendBinary(payload, 0, payload.length));
+        byte[] header = read(client, 2);
+        //rsv1 is clear, so the peer reads the frame as uncompressed
+        assertEquals((byte) 0x82, header[0]);
+        assertEquals(126, header[1]);
+        byte[] received = read(client, 2 + payload.length);
+        assertEquals(payload.length, ((received[0] & 0xff) << 8) | (received[1] & 0xff));
+    }
+
+    @Test
+    public void slowMembersQueueTheSharedFrame() throws Exception {
+        WebSocketBroadcastGroup group = new WebSocketBroadcastGroup();
+        WebSocketConnectionImpl slow = connect(new byte[0]);
+        group.add(slow);
+        final byte[] payload = new byte[64 * 1024];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        final int frames = 64;
+        for (int i = 0; i < frames; i++) {
+            assertEquals(1, group.sendBinary(payload, 0, payload.length));
+        }
+        assertTrue(group.getBufferedCount() > 0);
+        assertEquals(frames * (long) payload.length, group.getBytesSentCount());
+
+        final int frameLength = 10 + payload.length;
+        byte[] received = read(client, frames * frameLength);
+        for (int i = 0; i < frames; i++) {
+            assertEquals((byte) 0x82, received[i * frameLength]);
+            assertEquals(payload[payload.length - 1], received[(i + 1) * frameLength - 1]);
+        }
+    }
+
+    private static class Idle implements NioChannelHandler {
+        private final SocketChannel channel;
+
+        Idle(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+            return Result.Continue;
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return channel;
+        }
+
+        @Override
+        public int getInterestSet() {
+            return SelectionKey.OP_READ;
+        }
+
+        @Override
+        public void onEnd() {
+        }
+
+        @Override
+        public void onSelectorEnd() {
+        }
+    }
+}